@@ -0,0 +1,129 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Amount handling on the ingest and detection paths with {@link BigDecimal} amounts (the {@code
+ * decimal*} benchmarks, shaped like the models before amounts moved to cents) and with {@link
+ * Cents} ({@code cents*}). Run with {@code -PjmhProfilers=gc} to compare allocation per operation
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AmountBenchmark {
+
+  private static final int ROWS = 1000;
+
+  /** {@link TransactionRequest} with the amount as it was, a {@link BigDecimal}. */
+  @Data
+  public static class DecimalRequest {
+    private BigDecimal amount;
+    private String userId;
+    private TransactionType transactionType;
+  }
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final ObjectReader decimalReader = objectMapper.readerFor(DecimalRequest.class);
+  private final ObjectReader centsReader = objectMapper.readerFor(TransactionRequest.class);
+  private final ObjectWriter decimalWriter = objectMapper.writerFor(BigDecimal[].class);
+  private final ObjectWriter centsWriter = objectMapper.writerFor(CentsArray.class);
+
+  private final BigDecimal smallThreshold = new BigDecimal("100.00");
+  private final BigDecimal highThreshold = new BigDecimal("10000.00");
+  private final long smallThresholdCents = 10_000;
+  private final long highThresholdCents = 1_000_000;
+
+  private List<byte[]> requests;
+  private BigDecimal[] decimals;
+  private long[] cents;
+
+  /** The cents serializer on every element, as on each {@code TransactionResponse}. */
+  public record CentsArray(
+      @JsonSerialize(contentUsing = Cents.Serializer.class) long[] amounts) {}
+
+  @Setup
+  public void createAmounts() {
+    requests = new ArrayList<>(ROWS);
+    decimals = new BigDecimal[ROWS];
+    cents = new long[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      long amount = (i % 300) * 5000L + 99;
+      decimals[i] = Cents.toDecimal(amount);
+      cents[i] = amount;
+      requests.add(
+          String.format(
+                  "{\"userId\":\"user%d\",\"amount\":%s,\"transactionType\":\"DEPOSIT\"}",
+                  i % 50, Cents.toString(amount))
+              .getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Benchmark
+  public void decimalDeserialize(Blackhole blackhole) throws IOException {
+    for (byte[] request : requests) {
+      blackhole.consume(decimalReader.<DecimalRequest>readValue(request));
+    }
+  }
+
+  @Benchmark
+  public void centsDeserialize(Blackhole blackhole) throws IOException {
+    for (byte[] request : requests) {
+      blackhole.consume(centsReader.<TransactionRequest>readValue(request));
+    }
+  }
+
+  /** The detector's threshold checks after rounding to the stored scale, as the column does. */
+  @Benchmark
+  public int decimalThresholds() {
+    int flagged = 0;
+    for (BigDecimal amount : decimals) {
+      BigDecimal stored = amount.setScale(2, RoundingMode.HALF_UP);
+      if (stored.compareTo(highThreshold) >= 0 || stored.compareTo(smallThreshold) <= 0) {
+        flagged++;
+      }
+    }
+    return flagged;
+  }
+
+  @Benchmark
+  public int centsThresholds() {
+    int flagged = 0;
+    for (long amount : cents) {
+      if (amount >= highThresholdCents || amount <= smallThresholdCents) {
+        flagged++;
+      }
+    }
+    return flagged;
+  }
+
+  @Benchmark
+  public byte[] decimalSerialize() throws IOException {
+    return decimalWriter.writeValueAsBytes(decimals);
+  }
+
+  @Benchmark
+  public byte[] centsSerialize() throws IOException {
+    return centsWriter.writeValueAsBytes(new CentsArray(cents));
+  }
+}
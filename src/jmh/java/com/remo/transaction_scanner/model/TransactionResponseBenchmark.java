@@ -0,0 +1,64 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/** Builds suspicious transaction responses and serializes them the way the controller does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionResponseBenchmark {
+
+  private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+  @Param({"100", "1000", "10000"})
+  int rows;
+
+  // Configured like the ObjectMapper Spring Boot gives the message converters.
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private List<TransactionResponse> responses;
+
+  @Setup
+  public void createResponses() {
+    responses = build();
+  }
+
+  @Benchmark
+  public List<TransactionResponse> build() {
+    List<TransactionResponse> built = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      TransactionResponse response =
+          TransactionResponse.builder()
+              .id(i)
+              .userId("user42")
+              .amountCents((i % 300) * 5000 + 99)
+              .timestamp(Timestamp.valueOf(START.plusMinutes(i)))
+              .transactionType(TransactionType.DEPOSIT)
+              .suspicious(true)
+              .build();
+      response.getSuspiciousReason().add(SuspiciousReason.RAPID_TRANSFER.getDescription());
+      built.add(response);
+    }
+    return built;
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(responses);
+  }
+}
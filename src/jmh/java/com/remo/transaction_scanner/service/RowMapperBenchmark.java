@@ -0,0 +1,58 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.rowset.CachedRowSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Maps a whole synthetic result set with each of the finder's row mappers. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMapperBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int rows;
+
+  private CachedRowSet resultSet;
+
+  @Setup(Level.Trial)
+  public void createResultSet() throws SQLException {
+    resultSet = SyntheticRows.resultSet(rows);
+  }
+
+  @Setup(Level.Invocation)
+  public void rewind() throws SQLException {
+    resultSet.beforeFirst();
+  }
+
+  @Benchmark
+  public void suspiciousViewRowMapper(Blackhole blackhole) throws SQLException {
+    int rowNum = 0;
+    while (resultSet.next()) {
+      TransactionResponse response =
+          SuspiciousTransactionFinder.suspiciousViewRowMapper.mapRow(resultSet, rowNum++);
+      blackhole.consume(response);
+    }
+  }
+
+  @Benchmark
+  public void singleQueryRowMapper(Blackhole blackhole) throws SQLException {
+    int rowNum = 0;
+    while (resultSet.next()) {
+      TransactionResponse response =
+          SuspiciousTransactionFinder.singleQueryRowMapper.mapRow(resultSet, rowNum++);
+      blackhole.consume(response);
+    }
+  }
+}
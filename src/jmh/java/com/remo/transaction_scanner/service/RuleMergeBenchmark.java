@@ -0,0 +1,76 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merges three rule result lists that overlap like real ones: the rapid and frequent lists share
+ * most ids, high volume a few. The merges add reasons to the rows they are given, so no input can
+ * be merged twice; building fresh rows before every call would put setup bookkeeping around each
+ * microsecond-scale merge. Each iteration therefore times one batch of {@link #BATCH} merges over
+ * a pool of inputs built before it, and each score is the time of a whole batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(batchSize = RuleMergeBenchmark.BATCH)
+@Measurement(batchSize = RuleMergeBenchmark.BATCH)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RuleMergeBenchmark {
+
+  static final int BATCH = 100;
+
+  @Param({"100", "1000", "10000"})
+  int rowsPerRule;
+
+  private final List<TransactionResponse>[] frequent = newPool();
+  private final List<TransactionResponse>[] highVolume = newPool();
+  private final List<TransactionResponse>[] rapid = newPool();
+  private int next;
+
+  @SuppressWarnings("unchecked")
+  private static List<TransactionResponse>[] newPool() {
+    return new List[BATCH];
+  }
+
+  @Setup(Level.Iteration)
+  public void createRows() {
+    long idSpace = rowsPerRule * 2L;
+    for (int i = 0; i < BATCH; i++) {
+      frequent[i] = SyntheticRows.responses(rowsPerRule, idSpace, 1);
+      highVolume[i] = SyntheticRows.responses(rowsPerRule / 10, idSpace, 2);
+      rapid[i] = SyntheticRows.responses(rowsPerRule, idSpace, 3);
+    }
+    next = 0;
+  }
+
+  @Benchmark
+  public List<TransactionResponse> mergeRuleResults() {
+    int i = next++;
+    return SuspiciousTransactionFinder.mergeRuleResults(frequent[i], highVolume[i], rapid[i]);
+  }
+
+  @Benchmark
+  public List<TransactionResponse> mergeInRuleOrder() {
+    int i = next++;
+    Map<SuspiciousReason, List<TransactionResponse>> rows = new LinkedHashMap<>();
+    rows.put(SuspiciousReason.FREQUENT_SMALL_TRANSACTION, frequent[i]);
+    rows.put(SuspiciousReason.HIGH_VOLUME_TRANSACTION, highVolume[i]);
+    rows.put(SuspiciousReason.RAPID_TRANSFER, rapid[i]);
+    return SuspiciousTransactionFinder.mergeInRuleOrder(rows);
+  }
+}
@@ -0,0 +1,86 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+/**
+ * Deterministic rows shaped like the rule query results: one user, a minute apart, amounts spread
+ * across both amount thresholds.
+ */
+final class SyntheticRows {
+
+  private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+  private static final TransactionType[] TYPES = TransactionType.values();
+
+  private SyntheticRows() {}
+
+  static TransactionResponse response(long id) {
+    return TransactionResponse.builder()
+        .id(id)
+        .userId("user42")
+        .amountCents(amountCents(id))
+        .timestamp(Timestamp.valueOf(START.plusMinutes(id)))
+        .transactionType(TYPES[(int) (id % TYPES.length)])
+        .build();
+  }
+
+  /** {@code size} fresh responses with ids picked from {@code [0, idSpace)}. */
+  static List<TransactionResponse> responses(int size, long idSpace, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<TransactionResponse> rows = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rows.add(response(random.nextLong(idSpace)));
+    }
+    return rows;
+  }
+
+  /**
+   * An in-memory result set with the columns of the single query, {@code reasons} included, so the
+   * row mappers run against a real {@link java.sql.ResultSet} without a database.
+   */
+  static CachedRowSet resultSet(int size) throws SQLException {
+    RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+    metaData.setColumnCount(6);
+    String[] names = {"id", "user_id", "amount", "timestamp", "transaction_type", "reasons"};
+    int[] types = {
+      Types.BIGINT, Types.VARCHAR, Types.NUMERIC, Types.TIMESTAMP, Types.VARCHAR, Types.INTEGER
+    };
+    for (int i = 0; i < names.length; i++) {
+      metaData.setColumnName(i + 1, names[i]);
+      metaData.setColumnLabel(i + 1, names[i]);
+      metaData.setColumnType(i + 1, types[i]);
+    }
+
+    CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+    rows.setMetaData(metaData);
+    for (long id = 0; id < size; id++) {
+      TransactionResponse response = response(id);
+      rows.moveToInsertRow();
+      rows.updateLong(1, id);
+      rows.updateString(2, response.getUserId());
+      rows.updateBigDecimal(3, Cents.toDecimal(response.getAmountCents()));
+      rows.updateTimestamp(4, response.getTimestamp());
+      rows.updateString(5, response.getTransactionType().name());
+      rows.updateInt(6, (int) (id % 7) + 1);
+      rows.insertRow();
+      rows.moveToCurrentRow();
+    }
+    rows.beforeFirst();
+    return rows;
+  }
+
+  private static long amountCents(long id) {
+    return (id % 300) * 5000 + 99;
+  }
+}
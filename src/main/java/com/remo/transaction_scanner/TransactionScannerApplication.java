@@ -2,8 +2,10 @@ package com.remo.transaction_scanner;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TransactionScannerApplication {
 
   public static void main(String[] args) {
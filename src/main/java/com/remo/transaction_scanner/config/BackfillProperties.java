@@ -0,0 +1,15 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.backfill")
+public class BackfillProperties {
+
+  /** Directory import files are read from; requests name files relative to it. */
+  private String directory = "imports";
+
+  /** Rows sent in one COPY and committed together with their checkpoint. */
+  private int chunkSize = 50_000;
+}
@@ -0,0 +1,110 @@
+package com.remo.transaction_scanner.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+/**
+ * Writes, JPA and Flyway use the primary {@code spring.datasource}. Suspicious transaction reads
+ * use the {@code read*} beans, which route to the replicas in {@code
+ * transaction-scanner.read-replicas} unless the caller pinned reads to the primary.
+ *
+ * <p>Declaring a second data source, template and transaction manager makes Spring Boot back off
+ * from its own, so the primary ones are declared here too.
+ */
+@Configuration
+public class DataSourceConfig {
+
+  @Bean
+  @Primary
+  @ConfigurationProperties("spring.datasource")
+  public DataSourceProperties dataSourceProperties() {
+    return new DataSourceProperties();
+  }
+
+  @Bean
+  @Primary
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+    return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  @Primary
+  public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+    return new JdbcTemplate(dataSource);
+  }
+
+  @Bean
+  @Primary
+  public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+    return new NamedParameterJdbcTemplate(jdbcTemplate);
+  }
+
+  @Bean
+  @Primary
+  public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+    return new JpaTransactionManager(entityManagerFactory);
+  }
+
+  @Bean
+  public ReadReplicaRoutingDataSource readDataSource(
+      HikariDataSource dataSource,
+      DataSourceProperties dataSourceProperties,
+      ReadReplicaProperties readReplicaProperties,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    List<DataSource> replicas = new ArrayList<>();
+    List<String> urls = readReplicaProperties.getUrls();
+    for (int i = 0; i < urls.size(); i++) {
+      HikariConfig config = new HikariConfig();
+      config.setPoolName("replica-" + (i + 1));
+      config.setJdbcUrl(urls.get(i));
+      config.setUsername(
+          readReplicaProperties.getUsername() != null
+              ? readReplicaProperties.getUsername()
+              : dataSourceProperties.determineUsername());
+      config.setPassword(
+          readReplicaProperties.getPassword() != null
+              ? readReplicaProperties.getPassword()
+              : dataSourceProperties.determinePassword());
+      config.setMaximumPoolSize(readReplicaProperties.getMaximumPoolSize());
+      config.setReadOnly(true);
+      meterRegistry.ifAvailable(config::setMetricRegistry);
+      replicas.add(new HikariDataSource(config));
+    }
+    return new ReadReplicaRoutingDataSource(dataSource, replicas);
+  }
+
+  @Bean
+  public JdbcTemplate readJdbcTemplate(@Qualifier("readDataSource") DataSource readDataSource) {
+    return new JdbcTemplate(readDataSource);
+  }
+
+  @Bean
+  public NamedParameterJdbcTemplate readNamedParameterJdbcTemplate(
+      @Qualifier("readJdbcTemplate") JdbcTemplate readJdbcTemplate) {
+    return new NamedParameterJdbcTemplate(readJdbcTemplate);
+  }
+
+  /** For read-only transactions on the read data source, such as cursor-based streaming. */
+  @Bean
+  public DataSourceTransactionManager readTransactionManager(
+      @Qualifier("readDataSource") DataSource readDataSource) {
+    return new DataSourceTransactionManager(readDataSource);
+  }
+}
@@ -0,0 +1,19 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.detection")
+public class DetectionProperties {
+
+  /** Evaluate the suspicious rules when a transaction is written and persist the flags. */
+  private boolean enabled = true;
+
+  /**
+   * Serve suspicious reads from the persisted flags instead of re-running the rule views. Only
+   * transactions written while detection was enabled, or reached by the incremental scanner, are
+   * covered.
+   */
+  private boolean serveReadsFromFlags = false;
+}
@@ -0,0 +1,40 @@
+package com.remo.transaction_scanner.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.feed")
+public class FeedProperties {
+
+  /**
+   * Listen for outbox notifications on one dedicated primary pool connection. Without it every
+   * connected consumer polls the outbox at {@code pollInterval}.
+   */
+  private boolean listen = true;
+
+  /** Longest wait for new events between two outbox reads, notified or not. */
+  private Duration pollInterval = Duration.ofSeconds(1);
+
+  /**
+   * Connections served at once, each on a thread of the feed's own pool rather than the MVC async
+   * executor shared with the exports; further consumers get a 503 until one closes.
+   */
+  private int maxConsumers = 100;
+
+  /** Events read from the outbox and written to a consumer at once. */
+  private int batchSize = 500;
+
+  /** Idle time after which a comment is sent, so proxies keep the connection open. */
+  private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+  /**
+   * How long one connection is served before it is closed; the client reconnects with {@code
+   * Last-Event-ID}. Keep it below {@code spring.mvc.async.request-timeout}.
+   */
+  private Duration maxConnectionDuration = Duration.ofMinutes(5);
+
+  /** Outbox rows older than this are deleted; a consumer further behind resumes from the oldest. */
+  private Duration retention = Duration.ofDays(7);
+}
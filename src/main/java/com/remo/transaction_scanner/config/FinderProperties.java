@@ -0,0 +1,32 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.finder")
+public class FinderProperties {
+
+  /** How {@code SuspiciousTransactionFinder} queries the rule views. */
+  private FinderStrategy strategy = FinderStrategy.SINGLE_QUERY;
+
+  /** Page size used by paginated reads when the caller does not give one. */
+  private int defaultPageSize = 50;
+
+  /** Largest page size a caller may request. */
+  private int maxPageSize = 500;
+
+  /** Rows the driver fetches per round-trip when streaming a full export. */
+  private int streamFetchSize = 500;
+
+  public enum FinderStrategy {
+    /** One statement over all rule views, merged and ordered by Postgres. */
+    SINGLE_QUERY,
+    /** One query per rule view, merged and sorted in Java. */
+    RULE_QUERIES,
+    /** One query per rule view run concurrently on virtual threads, merged and sorted in Java. */
+    PARALLEL_RULE_QUERIES,
+    /** One ordered read of the user's transactions, every {@code SuspiciousRule} in one pass. */
+    SINGLE_PASS
+  }
+}
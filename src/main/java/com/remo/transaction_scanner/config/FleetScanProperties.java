@@ -0,0 +1,31 @@
+package com.remo.transaction_scanner.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.fleet-scan")
+public class FleetScanProperties {
+
+  /**
+   * Shards reading slices of the range in parallel, each on its own virtual thread and read
+   * connection. Keep it below the read pool size so a scan leaves connections for other requests.
+   */
+  private int shards = 4;
+
+  /**
+   * Longest time slice a shard reads in one query. Shards read ahead of the client by at most
+   * {@code queueCapacity} rows, so they only all stay busy when a slice holds about that many.
+   */
+  private Duration sliceDuration = Duration.ofHours(1);
+
+  /** Rows each shard reads ahead of the merge; a scan holds at most {@code shards} times this. */
+  private int queueCapacity = 1000;
+
+  /** Range scanned back from 'to' when the caller gives no 'from'. */
+  private Duration defaultRange = Duration.ofHours(24);
+
+  /** Longest range a single scan may cover. */
+  private Duration maxRange = Duration.ofDays(7);
+}
@@ -0,0 +1,41 @@
+package com.remo.transaction_scanner.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.ingest")
+public class IngestionProperties {
+
+  /** Largest number of transactions accepted by a single batch request. */
+  private int maxBatchSize = 5000;
+
+  /** Number of rows sent to Postgres per JDBC batch. */
+  private int jdbcBatchSize = 1000;
+
+  /** Number of NDJSON records buffered before they are flushed to Postgres. */
+  private int streamChunkSize = 1000;
+
+  /** Longest NDJSON line accepted, in characters; longer lines are rejected as malformed. */
+  private int streamMaxLineLength = 8192;
+
+  /** How single posted transactions are committed. */
+  private IngestionMode mode = IngestionMode.DIRECT;
+
+  /** Largest number of posted transactions flushed in one group commit. */
+  private int groupCommitMaxBatchSize = 256;
+
+  /** Longest time the first transaction of a group commit waits for others to join it. */
+  private Duration groupCommitMaxWait = Duration.ofMillis(5);
+
+  /** Posted transactions that may wait for a group commit before callers block. */
+  private int groupCommitQueueCapacity = 10_000;
+
+  public enum IngestionMode {
+    /** Every posted transaction is saved and committed on the request thread. */
+    DIRECT,
+    /** Posted transactions are queued and committed together in micro-batches by one writer. */
+    GROUP_COMMIT
+  }
+}
@@ -0,0 +1,12 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.partitions")
+public class PartitionProperties {
+
+  /** Number of monthly transaction partitions kept created ahead of the current month. */
+  private int monthsAhead = 3;
+}
@@ -0,0 +1,23 @@
+package com.remo.transaction_scanner.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.read-replicas")
+public class ReadReplicaProperties {
+
+  /** JDBC URLs of the read replicas. Empty sends suspicious reads to the primary. */
+  private List<String> urls = new ArrayList<>();
+
+  /** Replica user; defaults to {@code spring.datasource.username}. */
+  private String username;
+
+  /** Replica password; defaults to {@code spring.datasource.password}. */
+  private String password;
+
+  /** Connections in each replica's pool. */
+  private int maximumPoolSize = 10;
+}
@@ -0,0 +1,54 @@
+package com.remo.transaction_scanner.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out replica connections round-robin, or primary connections when the current thread has
+ * pinned reads to the primary with {@link ReadRouting} or there are no replicas.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource
+    implements AutoCloseable {
+
+  private static final String PRIMARY = "primary";
+
+  private final List<DataSource> replicas;
+  private final int replicaCount;
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (int i = 0; i < replicas.size(); i++) {
+      targets.put(i, replicas.get(i));
+    }
+    this.replicas = replicas;
+    this.replicaCount = replicas.size();
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    setLenientFallback(false);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicaCount == 0 || ReadRouting.isPrimaryPinned()) {
+      return PRIMARY;
+    }
+    return Math.floorMod(next.getAndIncrement(), replicaCount);
+  }
+
+  /** Closes the replica pools; the primary is a bean of its own. */
+  @Override
+  public void close() throws Exception {
+    for (DataSource replica : replicas) {
+      if (replica instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+}
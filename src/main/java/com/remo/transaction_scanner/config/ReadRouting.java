@@ -0,0 +1,41 @@
+package com.remo.transaction_scanner.config;
+
+/**
+ * Per-thread switch that pins reads meant for the replicas to the primary, for callers that must
+ * see their own writes. The state does not follow work handed to other threads; code that fans out
+ * passes it on with {@link #pin(boolean)}.
+ */
+public final class ReadRouting {
+
+  private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+  private ReadRouting() {}
+
+  /** Restores the previous routing when closed. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  public static boolean isPrimaryPinned() {
+    return Boolean.TRUE.equals(PRIMARY.get());
+  }
+
+  public static Scope pinToPrimary() {
+    return pin(true);
+  }
+
+  /** Sets whether reads of the current thread go to the primary until the scope is closed. */
+  public static Scope pin(boolean primary) {
+    Boolean previous = PRIMARY.get();
+    PRIMARY.set(primary);
+    return () -> {
+      if (previous == null) {
+        PRIMARY.remove();
+      } else {
+        PRIMARY.set(previous);
+      }
+    };
+  }
+}
@@ -0,0 +1,15 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.rollups")
+public class RollupProperties {
+
+  /** Hourly rollup rows recounted in one transaction after the small amount changes. */
+  private int recountBatchSize = 1_000;
+
+  /** Most batches one run recounts, so a large recount leaves the scheduler to other tasks. */
+  private int recountMaxBatchesPerRun = 50;
+}
@@ -0,0 +1,21 @@
+package com.remo.transaction_scanner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.scanner")
+public class ScannerProperties {
+
+  /**
+   * Scan newly inserted transactions in the background and write their suspicious flags. Off by
+   * default: with write-time detection on, it would evaluate every row a second time.
+   */
+  private boolean enabled = false;
+
+  /** Transactions read, evaluated and committed with the watermark in one transaction. */
+  private int chunkSize = 5_000;
+
+  /** Chunks committed per run, so a backlog does not hold the scheduler thread until caught up. */
+  private int maxChunksPerRun = 20;
+}
@@ -0,0 +1,25 @@
+package com.remo.transaction_scanner.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction-scanner.cache")
+public class SuspiciousCacheProperties {
+
+  /** Cache each user's suspicious transaction list in front of the rule queries. */
+  private boolean enabled = true;
+
+  /** Most users kept in the cache; the least recently used ones are evicted beyond that. */
+  private long maxUsers = 10_000;
+
+  /** How long a cached list is served after it was loaded. */
+  private Duration ttl = Duration.ofSeconds(30);
+
+  /**
+   * Longest the read replicas are expected to lag. Lists read from a replica within this long of
+   * the user's last write are not cached.
+   */
+  private Duration replicaLag = Duration.ofSeconds(5);
+}
@@ -0,0 +1,65 @@
+package com.remo.transaction_scanner.controller;
+
+import com.remo.transaction_scanner.exception.RestErrorResponse;
+import com.remo.transaction_scanner.model.BackfillRequest;
+import com.remo.transaction_scanner.model.BackfillResponse;
+import com.remo.transaction_scanner.service.TransactionBackfillService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin/backfills")
+@Tag(name = "Backfill", description = "Bulk imports of historical transactions")
+public class BackfillController {
+
+  private final TransactionBackfillService backfillService;
+
+  @Autowired
+  public BackfillController(TransactionBackfillService backfillService) {
+    this.backfillService = backfillService;
+  }
+
+  @Operation(
+      summary = "Start or resume a backfill",
+      description =
+          "Imports a CSV or NDJSON file from the backfill directory with COPY in the background."
+              + " Posting an existing import id resumes it from its last checkpoint.")
+  @PostMapping
+  public ResponseEntity<?> startBackfill(@Valid @RequestBody BackfillRequest request) {
+    try {
+      return new ResponseEntity<>(backfillService.start(request), HttpStatus.ACCEPTED);
+
+    } catch (IllegalArgumentException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", e.getMessage());
+      return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    } catch (IllegalStateException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.CONFLICT.value(), "CONFLICT", e.getMessage());
+      return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    } catch (Exception e) {
+      RestErrorResponse error =
+          new RestErrorResponse(
+              HttpStatus.INTERNAL_SERVER_ERROR.value(),
+              "UNKNOWN_ERROR",
+              "An unexpected error occurred. Please try again later.");
+      return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  @Operation(
+      summary = "Get backfill progress",
+      description = "Lines read, rows imported and rejected, and the current rows per second.")
+  @GetMapping("/{importId}")
+  public ResponseEntity<BackfillResponse> getBackfill(@PathVariable String importId) {
+    return backfillService
+        .status(importId)
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+}
@@ -0,0 +1,34 @@
+package com.remo.transaction_scanner.controller;
+
+import com.remo.transaction_scanner.config.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Pins the reads of a request to the primary when it carries {@code X-Read-From: primary}, so a
+ * client can read its own writes without waiting for the replicas to catch up.
+ */
+@Component
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "X-Read-From";
+  public static final String PRIMARY = "primary";
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!PRIMARY.equalsIgnoreCase(request.getHeader(HEADER))) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    try (ReadRouting.Scope routing = ReadRouting.pinToPrimary()) {
+      filterChain.doFilter(request, response);
+    }
+  }
+}
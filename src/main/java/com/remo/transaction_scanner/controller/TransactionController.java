@@ -1,30 +1,70 @@
 package com.remo.transaction_scanner.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remo.transaction_scanner.config.ReadRouting;
 import com.remo.transaction_scanner.exception.RestErrorResponse;
+import com.remo.transaction_scanner.model.CacheStatsResponse;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousTransactionPage;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
 import com.remo.transaction_scanner.model.TransactionRequest;
 import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionStreamEvent;
+import com.remo.transaction_scanner.service.SuspiciousFleetScanner;
 import com.remo.transaction_scanner.service.TransactionScannerService;
+import com.remo.transaction_scanner.service.TransactionStreamIngestionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.PersistenceException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1")
 @Tag(name = "Transaction Management", description = "Endpoints for managing transactions")
 public class TransactionController {
 
+  // How long a client waits before reconnecting after the server closed the feed.
+  private static final long FEED_RETRY_MILLIS = 1_000;
+
   private final TransactionScannerService transactionService;
+  private final TransactionStreamIngestionService transactionStreamIngestionService;
+  private final ObjectMapper objectMapper;
 
   @Autowired
-  public TransactionController(TransactionScannerService transactionService) {
+  public TransactionController(
+      TransactionScannerService transactionService,
+      TransactionStreamIngestionService transactionStreamIngestionService,
+      ObjectMapper objectMapper) {
     this.transactionService = transactionService;
+    this.transactionStreamIngestionService = transactionStreamIngestionService;
+    this.objectMapper = objectMapper;
   }
 
   @Operation(summary = "Post a transaction", description = "Posts transaction.")
@@ -58,20 +98,85 @@ public class TransactionController {
     }
   }
 
+  @Operation(
+      summary = "Post a batch of transactions",
+      description =
+          "Posts many transactions through one batched insert and returns a result per item.")
+  @PostMapping("/transactions/batch")
+  public ResponseEntity<?> postTransactions(@RequestBody List<TransactionRequest> transactions) {
+    try {
+      TransactionBatchResponse batchResponse = transactionService.saveTransactions(transactions);
+      HttpStatus status =
+          batchResponse.getAccepted() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+      return new ResponseEntity<>(batchResponse, status);
+
+    } catch (IllegalArgumentException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", e.getMessage());
+      return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    } catch (DataIntegrityViolationException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(
+              HttpStatus.BAD_REQUEST.value(),
+              "INVALID_REQUEST",
+              "The transaction data is invalid or violates integrity constraints.");
+      return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    } catch (Exception e) {
+      RestErrorResponse error =
+          new RestErrorResponse(
+              HttpStatus.INTERNAL_SERVER_ERROR.value(),
+              "UNKNOWN_ERROR",
+              "An unexpected error occurred. Please try again later.");
+      return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  @Operation(
+      summary = "Stream transactions as NDJSON",
+      description =
+          "Ingests a newline-delimited JSON stream of transactions in bounded chunks and streams"
+              + " back rejections, progress and a final summary as NDJSON.")
+  @PostMapping(
+      value = "/transactions/stream",
+      consumes = MediaType.APPLICATION_NDJSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void streamTransactions(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    OutputStream out = response.getOutputStream();
+
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+    transactionStreamIngestionService.ingest(reader, event -> writeEvent(out, event));
+  }
+
   @Operation(
       summary = "Get suspicious transactions for a user",
-      description = "Retrieves all suspicious transactions for the given user ID.")
+      description =
+          "Retrieves all suspicious transactions for the given user ID. Optional 'from' and 'to'"
+              + " (UTC, ISO-8601) restrict the result to timestamps in [from, to).")
   @GetMapping("/users/{userId}/transactions/suspicious")
   public ResponseEntity<List<TransactionResponse>> getSuspiciousTransactions(
-      @PathVariable String userId) {
+      @PathVariable String userId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to) {
     try {
       List<TransactionResponse> suspiciousTransactions =
-          transactionService.getSuspiciousTransactions(userId);
+          from == null && to == null
+              ? transactionService.getSuspiciousTransactions(userId)
+              : transactionService.getSuspiciousTransactions(userId, from, to);
 
       if (suspiciousTransactions.isEmpty()) {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
       }
       return new ResponseEntity<>(suspiciousTransactions, HttpStatus.OK);
+    } catch (IllegalArgumentException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", e.getMessage());
+      return new ResponseEntity(error, HttpStatus.BAD_REQUEST);
     } catch (DataIntegrityViolationException e) {
       RestErrorResponse error =
           new RestErrorResponse(
@@ -95,4 +200,207 @@ public class TransactionController {
       return new ResponseEntity(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
   }
+
+  @Operation(
+      summary = "Get a page of suspicious transactions for a user",
+      description =
+          "Retrieves suspicious transactions newest first, one page at a time. Pass the returned"
+              + " nextCursor as 'cursor' to read the following page.")
+  @GetMapping("/users/{userId}/transactions/suspicious/page")
+  public ResponseEntity<?> getSuspiciousTransactionPage(
+      @PathVariable String userId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit) {
+    try {
+      SuspiciousTransactionPage page =
+          transactionService.getSuspiciousTransactionPage(userId, cursor, limit);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+
+    } catch (IllegalArgumentException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", e.getMessage());
+      return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    } catch (Exception e) {
+      RestErrorResponse error =
+          new RestErrorResponse(
+              HttpStatus.INTERNAL_SERVER_ERROR.value(),
+              "UNKNOWN_ERROR",
+              "An unexpected error occurred. Please try again later.");
+      return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  @Operation(
+      summary = "Export all suspicious transactions for a user",
+      description =
+          "Streams every suspicious transaction for the given user ID as a JSON array, newest"
+              + " first, writing rows as they are read from the database.")
+  @GetMapping(
+      value = "/users/{userId}/transactions/suspicious/export",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportSuspiciousTransactions(
+      @PathVariable String userId) {
+    StreamingResponseBody body =
+        jsonArrayBody(sink -> transactionService.streamSuspiciousTransactions(userId, sink));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  @Operation(
+      summary = "Export the suspicious transactions of every user",
+      description =
+          "Streams the suspicious transactions of all users with a timestamp in [from, to) (UTC,"
+              + " ISO-8601) as a JSON array, oldest first. 'to' defaults to now and 'from' to 24"
+              + " hours before 'to'.")
+  @GetMapping(
+      value = "/transactions/suspicious/export",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> exportAllSuspiciousTransactions(
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to) {
+    // Checked before streaming starts, while the status can still be a 400.
+    SuspiciousFleetScanner.Range range;
+    try {
+      range = transactionService.fleetScanRange(from, to);
+    } catch (IllegalArgumentException e) {
+      RestErrorResponse error =
+          new RestErrorResponse(HttpStatus.BAD_REQUEST.value(), "INVALID_REQUEST", e.getMessage());
+      return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    StreamingResponseBody body =
+        jsonArrayBody(sink -> transactionService.scanSuspiciousTransactions(range, sink));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  @Operation(
+      summary = "Follow newly detected suspicious transactions",
+      description =
+          "Streams every new suspicious flag of every user as Server-Sent Events, once each, in"
+              + " offset order. Each event id is a feed offset: reconnect with it as Last-Event-ID"
+              + " (or 'after') to resume where the previous connection stopped. Without one the"
+              + " feed starts at the current end. The server closes the stream periodically.")
+  @GetMapping("/transactions/suspicious/feed")
+  public ResponseEntity<SseEmitter> followSuspiciousTransactions(
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+      @RequestParam(required = false) String after,
+      HttpServletResponse response)
+      throws IOException {
+    // Checked before streaming starts, while the status can still be a 400. A reconnecting
+    // EventSource keeps the original URL, so its Last-Event-ID wins over 'after'.
+    FeedOffset offset;
+    try {
+      offset = transactionService.suspiciousFeedOffset(lastEventId != null ? lastEventId : after);
+    } catch (IllegalArgumentException e) {
+      writeError(response, HttpStatus.BAD_REQUEST, "INVALID_REQUEST", e.getMessage());
+      return null;
+    }
+
+    // Served on a feed thread rather than the MVC async executor, which the exports need.
+    // Events sent before the emitter is returned are buffered until the response starts.
+    SseEmitter emitter = new SseEmitter();
+    sendSse(emitter, SseEmitter.event().reconnectTime(FEED_RETRY_MILLIS).build());
+    try {
+      transactionService
+          .streamSuspiciousFeed(
+              offset,
+              events -> sendFeedEvents(emitter, events),
+              () -> sendSse(emitter, SseEmitter.event().comment("keepalive").build()))
+          .whenComplete(
+              (last, error) -> {
+                if (error != null) {
+                  emitter.completeWithError(error);
+                } else {
+                  emitter.complete();
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      writeError(
+          response,
+          HttpStatus.SERVICE_UNAVAILABLE,
+          "FEED_BUSY",
+          "Too many suspicious feed consumers, retry later.");
+      return null;
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.TEXT_EVENT_STREAM)
+        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .body(emitter);
+  }
+
+  @Operation(
+      summary = "Get suspicious transaction cache statistics",
+      description =
+          "Hit and miss counts and ratios of the per-user suspicious transaction cache on this"
+              + " instance.")
+  @GetMapping("/stats/suspicious-cache")
+  public ResponseEntity<CacheStatsResponse> getSuspiciousCacheStats() {
+    return new ResponseEntity<>(transactionService.getSuspiciousCacheStats(), HttpStatus.OK);
+  }
+
+  // Writes the transactions handed to the sink as one JSON array, as they come.
+  private StreamingResponseBody jsonArrayBody(Consumer<Consumer<TransactionResponse>> rows) {
+    // The body is written on an async thread, which does not see this request's read routing.
+    boolean primaryPinned = ReadRouting.isPrimaryPinned();
+    return out -> {
+      try (ReadRouting.Scope routing = ReadRouting.pin(primaryPinned);
+          JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.writeStartArray();
+        rows.accept(transaction -> writeValue(generator, transaction));
+        generator.writeEndArray();
+      }
+    };
+  }
+
+  private void sendFeedEvents(SseEmitter emitter, List<SuspiciousFeedEvent> events) {
+    Set<ResponseBodyEmitter.DataWithMediaType> frames = new LinkedHashSet<>();
+    for (SuspiciousFeedEvent event : events) {
+      frames.addAll(
+          SseEmitter.event()
+              .id(event.getOffset().encode())
+              .name("suspicious")
+              .data(event, MediaType.APPLICATION_JSON)
+              .build());
+    }
+    sendSse(emitter, frames);
+  }
+
+  // Sends the frames as one write and flush, so a client that went away fails the send and ends
+  // the stream.
+  private void sendSse(SseEmitter emitter, Set<ResponseBodyEmitter.DataWithMediaType> frames) {
+    try {
+      emitter.send(frames);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // For errors found before a streaming response starts, when the handler writes it directly.
+  private void writeError(
+      HttpServletResponse response, HttpStatus status, String error, String message)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(
+        response.getOutputStream(), new RestErrorResponse(status.value(), error, message));
+  }
+
+  private void writeEvent(OutputStream out, TransactionStreamEvent event) {
+    try {
+      out.write(objectMapper.writeValueAsBytes(event));
+      out.write('\n');
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeValue(JsonGenerator generator, Object value) {
+    try {
+      objectMapper.writeValue(generator, value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -1,7 +1,9 @@
 package com.remo.transaction_scanner.exception;
 
+import com.remo.transaction_scanner.service.TransactionScannerMetrics;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -11,9 +13,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class RestExceptionHandler {
 
+  private final TransactionScannerMetrics metrics;
+
+  @Autowired
+  public RestExceptionHandler(TransactionScannerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Map<String, String>> handleValidationExceptions(
       MethodArgumentNotValidException ex) {
+    metrics.rejected("validation");
     Map<String, String> errors = new HashMap<>();
 
     ex.getBindingResult()
@@ -0,0 +1,8 @@
+package com.remo.transaction_scanner.model;
+
+public enum BackfillFormat {
+  /** {@code user_id,amount,transaction_type,timestamp} per line, with an optional header. */
+  CSV,
+  /** One {@code {"userId", "amount", "transactionType", "timestamp"}} object per line. */
+  NDJSON
+}
@@ -0,0 +1,26 @@
+package com.remo.transaction_scanner.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillRequest {
+
+  /** Names the import; posting the same id again resumes it from its checkpoint. */
+  @NotBlank(message = "Import id must not be blank")
+  private String importId;
+
+  /** File to import, relative to the backfill directory. */
+  @NotBlank(message = "File must not be blank")
+  private String file;
+
+  @NotNull(message = "Format must not be null")
+  private BackfillFormat format;
+}
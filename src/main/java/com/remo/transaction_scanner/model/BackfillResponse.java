@@ -0,0 +1,27 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackfillResponse {
+  private String importId;
+  private String file;
+  private BackfillFormat format;
+  private BackfillStatus status;
+  private long linesRead;
+  private long rowsImported;
+  private long rowsRejected;
+
+  /** Rows imported per second by the run in progress or the last run of this instance. */
+  private Double rowsPerSecond;
+
+  private String message;
+}
@@ -0,0 +1,7 @@
+package com.remo.transaction_scanner.model;
+
+public enum BackfillStatus {
+  RUNNING,
+  COMPLETED,
+  FAILED
+}
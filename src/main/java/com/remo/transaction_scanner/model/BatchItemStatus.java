@@ -0,0 +1,6 @@
+package com.remo.transaction_scanner.model;
+
+public enum BatchItemStatus {
+  ACCEPTED,
+  REJECTED
+}
@@ -0,0 +1,19 @@
+package com.remo.transaction_scanner.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsResponse {
+  private long hits;
+  private long misses;
+  private double hitRatio;
+  private double missRatio;
+  private long evictions;
+  private long size;
+}
@@ -0,0 +1,194 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts as a {@code long} number of cents, the internal representation of transaction amounts.
+ *
+ * <p>Amounts are stored as {@code NUMERIC(12, 2)}, so a decimal amount rounds half up to whole
+ * cents exactly as Postgres rounds it on insert. {@link Serializer} and {@link Deserializer} map
+ * the {@code amount} JSON number to and from cents without going through {@link BigDecimal}.
+ */
+public final class Cents {
+
+  /** Largest amount {@code NUMERIC(12, 2)} holds, 9,999,999,999.99. */
+  public static final long MAX_NUMERIC_12_2 = 999_999_999_999L;
+
+  // Longer fractions or integer parts are handed to BigDecimal, which never overflows silently.
+  private static final int MAX_FAST_INTEGER_DIGITS = 16;
+
+  private static final ThreadLocal<char[]> FORMAT_BUFFER =
+      ThreadLocal.withInitial(() -> new char[24]);
+
+  private Cents() {}
+
+  /** Rounds {@code amount} half up to cents. */
+  public static long of(BigDecimal amount) {
+    return of(amount, RoundingMode.HALF_UP);
+  }
+
+  /**
+   * Rounds {@code amount} to cents with {@code rounding}, e.g. {@code FLOOR} for an "at most"
+   * threshold so comparing whole cents against it gives the same answer as comparing decimals.
+   *
+   * @throws ArithmeticException if the amount does not fit in a {@code long} of cents
+   */
+  public static long of(BigDecimal amount, RoundingMode rounding) {
+    return amount.setScale(2, rounding).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toDecimal(long cents) {
+    return BigDecimal.valueOf(cents, 2);
+  }
+
+  /** Parses a decimal amount such as {@code 12}, {@code 0.5} or {@code 1.005}, rounding half up. */
+  public static long parse(String text) {
+    return parse(text.toCharArray(), 0, text.length());
+  }
+
+  /**
+   * Parses the decimal in {@code chars[offset, offset + length)}, rounding half up.
+   *
+   * @throws NumberFormatException if it is not a decimal number
+   * @throws ArithmeticException if it does not fit in a {@code long} of cents
+   */
+  public static long parse(char[] chars, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    boolean negative = false;
+    if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+      negative = chars[i] == '-';
+      i++;
+    }
+
+    long whole = 0;
+    int integerDigits = 0;
+    while (i < end && isDigit(chars[i])) {
+      whole = whole * 10 + (chars[i] - '0');
+      integerDigits++;
+      i++;
+    }
+
+    long fraction = 0;
+    int fractionDigits = 0;
+    boolean roundUp = false;
+    if (i < end && chars[i] == '.') {
+      i++;
+      while (i < end && isDigit(chars[i])) {
+        if (fractionDigits < 2) {
+          fraction = fraction * 10 + (chars[i] - '0');
+        } else if (fractionDigits == 2) {
+          roundUp = chars[i] >= '5';
+        }
+        fractionDigits++;
+        i++;
+      }
+    }
+
+    if (i < end || integerDigits + fractionDigits == 0) {
+      // Exponents and anything else unusual go through BigDecimal, which also rejects garbage.
+      return of(new BigDecimal(chars, offset, length));
+    }
+    if (integerDigits > MAX_FAST_INTEGER_DIGITS) {
+      return of(new BigDecimal(chars, offset, length));
+    }
+
+    if (fractionDigits == 1) {
+      fraction *= 10;
+    }
+    long cents = whole * 100 + fraction + (roundUp ? 1 : 0);
+    return negative ? -cents : cents;
+  }
+
+  /** Appends {@code cents} as a decimal with two fraction digits, e.g. {@code 1234} as 12.34. */
+  public static StringBuilder append(StringBuilder out, long cents) {
+    char[] buffer = FORMAT_BUFFER.get();
+    return out.append(buffer, 0, format(cents, buffer));
+  }
+
+  public static String toString(long cents) {
+    char[] buffer = new char[24];
+    return new String(buffer, 0, format(cents, buffer));
+  }
+
+  /** Writes {@code cents} as a decimal into {@code buffer} and returns the number of chars. */
+  static int format(long cents, char[] buffer) {
+    // Long.MIN_VALUE has no positive counterpart; it is not an amount anyway.
+    if (cents == Long.MIN_VALUE) {
+      throw new ArithmeticException("Amount out of range");
+    }
+    boolean negative = cents < 0;
+    long value = Math.abs(cents);
+    int position = buffer.length;
+    buffer[--position] = (char) ('0' + value % 10);
+    value /= 10;
+    buffer[--position] = (char) ('0' + value % 10);
+    value /= 10;
+    buffer[--position] = '.';
+    do {
+      buffer[--position] = (char) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    if (negative) {
+      buffer[--position] = '-';
+    }
+    int length = buffer.length - position;
+    System.arraycopy(buffer, position, buffer, 0, length);
+    return length;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** Writes cents as the JSON number of the amount, e.g. {@code 1234} as {@code 12.34}. */
+  public static final class Serializer extends StdScalarSerializer<Long> {
+
+    public Serializer() {
+      super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long cents, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+      char[] buffer = FORMAT_BUFFER.get();
+      generator.writeNumber(buffer, 0, format(cents, buffer));
+    }
+  }
+
+  /** Reads a JSON number (or numeric string) amount as cents, rounding half up. */
+  public static final class Deserializer extends StdScalarDeserializer<Long> {
+
+    public Deserializer() {
+      super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      JsonToken token = parser.currentToken();
+      if (token != JsonToken.VALUE_NUMBER_INT
+          && token != JsonToken.VALUE_NUMBER_FLOAT
+          && token != JsonToken.VALUE_STRING) {
+        return (Long) context.handleUnexpectedToken(Long.class, parser);
+      }
+      try {
+        return parse(
+            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+      } catch (NumberFormatException | ArithmeticException e) {
+        throw InvalidFormatException.from(
+            parser, "Not a valid amount", parser.getText(), Long.class);
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.remo.transaction_scanner.model;
+
+import lombok.Value;
+
+/**
+ * Position in the suspicious feed, after the outbox row with this {@code (txId, id)}. Passed to
+ * clients as the event id, {@code <txId>-<id>}, and read back from {@code Last-Event-ID}.
+ */
+@Value
+public class FeedOffset {
+
+  long txId;
+  long id;
+
+  public String encode() {
+    return txId + "-" + id;
+  }
+
+  public static FeedOffset decode(String token) {
+    try {
+      int separator = token.indexOf('-');
+      FeedOffset offset =
+          new FeedOffset(
+              Long.parseLong(token.substring(0, separator)),
+              Long.parseLong(token.substring(separator + 1)));
+      if (offset.txId < 0 || offset.id < 0) {
+        throw new IllegalArgumentException();
+      }
+      return offset;
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid feed offset.");
+    }
+  }
+}
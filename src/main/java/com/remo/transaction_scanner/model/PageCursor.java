@@ -0,0 +1,40 @@
+package com.remo.transaction_scanner.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import lombok.Value;
+
+/**
+ * Position of the last transaction of a page in {@code (timestamp desc, id desc)} order, passed to
+ * clients as an opaque URL-safe token.
+ */
+@Value
+public class PageCursor {
+
+  /** Sorts before every stored transaction, used to read the first page. */
+  public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0), 0);
+
+  LocalDateTime timestamp;
+  long id;
+
+  public String encode() {
+    String raw = timestamp + "|" + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static PageCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = raw.lastIndexOf('|');
+      return new PageCursor(
+          LocalDateTime.parse(raw.substring(0, separator)),
+          Long.parseLong(raw.substring(separator + 1)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid page cursor.");
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.remo.transaction_scanner.model;
+
+import lombok.Value;
+
+/** Published when the rule thresholds in {@code suspicious_transaction_configuration} change. */
+@Value
+public class RuleConfigurationChangedEvent {
+  SuspiciousRuleConfiguration previous;
+  SuspiciousRuleConfiguration current;
+}
@@ -0,0 +1,8 @@
+package com.remo.transaction_scanner.model;
+
+public enum StreamEventType {
+  REJECTED,
+  PROGRESS,
+  SUMMARY,
+  ERROR
+}
@@ -0,0 +1,24 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.sql.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A suspicious flag as delivered by the suspicious feed. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuspiciousFeedEvent {
+
+  // Sent as the SSE event id rather than in the payload.
+  @JsonIgnore private FeedOffset offset;
+
+  private long transactionId;
+  private String userId;
+  private Timestamp timestamp;
+  private SuspiciousReason reason;
+}
@@ -1,7 +1,15 @@
 package com.remo.transaction_scanner.model;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
 public enum SuspiciousReason {
-  HIGH_VOLUME_TRANSACTION,
-  FREQUENT_SMALL_TRANSACTION,
-  RAPID_TRANSFER
+  HIGH_VOLUME_TRANSACTION("High volume transaction"),
+  FREQUENT_SMALL_TRANSACTION("Frequent transaction"),
+  RAPID_TRANSFER("Rapid transaction");
+
+  /** Human readable reason returned to API consumers. */
+  private final String description;
 }
@@ -0,0 +1,52 @@
+package com.remo.transaction_scanner.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/** Thresholds of the suspicious rules, loaded from {@code suspicious_transaction_configuration}. */
+@Value
+public class SuspiciousRuleConfiguration {
+
+  /** Small transactions in one clock hour from which they are all frequent. */
+  int frequentThreshold;
+
+  /** Amounts at or below this are small transactions for the frequent rule. */
+  BigDecimal smallTransactionAmount;
+
+  /** Amounts at or above this are high volume transactions. */
+  BigDecimal highVolumeAmount;
+
+  /** Length of the trailing window of the rapid rule. */
+  Duration rapidWindow;
+
+  /** Transactions in the rapid window, the current one included, from which it is rapid. */
+  int rapidThreshold;
+
+  /**
+   * {@link #smallTransactionAmount} rounded down to cents, so {@code amountCents <= it} matches the
+   * decimal comparison for any amount in whole cents.
+   */
+  long smallTransactionCents;
+
+  /** {@link #highVolumeAmount} rounded up to cents, the counterpart for {@code >=}. */
+  long highVolumeCents;
+
+  @Builder
+  public SuspiciousRuleConfiguration(
+      int frequentThreshold,
+      BigDecimal smallTransactionAmount,
+      BigDecimal highVolumeAmount,
+      Duration rapidWindow,
+      int rapidThreshold) {
+    this.frequentThreshold = frequentThreshold;
+    this.smallTransactionAmount = smallTransactionAmount;
+    this.highVolumeAmount = highVolumeAmount;
+    this.rapidWindow = rapidWindow;
+    this.rapidThreshold = rapidThreshold;
+    this.smallTransactionCents = Cents.of(smallTransactionAmount, RoundingMode.FLOOR);
+    this.highVolumeCents = Cents.of(highVolumeAmount, RoundingMode.CEILING);
+  }
+}
@@ -0,0 +1,19 @@
+package com.remo.transaction_scanner.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuspiciousTransactionPage {
+  @Builder.Default private List<TransactionResponse> transactions = new ArrayList<>();
+
+  /** Cursor for the next page, or null when this is the last page. */
+  private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.remo.transaction_scanner.model;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchItemResult {
+  private int index;
+  private BatchItemStatus status;
+  private TransactionResponse transaction;
+  private Map<String, String> errors;
+}
@@ -0,0 +1,18 @@
+package com.remo.transaction_scanner.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchResponse {
+  private int accepted;
+  private int rejected;
+  @Builder.Default private List<TransactionBatchItemResult> results = new ArrayList<>();
+}
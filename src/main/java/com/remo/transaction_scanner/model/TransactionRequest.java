@@ -1,8 +1,10 @@
 package com.remo.transaction_scanner.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import java.math.BigDecimal;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,9 +16,16 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class TransactionRequest {
 
+  /**
+   * Amount in cents. JSON carries the decimal amount, rounded half up to cents like the {@code
+   * NUMERIC(12, 2)} column rounds it.
+   */
   @NotNull(message = "Amount must not be null")
   @Positive(message = "Amount must be positive")
-  private BigDecimal amount;
+  @Max(value = Cents.MAX_NUMERIC_12_2, message = "Amount must not exceed 9999999999.99")
+  @JsonSerialize(using = Cents.Serializer.class)
+  @JsonDeserialize(using = Cents.Deserializer.class)
+  private Long amount;
 
   @NotNull(message = "UserId cant be null")
   private String userId;
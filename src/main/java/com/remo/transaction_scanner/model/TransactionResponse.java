@@ -1,6 +1,8 @@
 package com.remo.transaction_scanner.model;
 
-import java.math.BigDecimal;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,7 +18,13 @@ import lombok.NoArgsConstructor;
 public class TransactionResponse {
   private long id;
   private String userId;
-  private BigDecimal amount;
+
+  /** Amount in cents, written to and read from JSON as the decimal {@code amount}. */
+  @JsonProperty("amount")
+  @JsonSerialize(using = Cents.Serializer.class)
+  @JsonDeserialize(using = Cents.Deserializer.class)
+  private long amountCents;
+
   private Timestamp timestamp;
   private Boolean suspicious;
   private TransactionType transactionType;
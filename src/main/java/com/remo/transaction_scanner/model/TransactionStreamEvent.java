@@ -0,0 +1,22 @@
+package com.remo.transaction_scanner.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionStreamEvent {
+  private StreamEventType event;
+  private Long line;
+  private Long accepted;
+  private Long rejected;
+  private Map<String, String> errors;
+  private String message;
+}
@@ -0,0 +1,113 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.model.BackfillFormat;
+import com.remo.transaction_scanner.model.BackfillResponse;
+import com.remo.transaction_scanner.model.BackfillStatus;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/** Bulk loads transactions with {@code COPY} and keeps the checkpoints of the imports. */
+@Repository
+public class BackfillRepository {
+
+  private static final String COPY_SQL =
+      "COPY transaction_scanner.transactions (user_id, amount, transaction_type, timestamp) FROM STDIN WITH (FORMAT csv)";
+
+  private static final String FIND_CHECKPOINT_SQL =
+      "SELECT import_id, file, format, status, lines_read, rows_imported, rows_rejected, message FROM transaction_scanner.backfill_checkpoints WHERE import_id = ?";
+
+  private static final String SAVE_CHECKPOINT_SQL =
+      """
+      INSERT INTO transaction_scanner.backfill_checkpoints
+          (import_id, file, format, status, lines_read, rows_imported, rows_rejected, message, updated_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, now())
+      ON CONFLICT (import_id) DO UPDATE
+      SET file = EXCLUDED.file,
+          format = EXCLUDED.format,
+          status = EXCLUDED.status,
+          lines_read = EXCLUDED.lines_read,
+          rows_imported = EXCLUDED.rows_imported,
+          rows_rejected = EXCLUDED.rows_rejected,
+          message = EXCLUDED.message,
+          updated_at = now()
+      WHERE backfill_checkpoints.lines_read = ?
+      """;
+
+  private static final RowMapper<BackfillResponse> checkpointRowMapper =
+      (rs, rowNum) ->
+          BackfillResponse.builder()
+              .importId(rs.getString("import_id"))
+              .file(rs.getString("file"))
+              .format(BackfillFormat.valueOf(rs.getString("format")))
+              .status(BackfillStatus.valueOf(rs.getString("status")))
+              .linesRead(rs.getLong("lines_read"))
+              .rowsImported(rs.getLong("rows_imported"))
+              .rowsRejected(rs.getLong("rows_rejected"))
+              .message(rs.getString("message"))
+              .build();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public BackfillRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Streams {@code csv} ({@code user_id,amount,transaction_type,timestamp} rows) into {@code
+   * transactions} with one {@code COPY}, on the connection of the current transaction if there is
+   * one.
+   *
+   * @return the number of rows copied
+   */
+  public long copyTransactions(Reader csv) {
+    Long copied =
+        jdbcTemplate.execute(
+            (ConnectionCallback<Long>)
+                con -> {
+                  try {
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, csv);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return copied != null ? copied : 0;
+  }
+
+  public Optional<BackfillResponse> findCheckpoint(String importId) {
+    List<BackfillResponse> checkpoints =
+        jdbcTemplate.query(FIND_CHECKPOINT_SQL, checkpointRowMapper, importId);
+    return checkpoints.stream().findFirst();
+  }
+
+  /**
+   * Saves {@code checkpoint} unless the stored checkpoint of the import is no longer at {@code
+   * expectedLinesRead}, i.e. another run of the same import moved it since it was read. The update
+   * locks the row, so of two runs advancing it from the same line, only the first one succeeds.
+   *
+   * @return false if another run moved the checkpoint and nothing was saved
+   */
+  public boolean saveCheckpoint(BackfillResponse checkpoint, long expectedLinesRead) {
+    return jdbcTemplate.update(
+            SAVE_CHECKPOINT_SQL,
+            checkpoint.getImportId(),
+            checkpoint.getFile(),
+            checkpoint.getFormat().name(),
+            checkpoint.getStatus().name(),
+            checkpoint.getLinesRead(),
+            checkpoint.getRowsImported(),
+            checkpoint.getRowsRejected(),
+            checkpoint.getMessage(),
+            expectedLinesRead)
+        > 0;
+  }
+}
@@ -0,0 +1,126 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.repository.model.RollupRecount;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/** Recounts the small counts of {@code user_hourly_rollups} in batches and keeps the progress. */
+@Repository
+public class RollupRecountRepository {
+
+  /** The key of an hourly rollup row. */
+  public record Hour(String userId, Timestamp hourBucket) {}
+
+  // SKIP LOCKED so that when several instances run the recount only one of them works at a time.
+  private static final String LOCK_SQL =
+      "SELECT small_transaction_amount, after_user_id, after_hour_bucket, wait_xmax, completed, transaction_scanner.small_transaction_amount() AS configured_amount FROM transaction_scanner.rollup_recounts WHERE id = 1 FOR UPDATE SKIP LOCKED";
+
+  private static final String SAVE_SQL =
+      "UPDATE transaction_scanner.rollup_recounts SET small_transaction_amount = ?, after_user_id = ?, after_hour_bucket = ?, wait_xmax = ?, completed = ?, updated_at = now() WHERE id = 1";
+
+  private static final String SNAPSHOT_SQL =
+      "SELECT pg_snapshot_xmin(s)::text::bigint AS xmin, pg_snapshot_xmax(s)::text::bigint AS xmax FROM pg_current_snapshot() s";
+
+  // Locked in the order the insert triggers upsert them, so the two cannot deadlock.
+  private static final String LOCK_FIRST_HOURS_SQL =
+      "SELECT user_id, hour_bucket FROM transaction_scanner.user_hourly_rollups ORDER BY user_id, hour_bucket LIMIT ? FOR UPDATE";
+
+  private static final String LOCK_NEXT_HOURS_SQL =
+      "SELECT user_id, hour_bucket FROM transaction_scanner.user_hourly_rollups WHERE (user_id, hour_bucket) > (?, ?) ORDER BY user_id, hour_bucket LIMIT ? FOR UPDATE";
+
+  // Runs as its own statement after the rows are locked, so its snapshot includes every insert
+  // that had counted into them, and none can add to them until the batch commits.
+  private static final String RECOUNT_SQL =
+      """
+      UPDATE transaction_scanner.user_hourly_rollups r
+      SET small_transaction_count = (
+          SELECT count(*)
+          FROM transaction_scanner.transactions t
+          WHERE t.user_id = r.user_id
+            AND t.timestamp >= r.hour_bucket
+            AND t.timestamp < r.hour_bucket + INTERVAL '1 hour'
+            AND t.amount <= ?)
+      WHERE (r.user_id, r.hour_bucket) >= (?, ?)
+        AND (r.user_id, r.hour_bucket) <= (?, ?)
+      """;
+
+  private static final RowMapper<RollupRecount> recountRowMapper =
+      (rs, rowNum) ->
+          RollupRecount.builder()
+              .smallTransactionAmount(rs.getBigDecimal("small_transaction_amount"))
+              .afterUserId(rs.getString("after_user_id"))
+              .afterHourBucket(rs.getTimestamp("after_hour_bucket"))
+              .waitXmax(rs.getObject("wait_xmax", Long.class))
+              .completed(rs.getBoolean("completed"))
+              .configuredAmount(rs.getBigDecimal("configured_amount"))
+              .build();
+
+  private static final RowMapper<Hour> hourRowMapper =
+      (rs, rowNum) -> new Hour(rs.getString("user_id"), rs.getTimestamp("hour_bucket"));
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public RollupRecountRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Locks the recount row until the current transaction ends. Empty when another transaction holds
+   * it.
+   */
+  public Optional<RollupRecount> lock() {
+    return jdbcTemplate.query(LOCK_SQL, recountRowMapper).stream().findFirst();
+  }
+
+  public void save(RollupRecount recount) {
+    jdbcTemplate.update(
+        SAVE_SQL,
+        recount.getSmallTransactionAmount(),
+        recount.getAfterUserId(),
+        recount.getAfterHourBucket(),
+        recount.getWaitXmax(),
+        recount.isCompleted());
+  }
+
+  /**
+   * The {@code xmin} and {@code xmax} of the current snapshot: every transaction id below {@code
+   * xmin} has ended, and every one handed out so far is below {@code xmax}.
+   */
+  public long[] snapshotBounds() {
+    return jdbcTemplate.queryForObject(
+        SNAPSHOT_SQL, (rs, rowNum) -> new long[] {rs.getLong("xmin"), rs.getLong("xmax")});
+  }
+
+  /**
+   * Locks up to {@code limit} rollup rows after {@code after} in key order, or from the first when
+   * it is null, until the current transaction ends, and returns their keys.
+   */
+  public List<Hour> lockHours(Hour after, int limit) {
+    if (after == null) {
+      return jdbcTemplate.query(LOCK_FIRST_HOURS_SQL, hourRowMapper, limit);
+    }
+    return jdbcTemplate.query(
+        LOCK_NEXT_HOURS_SQL, hourRowMapper, after.userId(), after.hourBucket(), limit);
+  }
+
+  /**
+   * Recounts the transactions at or below {@code smallTransactionAmount} of the rollup rows from
+   * {@code first} to {@code last}, which the current transaction must hold locked.
+   */
+  public int recount(Hour first, Hour last, BigDecimal smallTransactionAmount) {
+    return jdbcTemplate.update(
+        RECOUNT_SQL,
+        smallTransactionAmount,
+        first.userId(),
+        first.hourBucket(),
+        last.userId(),
+        last.hourBucket());
+  }
+}
@@ -0,0 +1,78 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.repository.model.ScannerWatermark;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/** Keeps the watermarks of the incremental scanners and the positions they are compared with. */
+@Repository
+public class ScannerWatermarkRepository {
+
+  // SKIP LOCKED so that when several instances run the scanner only one of them scans at a time.
+  private static final String LOCK_SQL =
+      "SELECT scanner, watermark, pending_id, pending_xmax, pending_since FROM transaction_scanner.scanner_watermarks WHERE scanner = ? FOR UPDATE SKIP LOCKED";
+
+  private static final String SAVE_SQL =
+      "UPDATE transaction_scanner.scanner_watermarks SET watermark = ?, pending_id = ?, pending_xmax = ?, pending_since = ?, updated_at = now() WHERE scanner = ?";
+
+  private static final String SEQUENCE_HEAD_SQL =
+      "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM transaction_scanner.transactions_id_seq";
+
+  private static final String SNAPSHOT_SQL =
+      "SELECT pg_snapshot_xmin(s)::text::bigint AS xmin, pg_snapshot_xmax(s)::text::bigint AS xmax FROM pg_current_snapshot() s";
+
+  private static final RowMapper<ScannerWatermark> watermarkRowMapper =
+      (rs, rowNum) ->
+          ScannerWatermark.builder()
+              .scanner(rs.getString("scanner"))
+              .watermark(rs.getLong("watermark"))
+              .pendingId(rs.getObject("pending_id", Long.class))
+              .pendingXmax(rs.getObject("pending_xmax", Long.class))
+              .pendingSince(rs.getTimestamp("pending_since"))
+              .build();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public ScannerWatermarkRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Locks the scanner's row until the current transaction ends. Empty when another transaction
+   * holds it.
+   */
+  public Optional<ScannerWatermark> lock(String scanner) {
+    List<ScannerWatermark> rows = jdbcTemplate.query(LOCK_SQL, watermarkRowMapper, scanner);
+    return rows.stream().findFirst();
+  }
+
+  public void save(ScannerWatermark watermark) {
+    jdbcTemplate.update(
+        SAVE_SQL,
+        watermark.getWatermark(),
+        watermark.getPendingId(),
+        watermark.getPendingXmax(),
+        watermark.getPendingSince(),
+        watermark.getScanner());
+  }
+
+  /** The last transaction id handed out by the sequence, committed or not. */
+  public long sequenceHead() {
+    Long head = jdbcTemplate.queryForObject(SEQUENCE_HEAD_SQL, Long.class);
+    return head != null ? head : 0;
+  }
+
+  /**
+   * The {@code xmin} and {@code xmax} of the current snapshot: every transaction id below {@code
+   * xmin} has ended, and every one handed out so far is below {@code xmax}.
+   */
+  public long[] snapshotBounds() {
+    return jdbcTemplate.queryForObject(
+        SNAPSHOT_SQL, (rs, rowNum) -> new long[] {rs.getLong("xmin"), rs.getLong("xmax")});
+  }
+}
@@ -0,0 +1,99 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/** Reads and writes the suspicious flags persisted by the write-time detection engine. */
+@Repository
+public class SuspiciousFlagRepository {
+
+  private static final String INSERT_SQL =
+      "INSERT INTO transaction_scanner.suspicious_flags (transaction_id, user_id, timestamp, reason) VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+  private static final String FIND_BY_USER_SQL =
+      """
+      SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type,
+             array_agg(f.reason ORDER BY f.reason) AS reasons
+      FROM transaction_scanner.suspicious_flags f
+      JOIN transaction_scanner.transactions t
+        ON t.id = f.transaction_id AND t.timestamp = f.timestamp
+      WHERE f.user_id = ?
+      GROUP BY t.id, t.user_id, t.amount, t.timestamp, t.transaction_type
+      ORDER BY t.timestamp DESC
+      """;
+
+  private static final String FIND_BY_USER_IN_RANGE_SQL =
+      """
+      SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type,
+             array_agg(f.reason ORDER BY f.reason) AS reasons
+      FROM transaction_scanner.suspicious_flags f
+      JOIN transaction_scanner.transactions t
+        ON t.id = f.transaction_id AND t.timestamp = f.timestamp
+      WHERE f.user_id = ?
+        AND f.timestamp >= ? AND f.timestamp < ?
+        AND t.timestamp >= ? AND t.timestamp < ?
+      GROUP BY t.id, t.user_id, t.amount, t.timestamp, t.transaction_type
+      ORDER BY t.timestamp DESC
+      """;
+
+  private static final RowMapper<TransactionResponse> flaggedTransactionRowMapper =
+      (rs, rowNum) -> {
+        List<String> reasons = new ArrayList<>();
+        for (String reason : (String[]) rs.getArray("reasons").getArray()) {
+          reasons.add(SuspiciousReason.valueOf(reason).getDescription());
+        }
+        return TransactionResponse.builder()
+            .id(rs.getLong("id"))
+            .userId(rs.getString("user_id"))
+            .amountCents(Cents.of(rs.getBigDecimal("amount")))
+            .timestamp(rs.getTimestamp("timestamp"))
+            .transactionType(TransactionType.valueOf(rs.getString("transaction_type")))
+            .suspicious(true)
+            .suspiciousReason(reasons)
+            .build();
+      };
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public SuspiciousFlagRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public void saveAll(List<SuspiciousFlag> flags) {
+    if (flags.isEmpty()) {
+      return;
+    }
+
+    jdbcTemplate.batchUpdate(
+        INSERT_SQL,
+        flags,
+        flags.size(),
+        (ps, flag) -> {
+          ps.setLong(1, flag.getTransactionId());
+          ps.setString(2, flag.getUserId());
+          ps.setTimestamp(3, flag.getTimestamp());
+          ps.setString(4, flag.getReason().name());
+        });
+  }
+
+  public List<TransactionResponse> findSuspiciousTransactionsByUserId(String userId) {
+    return jdbcTemplate.query(FIND_BY_USER_SQL, flaggedTransactionRowMapper, userId);
+  }
+
+  public List<TransactionResponse> findSuspiciousTransactionsByUserIdInRange(
+      String userId, Timestamp from, Timestamp to) {
+    return jdbcTemplate.query(
+        FIND_BY_USER_IN_RANGE_SQL, flaggedTransactionRowMapper, userId, from, to, from, to);
+  }
+}
@@ -0,0 +1,63 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import java.sql.Timestamp;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads the suspicious outbox, which a trigger on {@code suspicious_flags} appends to. Reads the
+ * primary, so a consumer sees a hit as soon as every older writer has committed.
+ */
+@Repository
+public class SuspiciousOutboxRepository {
+
+  // Only rows whose transaction is older than every running one, so no row can later appear
+  // before the returned ones.
+  private static final String FIND_AFTER_SQL =
+      "SELECT tx_id::text::bigint AS tx_id, id, transaction_id, user_id, timestamp, reason FROM transaction_scanner.suspicious_outbox WHERE (tx_id, id) > (?::text::xid8, ?) AND tx_id < pg_snapshot_xmin(pg_current_snapshot()) ORDER BY tx_id, id LIMIT ?";
+
+  private static final String HEAD_SQL =
+      "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+  private static final String DELETE_OLDER_THAN_SQL =
+      "DELETE FROM transaction_scanner.suspicious_outbox WHERE created_at < ?";
+
+  private static final RowMapper<SuspiciousFeedEvent> feedEventRowMapper =
+      (rs, rowNum) ->
+          SuspiciousFeedEvent.builder()
+              .offset(new FeedOffset(rs.getLong("tx_id"), rs.getLong("id")))
+              .transactionId(rs.getLong("transaction_id"))
+              .userId(rs.getString("user_id"))
+              .timestamp(rs.getTimestamp("timestamp"))
+              .reason(SuspiciousReason.valueOf(rs.getString("reason")))
+              .build();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public SuspiciousOutboxRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Up to {@code limit} events after {@code offset}, in feed order. */
+  public List<SuspiciousFeedEvent> findAfter(FeedOffset offset, int limit) {
+    return jdbcTemplate.query(
+        FIND_AFTER_SQL, feedEventRowMapper, offset.getTxId(), offset.getId(), limit);
+  }
+
+  /** The end of the feed: events appended from now on, or still uncommitted, come after it. */
+  public FeedOffset head() {
+    Long xmin = jdbcTemplate.queryForObject(HEAD_SQL, Long.class);
+    return new FeedOffset(xmin != null ? xmin : 0, 0);
+  }
+
+  public int deleteOlderThan(Timestamp createdBefore) {
+    return jdbcTemplate.update(DELETE_OLDER_THAN_SQL, createdBefore);
+  }
+}
@@ -0,0 +1,13 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.repository.model.SuspiciousTransactionConfiguration;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SuspiciousTransactionConfigurationRepository
+    extends JpaRepository<SuspiciousTransactionConfiguration, Integer> {
+
+  Optional<SuspiciousTransactionConfiguration> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,69 @@
+package com.remo.transaction_scanner.repository;
+
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.repository.model.Transaction;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Batched insert path for transactions.
+ *
+ * <p>The {@link Transaction} entity uses IDENTITY generation, which stops Hibernate from batching
+ * inserts. Ids are instead reserved up front from the table's sequence in one round-trip, so the
+ * rows can be sent as a single JDBC batch (rewritten into multi-row inserts by the driver). The
+ * transaction id is assigned before the ids are reserved, as {@code SuspiciousFlagScanner} needs.
+ */
+@Repository
+public class TransactionBatchRepository {
+
+  // Forces the transaction id to be assigned now rather than at the first insert.
+  private static final String ASSIGN_XID_SQL = "SELECT pg_current_xact_id()";
+
+  private static final String ALLOCATE_IDS_SQL =
+      "SELECT nextval('transaction_scanner.transactions_id_seq') FROM generate_series(1, ?)";
+
+  private static final String INSERT_SQL =
+      "INSERT INTO transaction_scanner.transactions (id, user_id, amount, transaction_type, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final IngestionProperties ingestionProperties;
+
+  @Autowired
+  public TransactionBatchRepository(
+      JdbcTemplate jdbcTemplate, IngestionProperties ingestionProperties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.ingestionProperties = ingestionProperties;
+  }
+
+  @Transactional
+  public List<Transaction> saveAll(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return transactions;
+    }
+
+    jdbcTemplate.queryForObject(ASSIGN_XID_SQL, String.class);
+    List<Long> ids =
+        jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, transactions.size());
+    for (int i = 0; i < transactions.size(); i++) {
+      transactions.get(i).setId(ids.get(i));
+    }
+
+    jdbcTemplate.batchUpdate(
+        INSERT_SQL,
+        transactions,
+        ingestionProperties.getJdbcBatchSize(),
+        (ps, transaction) -> {
+          ps.setLong(1, transaction.getId());
+          ps.setString(2, transaction.getUserId());
+          ps.setBigDecimal(3, Cents.toDecimal(transaction.getAmountCents()));
+          ps.setString(4, transaction.getTransactionType().name());
+          ps.setTimestamp(5, transaction.getTimestamp());
+        });
+
+    return transactions;
+  }
+}
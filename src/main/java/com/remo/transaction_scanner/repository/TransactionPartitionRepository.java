@@ -0,0 +1,29 @@
+package com.remo.transaction_scanner.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class TransactionPartitionRepository {
+
+  private static final String CREATE_PARTITIONS_SQL =
+      "SELECT transaction_scanner.create_transaction_partitions(?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  public TransactionPartitionRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Creates any missing monthly partitions covering {@code from} to {@code to}. */
+  public int createPartitions(LocalDate from, LocalDate to) {
+    Integer created =
+        jdbcTemplate.queryForObject(
+            CREATE_PARTITIONS_SQL, Integer.class, Date.valueOf(from), Date.valueOf(to));
+    return created != null ? created : 0;
+  }
+}
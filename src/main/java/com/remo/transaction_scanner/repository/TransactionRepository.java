@@ -1,6 +1,7 @@
 package com.remo.transaction_scanner.repository;
 
 import com.remo.transaction_scanner.repository.model.Transaction;
+import java.sql.Timestamp;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -9,4 +10,7 @@ import org.springframework.stereotype.Repository;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
   List<Transaction> findByUserId(String userId);
+
+  List<Transaction> findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+      String userId, Timestamp since);
 }
@@ -0,0 +1,21 @@
+package com.remo.transaction_scanner.repository.model;
+
+import com.remo.transaction_scanner.model.Cents;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+/** Maps an amount in cents to the {@code NUMERIC(12, 2)} column it is stored in. */
+@Converter
+public class CentsConverter implements AttributeConverter<Long, BigDecimal> {
+
+  @Override
+  public BigDecimal convertToDatabaseColumn(Long cents) {
+    return cents == null ? null : Cents.toDecimal(cents);
+  }
+
+  @Override
+  public Long convertToEntityAttribute(BigDecimal amount) {
+    return amount == null ? null : Cents.of(amount);
+  }
+}
@@ -0,0 +1,25 @@
+package com.remo.transaction_scanner.repository.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The row of {@code transaction_scanner.rollup_recounts}: how far the small counts have been
+ * recounted for {@code smallTransactionAmount}, and the amount currently configured.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupRecount {
+  private BigDecimal smallTransactionAmount;
+  private String afterUserId;
+  private Timestamp afterHourBucket;
+  private Long waitXmax;
+  private boolean completed;
+  private BigDecimal configuredAmount;
+}
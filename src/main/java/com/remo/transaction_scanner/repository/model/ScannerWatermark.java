@@ -0,0 +1,20 @@
+package com.remo.transaction_scanner.repository.model;
+
+import java.sql.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A row of {@code transaction_scanner.scanner_watermarks}: how far a scanner has read. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScannerWatermark {
+  private String scanner;
+  private long watermark;
+  private Long pendingId;
+  private Long pendingXmax;
+  private Timestamp pendingSince;
+}
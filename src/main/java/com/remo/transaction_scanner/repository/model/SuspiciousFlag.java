@@ -0,0 +1,20 @@
+package com.remo.transaction_scanner.repository.model;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import java.sql.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A row of {@code transaction_scanner.suspicious_flags}: one reason a transaction was flagged. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuspiciousFlag {
+  private long transactionId;
+  private String userId;
+  private Timestamp timestamp;
+  private SuspiciousReason reason;
+}
@@ -1,10 +1,11 @@
 package com.remo.transaction_scanner.repository.model;
 
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 import lombok.*;
 
 @Entity
-@Table(name = "transactions", schema = "transaction_scanner")
+@Table(name = "suspicious_transaction_configuration", schema = "transaction_scanner")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,5 +14,20 @@ import lombok.*;
 public class SuspiciousTransactionConfiguration {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
-  private Long id;
+  private Integer id;
+
+  @Column(name = "frequent_suspicious_transaction_threshold", nullable = false)
+  private Integer frequentSuspiciousTransactionThreshold;
+
+  @Column(name = "small_transaction_amount", nullable = false)
+  private BigDecimal smallTransactionAmount;
+
+  @Column(name = "high_volume_amount", nullable = false)
+  private BigDecimal highVolumeAmount;
+
+  @Column(name = "rapid_window_seconds", nullable = false)
+  private Integer rapidWindowSeconds;
+
+  @Column(name = "rapid_transaction_threshold", nullable = false)
+  private Integer rapidTransactionThreshold;
 }
@@ -2,7 +2,6 @@ package com.remo.transaction_scanner.repository.model;
 
 import com.remo.transaction_scanner.model.TransactionType;
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import lombok.*;
 
@@ -17,13 +16,15 @@ public class Transaction {
 
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
-  private int id;
+  private long id;
 
   @Column(name = "user_id", nullable = false)
   private String userId;
 
+  /** Amount in cents. */
   @Column(name = "amount", nullable = false)
-  private BigDecimal amount;
+  @Convert(converter = CentsConverter.class)
+  private long amountCents;
 
   @Column(name = "timestamp", nullable = false)
   private Timestamp timestamp;
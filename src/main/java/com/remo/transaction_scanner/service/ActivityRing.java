@@ -0,0 +1,109 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.TransactionType;
+
+/**
+ * FIFO of recent transactions of one user kept in parallel primitive arrays: id, epoch
+ * microseconds, amount in cents and type ordinal, about 25 bytes per event instead of a {@code
+ * Transaction} with its {@code Timestamp}.
+ *
+ * <p>The arrays double when full and are only shrunk by {@link #trim()}. Not thread safe.
+ */
+final class ActivityRing {
+
+  private static final int INITIAL_CAPACITY = 4;
+  // Object header and fields of the ring, plus the header of each of its four arrays.
+  private static final long FIXED_BYTES = 32 + 4 * 16;
+  private static final TransactionType[] TYPES = TransactionType.values();
+
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private long[] micros = new long[INITIAL_CAPACITY];
+  private long[] cents = new long[INITIAL_CAPACITY];
+  private byte[] types = new byte[INITIAL_CAPACITY];
+  private int head;
+  private int size;
+
+  void add(long id, long epochMicros, long amountCents, TransactionType type) {
+    if (size == ids.length) {
+      resize(ids.length * 2);
+    }
+    int tail = (head + size) % ids.length;
+    ids[tail] = id;
+    micros[tail] = epochMicros;
+    cents[tail] = amountCents;
+    types[tail] = (byte) type.ordinal();
+    size++;
+  }
+
+  /** Drops events older than {@code epochMicros} from the front. */
+  void removeBefore(long epochMicros) {
+    while (size > 0 && micros[head] < epochMicros) {
+      head = (head + 1) % ids.length;
+      size--;
+    }
+  }
+
+  void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Id of the {@code i}-th oldest event. */
+  long idAt(int i) {
+    return ids[index(i)];
+  }
+
+  long microsAt(int i) {
+    return micros[index(i)];
+  }
+
+  long centsAt(int i) {
+    return cents[index(i)];
+  }
+
+  TransactionType typeAt(int i) {
+    return TYPES[types[index(i)]];
+  }
+
+  /** Shrinks the arrays to the smallest power of two that holds the current events. */
+  void trim() {
+    int capacity = INITIAL_CAPACITY;
+    while (capacity < size) {
+      capacity *= 2;
+    }
+    if (capacity < ids.length) {
+      resize(capacity);
+    }
+  }
+
+  long footprintBytes() {
+    return FIXED_BYTES + (long) ids.length * (3 * Long.BYTES + Byte.BYTES);
+  }
+
+  private int index(int i) {
+    return (head + i) % ids.length;
+  }
+
+  private void resize(int capacity) {
+    long[] newIds = new long[capacity];
+    long[] newMicros = new long[capacity];
+    long[] newCents = new long[capacity];
+    byte[] newTypes = new byte[capacity];
+    for (int i = 0; i < size; i++) {
+      int from = index(i);
+      newIds[i] = ids[from];
+      newMicros[i] = micros[from];
+      newCents[i] = cents[from];
+      newTypes[i] = types[from];
+    }
+    ids = newIds;
+    micros = newMicros;
+    cents = newCents;
+    types = newTypes;
+    head = 0;
+  }
+}
@@ -0,0 +1,81 @@
+package com.remo.transaction_scanner.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads lines like {@link java.io.BufferedReader#readLine()}, but never holds more than {@code
+ * maxLineLength} characters of one line. The rest of a longer line is skipped up to its line
+ * terminator, so a body without newlines cannot exhaust the heap.
+ */
+final class BoundedLineReader {
+
+  private final Reader reader;
+  private final int maxLineLength;
+  private final char[] buffer = new char[8192];
+  private final StringBuilder line = new StringBuilder();
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+  private boolean tooLong;
+
+  BoundedLineReader(Reader reader, int maxLineLength) {
+    this.reader = reader;
+    this.maxLineLength = maxLineLength;
+  }
+
+  /**
+   * Returns the next line without its terminator, or null at the end of the stream. A line longer
+   * than {@code maxLineLength} is returned empty, with {@link #tooLong()} set.
+   */
+  String readLine() throws IOException {
+    line.setLength(0);
+    tooLong = false;
+    boolean read = false;
+    while (true) {
+      if (position == limit) {
+        limit = reader.read(buffer);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return read ? line.toString() : null;
+        }
+      }
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (buffer[position] == '\n') {
+          position++;
+          continue;
+        }
+      }
+      read = true;
+      int start = position;
+      while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+        position++;
+      }
+      append(start, position);
+      if (position < limit) {
+        skipLineFeed = buffer[position] == '\r';
+        position++;
+        return line.toString();
+      }
+    }
+  }
+
+  /** Whether the line last returned by {@link #readLine()} was cut for being too long. */
+  boolean tooLong() {
+    return tooLong;
+  }
+
+  private void append(int start, int end) {
+    if (tooLong) {
+      return;
+    }
+    if (line.length() + end - start > maxLineLength) {
+      tooLong = true;
+      line.setLength(0);
+      return;
+    }
+    line.append(buffer, start, end - start);
+  }
+}
@@ -0,0 +1,80 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.time.Duration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Small transactions in a clock hour ({@code date_trunc('hour', timestamp)}) with at least {@code
+ * frequent_suspicious_transaction_threshold} of them: all of them are flagged, the earlier ones
+ * once the threshold is reached.
+ */
+@Component
+public class FrequentSmallTransactionRule implements SuspiciousRule {
+
+  private static final Duration HOUR = Duration.ofHours(1);
+  private static final long HOUR_MICROS = HOUR.toNanos() / 1000;
+
+  @Override
+  public SuspiciousReason reason() {
+    return SuspiciousReason.FREQUENT_SMALL_TRANSACTION;
+  }
+
+  @Override
+  public Duration lookback(SuspiciousRuleConfiguration rules) {
+    return HOUR;
+  }
+
+  @Override
+  public Duration lookahead(SuspiciousRuleConfiguration rules) {
+    return HOUR;
+  }
+
+  @Override
+  public Evaluation begin(SuspiciousRuleConfiguration rules) {
+    return new FrequentEvaluation(rules.getSmallTransactionCents(), rules.getFrequentThreshold());
+  }
+
+  private static final class FrequentEvaluation implements Evaluation {
+
+    private final long smallTransactionCents;
+    private final int threshold;
+
+    private long hourBucket = Long.MIN_VALUE;
+    private int smallTransactionsInHour;
+    // Small transactions of the current hour seen before the threshold was reached.
+    private final ActivityRing pending = new ActivityRing();
+
+    FrequentEvaluation(long smallTransactionCents, int threshold) {
+      this.smallTransactionCents = smallTransactionCents;
+      this.threshold = threshold;
+    }
+
+    @Override
+    public void accept(
+        long sequence, long epochMicros, long amountCents, TransactionType type, Flags flags) {
+      if (amountCents > smallTransactionCents) {
+        return;
+      }
+      long hour = Math.floorDiv(epochMicros, HOUR_MICROS);
+      if (hour != hourBucket) {
+        hourBucket = hour;
+        smallTransactionsInHour = 0;
+        pending.clear();
+      }
+
+      smallTransactionsInHour++;
+      if (smallTransactionsInHour < threshold) {
+        pending.add(sequence, epochMicros, amountCents, type);
+        return;
+      }
+      for (int i = 0; i < pending.size(); i++) {
+        flags.flag(pending.idAt(i));
+      }
+      pending.clear();
+      flags.flag(sequence);
+    }
+  }
+}
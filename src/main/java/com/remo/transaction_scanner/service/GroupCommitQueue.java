@@ -0,0 +1,152 @@
+package com.remo.transaction_scanner.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded queue that hands items submitted by many threads to one writer thread, which flushes
+ * them in micro-batches so a batch shares one commit.
+ *
+ * <p>A batch is flushed once it holds {@code maxBatchSize} items or {@code maxWait} has passed
+ * since its first item was taken, whichever comes first. {@link #submit} blocks while the queue is
+ * full and returns only after the flush of its batch has returned, so a caller never sees a result
+ * before it is committed. If a flush fails in a way known to have rolled the batch back, each item
+ * is flushed again on its own, so only the callers whose item fails alone get a failure. Any other
+ * failure, such as a timeout after which the batch may still have committed, goes to every caller
+ * of the batch, since flushing it again could write the items twice.
+ */
+@Slf4j
+final class GroupCommitQueue<T, R> implements AutoCloseable {
+
+  private record Pending<T, R>(T item, CompletableFuture<R> result) {}
+
+  private static final long IDLE_POLL_MILLIS = 100;
+
+  private final BlockingQueue<Pending<T, R>> queue;
+  private final int maxBatchSize;
+  private final long maxWaitNanos;
+  private final Function<List<T>, List<R>> flusher;
+  private final Predicate<RuntimeException> rolledBack;
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  /**
+   * @param flusher persists a batch and returns one result per item, in the same order
+   * @param rolledBack whether a failure of {@code flusher} guarantees that nothing of the batch
+   *     was persisted, so its items can be flushed again one by one
+   */
+  GroupCommitQueue(
+      String name,
+      int capacity,
+      int maxBatchSize,
+      Duration maxWait,
+      Function<List<T>, List<R>> flusher,
+      Predicate<RuntimeException> rolledBack) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.flusher = flusher;
+    this.rolledBack = rolledBack;
+    this.writer = Thread.ofPlatform().name(name).daemon().start(this::run);
+  }
+
+  /** Queues {@code item} and waits until the batch it lands in has been flushed. */
+  R submit(T item) {
+    if (!running) {
+      throw new IllegalStateException("Group commit queue is closed");
+    }
+    CompletableFuture<R> result = new CompletableFuture<>();
+    try {
+      queue.put(new Pending<>(item, result));
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for group commit", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Group commit failed", e.getCause());
+    }
+  }
+
+  /** Flushes what is already queued, then stops the writer. */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Anything that raced past the running check after the writer left.
+    Pending<T, R> pending;
+    while ((pending = queue.poll()) != null) {
+      pending
+          .result()
+          .completeExceptionally(new IllegalStateException("Group commit queue is closed"));
+    }
+  }
+
+  private void run() {
+    List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending<T, R> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+          queue.drainTo(batch, maxBatchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= maxBatchSize || remaining <= 0) {
+            break;
+          }
+          Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException e) {
+        running = false;
+        IllegalStateException stopped = new IllegalStateException("Group commit writer stopped", e);
+        batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<Pending<T, R>> batch) {
+    try {
+      List<R> results = flusher.apply(batch.stream().map(Pending::item).toList());
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result().complete(results.get(i));
+      }
+    } catch (RuntimeException e) {
+      if (batch.size() == 1 || !rolledBack.test(e)) {
+        log.warn("Group commit of {} items failed", batch.size(), e);
+        batch.forEach(pending -> pending.result().completeExceptionally(e));
+        return;
+      }
+      // One bad item rolls the whole batch back; keep it from failing the others.
+      log.warn("Group commit of {} items failed, flushing them one by one", batch.size(), e);
+      for (Pending<T, R> pending : batch) {
+        flush(List.of(pending));
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import java.time.Duration;
+import org.springframework.stereotype.Component;
+
+/** Amounts at or above {@code high_volume_amount}. */
+@Component
+public class HighVolumeTransactionRule implements SuspiciousRule {
+
+  @Override
+  public SuspiciousReason reason() {
+    return SuspiciousReason.HIGH_VOLUME_TRANSACTION;
+  }
+
+  @Override
+  public Duration lookback(SuspiciousRuleConfiguration rules) {
+    return Duration.ZERO;
+  }
+
+  @Override
+  public Duration lookahead(SuspiciousRuleConfiguration rules) {
+    return Duration.ZERO;
+  }
+
+  @Override
+  public Evaluation begin(SuspiciousRuleConfiguration rules) {
+    long highVolumeCents = rules.getHighVolumeCents();
+    return (sequence, epochMicros, amountCents, type, flags) -> {
+      if (amountCents >= highVolumeCents) {
+        flags.flag(sequence);
+      }
+    };
+  }
+}
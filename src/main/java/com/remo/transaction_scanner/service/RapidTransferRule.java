@@ -0,0 +1,47 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import java.time.Duration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transactions with at least {@code rapid_transaction_threshold} of the user's transactions, itself
+ * included, in the trailing {@code rapid_window_seconds}. Like {@code RANGE ... PRECEDING AND
+ * CURRENT ROW}, transactions with the same timestamp count for each other.
+ */
+@Component
+public class RapidTransferRule implements SuspiciousRule {
+
+  @Override
+  public SuspiciousReason reason() {
+    return SuspiciousReason.RAPID_TRANSFER;
+  }
+
+  @Override
+  public Duration lookback(SuspiciousRuleConfiguration rules) {
+    return rules.getRapidWindow();
+  }
+
+  @Override
+  public Duration lookahead(SuspiciousRuleConfiguration rules) {
+    return Duration.ZERO;
+  }
+
+  @Override
+  public Evaluation begin(SuspiciousRuleConfiguration rules) {
+    long windowMicros = rules.getRapidWindow().toNanos() / 1000;
+    int threshold = rules.getRapidThreshold();
+    ActivityRing window = new ActivityRing();
+    return (sequence, epochMicros, amountCents, type, flags) -> {
+      window.removeBefore(epochMicros - windowMicros);
+      window.add(sequence, epochMicros, amountCents, type);
+      if (window.size() < threshold) {
+        return;
+      }
+      for (int i = window.size() - 1; i >= 0 && window.microsAt(i) == epochMicros; i--) {
+        flags.flag(window.idAt(i));
+      }
+    };
+  }
+}
@@ -0,0 +1,112 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.RollupProperties;
+import com.remo.transaction_scanner.repository.RollupRecountRepository;
+import com.remo.transaction_scanner.repository.RollupRecountRepository.Hour;
+import com.remo.transaction_scanner.repository.model.RollupRecount;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Brings the small counts of {@code user_hourly_rollups} to a new {@code small_transaction_amount}
+ * in the background. Each batch locks its rollup rows in key order, recounts them and commits with
+ * the position, so inserts only wait for the batch holding their hour and a restart resumes after
+ * the last committed batch.
+ *
+ * <p>Inserts count against the amount committed when their trigger runs. A recount therefore
+ * records the snapshot {@code xmax} when it sees a new amount, and only starts once every
+ * transaction older than it has ended; any insert that counted against the old amount is then
+ * visible to the recount. Until a recount completes, the frequent rule can read counts of either
+ * amount for the hours it has not reached.
+ */
+@Service
+@Slf4j
+public class RollupRecounter {
+
+  private final RollupRecountRepository rollupRecountRepository;
+  private final RollupProperties rollupProperties;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public RollupRecounter(
+      RollupRecountRepository rollupRecountRepository,
+      RollupProperties rollupProperties,
+      PlatformTransactionManager transactionManager) {
+    this.rollupRecountRepository = rollupRecountRepository;
+    this.rollupProperties = rollupProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /** Recounts up to {@code recountMaxBatchesPerRun} batches when the small amount has changed. */
+  @Scheduled(
+      fixedDelayString = "${transaction-scanner.rollups.recount-interval:PT5S}",
+      initialDelayString = "${transaction-scanner.rollups.recount-interval:PT5S}")
+  public void recount() {
+    try {
+      for (int batch = 0; batch < rollupProperties.getRecountMaxBatchesPerRun(); batch++) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> step()))) {
+          return;
+        }
+      }
+    } catch (DataAccessException e) {
+      log.warn("Rollup recount failed, resuming from the last committed batch", e);
+    }
+  }
+
+  // One transaction holding the recount row: restarts the recount when the amount changed, else
+  // recounts the next batch once it is safe to. Returns whether another batch is ready.
+  boolean step() {
+    Optional<RollupRecount> locked = rollupRecountRepository.lock();
+    if (locked.isEmpty()) {
+      // Another instance is recounting.
+      return false;
+    }
+    RollupRecount recount = locked.get();
+    long[] snapshot = rollupRecountRepository.snapshotBounds();
+
+    if (recount.getConfiguredAmount().compareTo(recount.getSmallTransactionAmount()) != 0) {
+      log.info(
+          "Small transaction amount changed from {} to {}, recounting the hourly rollups",
+          recount.getSmallTransactionAmount(),
+          recount.getConfiguredAmount());
+      recount.setSmallTransactionAmount(recount.getConfiguredAmount());
+      recount.setAfterUserId(null);
+      recount.setAfterHourBucket(null);
+      recount.setWaitXmax(snapshot[1]);
+      recount.setCompleted(false);
+      rollupRecountRepository.save(recount);
+      return false;
+    }
+    if (recount.isCompleted()
+        || (recount.getWaitXmax() != null && snapshot[0] < recount.getWaitXmax())) {
+      return false;
+    }
+
+    int limit = rollupProperties.getRecountBatchSize();
+    Hour after =
+        recount.getAfterUserId() != null
+            ? new Hour(recount.getAfterUserId(), recount.getAfterHourBucket())
+            : null;
+    List<Hour> hours = rollupRecountRepository.lockHours(after, limit);
+    if (!hours.isEmpty()) {
+      Hour last = hours.get(hours.size() - 1);
+      rollupRecountRepository.recount(hours.get(0), last, recount.getSmallTransactionAmount());
+      recount.setAfterUserId(last.userId());
+      recount.setAfterHourBucket(last.hourBucket());
+    }
+    if (hours.size() < limit) {
+      recount.setCompleted(true);
+      recount.setWaitXmax(null);
+      log.info("Recounted the hourly rollups for {}", recount.getSmallTransactionAmount());
+    }
+    rollupRecountRepository.save(recount);
+    return !recount.isCompleted();
+  }
+}
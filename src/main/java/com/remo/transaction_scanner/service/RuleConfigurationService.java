@@ -0,0 +1,94 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.RuleConfigurationChangedEvent;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.SuspiciousTransactionConfigurationRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousTransactionConfiguration;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the rule thresholds in memory so queries and the write-time detector can use them without
+ * reading the configuration table. The table is polled and a {@link
+ * RuleConfigurationChangedEvent} is published when it changes, so an update applies without a
+ * restart.
+ */
+@Service
+@Slf4j
+public class RuleConfigurationService {
+
+  private final SuspiciousTransactionConfigurationRepository configurationRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private volatile SuspiciousRuleConfiguration current;
+
+  @Autowired
+  public RuleConfigurationService(
+      SuspiciousTransactionConfigurationRepository configurationRepository,
+      ApplicationEventPublisher eventPublisher) {
+    this.configurationRepository = configurationRepository;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /** Returns the thresholds in effect, loading them on first use. */
+  public SuspiciousRuleConfiguration current() {
+    SuspiciousRuleConfiguration rules = current;
+    if (rules == null) {
+      synchronized (this) {
+        if (current == null) {
+          current = load();
+          log.info("Loaded suspicious rule configuration {}", current);
+        }
+        rules = current;
+      }
+    }
+    return rules;
+  }
+
+  /** Re-reads the configuration row and publishes an event if any threshold changed. */
+  @Scheduled(
+      fixedDelayString = "${transaction-scanner.rules.reload-interval:PT30S}",
+      initialDelayString = "${transaction-scanner.rules.reload-interval:PT30S}")
+  public void reload() {
+    SuspiciousRuleConfiguration loaded;
+    try {
+      loaded = load();
+    } catch (DataAccessException | IllegalStateException e) {
+      log.warn("Could not reload suspicious rule configuration, keeping the current one", e);
+      return;
+    }
+
+    SuspiciousRuleConfiguration previous;
+    synchronized (this) {
+      previous = current;
+      if (loaded.equals(previous)) {
+        return;
+      }
+      current = loaded;
+    }
+
+    log.info("Suspicious rule configuration changed from {} to {}", previous, loaded);
+    if (previous != null) {
+      eventPublisher.publishEvent(new RuleConfigurationChangedEvent(previous, loaded));
+    }
+  }
+
+  private SuspiciousRuleConfiguration load() {
+    SuspiciousTransactionConfiguration row =
+        configurationRepository
+            .findFirstByOrderByIdAsc()
+            .orElseThrow(
+                () -> new IllegalStateException("No suspicious transaction configuration found"));
+    return SuspiciousRuleConfiguration.builder()
+        .frequentThreshold(row.getFrequentSuspiciousTransactionThreshold())
+        .smallTransactionAmount(row.getSmallTransactionAmount())
+        .highVolumeAmount(row.getHighVolumeAmount())
+        .rapidWindow(Duration.ofSeconds(row.getRapidWindowSeconds()))
+        .rapidThreshold(row.getRapidTransactionThreshold())
+        .build();
+  }
+}
@@ -0,0 +1,255 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.RuleConfigurationChangedEvent;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.TransactionRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import com.remo.transaction_scanner.repository.model.Transaction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evaluates the suspicious rules at write time against per-user {@link UserActivityWindow}s.
+ *
+ * <p>A window is seeded from the database the first time this instance sees a user, so restarts
+ * do not lose the current hour or rapid window. State is local to the instance: with several
+ * instances writing for the same user, the flag-based reads can miss hits the views would find.
+ *
+ * <p>Windows of users with nothing in any rule window (the clock hour of the frequent rule or the
+ * rapid window, whichever is longer) are evicted every {@code
+ * transaction-scanner.detection.window-eviction-interval}; such a user's next write seeds a new
+ * one. The number of windows and their estimated heap are published as {@code
+ * transaction_scanner.detector.windows*} meters.
+ */
+@Service
+@Slf4j
+public class SuspiciousActivityDetector implements MeterBinder {
+
+  private static final long HOUR_MICROS = 60 * 60 * 1_000_000L;
+
+  private final TransactionRepository transactionRepository;
+  private final RuleConfigurationService ruleConfigurationService;
+  private final Clock clock;
+  private final Map<String, UserActivityWindow> windows = new ConcurrentHashMap<>();
+
+  private final AtomicLong evictedWindows = new AtomicLong();
+  // Measured by the last eviction sweep.
+  private volatile long heapBytes;
+  private volatile double heapBytesPerUser;
+
+  @Autowired
+  public SuspiciousActivityDetector(
+      TransactionRepository transactionRepository,
+      RuleConfigurationService ruleConfigurationService,
+      Clock clock) {
+    this.transactionRepository = transactionRepository;
+    this.ruleConfigurationService = ruleConfigurationService;
+    this.clock = clock;
+  }
+
+  /**
+   * Records a saved transaction and returns the flags it raises, including flags for earlier
+   * transactions of the same hour once the frequent threshold is reached.
+   */
+  public List<SuspiciousFlag> evaluate(Transaction transaction) {
+    evictIfRolledBack(Set.of(transaction.getUserId()));
+    return evaluate(transaction, Set.of(transaction.getId()));
+  }
+
+  /**
+   * Records a batch of transactions saved in one database transaction, in order, and returns the
+   * flags they raise. A window seeded for one of them leaves out the rest of the batch, which is
+   * already visible to the history query but recorded when its turn comes.
+   */
+  public List<SuspiciousFlag> evaluateAll(List<Transaction> batch) {
+    Set<Long> batchIds = new HashSet<>();
+    Set<String> userIds = new HashSet<>();
+    for (Transaction transaction : batch) {
+      batchIds.add(transaction.getId());
+      userIds.add(transaction.getUserId());
+    }
+    evictIfRolledBack(userIds);
+
+    List<SuspiciousFlag> flags = new ArrayList<>();
+    for (Transaction transaction : batch) {
+      flags.addAll(evaluate(transaction, batchIds));
+    }
+    return flags;
+  }
+
+  // The windows hold the transactions from now on, but the database only once the caller's
+  // transaction commits. If it does not, the users' windows are evicted, so their next write seeds
+  // them again from the committed rows instead of counting transactions that never existed.
+  private void evictIfRolledBack(Set<String> userIds) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+              userIds.forEach(SuspiciousActivityDetector.this::evict);
+            }
+          }
+        });
+  }
+
+  /** Evicts the user's window, so that their next write seeds it again from the database. */
+  public void evict(String userId) {
+    UserActivityWindow window = windows.get(userId);
+    if (window == null) {
+      return;
+    }
+    synchronized (window) {
+      window.evict();
+      windows.remove(userId, window);
+    }
+  }
+
+  private List<SuspiciousFlag> evaluate(Transaction transaction, Set<Long> batchIds) {
+    // Seeded outside computeIfAbsent so the history query does not run while holding the map's
+    // bin lock, which would also pin the carrier when serving on virtual threads. If two writes
+    // for a new user race, the first window stored wins.
+    while (true) {
+      UserActivityWindow window = windows.get(transaction.getUserId());
+      if (window == null) {
+        UserActivityWindow seeded = warmUp(transaction, batchIds);
+        window = windows.putIfAbsent(transaction.getUserId(), seeded);
+        if (window == null) {
+          window = seeded;
+        }
+      }
+
+      synchronized (window) {
+        // Evicted between the lookup and the lock; record into the window that replaces it.
+        if (!window.isEvicted()) {
+          return window.record(transaction, ruleConfigurationService.current());
+        }
+      }
+    }
+  }
+
+  /**
+   * Evicts the windows of users idle for longer than every rule window, trims the rest and
+   * measures their heap.
+   */
+  @Scheduled(
+      fixedDelayString = "${transaction-scanner.detection.window-eviction-interval:PT1M}",
+      initialDelayString = "${transaction-scanner.detection.window-eviction-interval:PT1M}")
+  public void evictIdleWindows() {
+    long windowMicros =
+        Math.max(HOUR_MICROS, ruleConfigurationService.current().getRapidWindow().toNanos() / 1000);
+    Instant now = clock.instant();
+    long nowMicros = now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+
+    long bytes = 0;
+    int kept = 0;
+    int evicted = 0;
+    Iterator<UserActivityWindow> iterator = windows.values().iterator();
+    while (iterator.hasNext()) {
+      UserActivityWindow window = iterator.next();
+      synchronized (window) {
+        if (window.isIdle(nowMicros, windowMicros)) {
+          window.evict();
+          iterator.remove();
+          evicted++;
+        } else {
+          window.trim();
+          bytes += window.footprintBytes();
+          kept++;
+        }
+      }
+    }
+
+    evictedWindows.addAndGet(evicted);
+    heapBytes = bytes;
+    heapBytesPerUser = kept == 0 ? 0 : (double) bytes / kept;
+    log.debug("Evicted {} idle activity windows, {} left using {} bytes", evicted, kept, bytes);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("transaction_scanner.detector.windows", windows, Map::size)
+        .description("Users with an in-memory activity window")
+        .register(registry);
+    Gauge.builder("transaction_scanner.detector.windows.heap", this, detector -> detector.heapBytes)
+        .description("Estimated heap held by the activity windows at the last eviction sweep")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder(
+            "transaction_scanner.detector.windows.heap_per_user",
+            this,
+            detector -> detector.heapBytesPerUser)
+        .description("Estimated heap per activity window at the last eviction sweep")
+        .baseUnit("bytes")
+        .register(registry);
+    FunctionCounter.builder(
+            "transaction_scanner.detector.windows.evicted", evictedWindows, AtomicLong::get)
+        .description("Activity windows evicted after their user went idle")
+        .register(registry);
+  }
+
+  /**
+   * Evicts every window so they are seeded again under the new thresholds. A writer already
+   * holding one sees it evicted and records into a new window instead.
+   */
+  @EventListener
+  public void onRuleConfigurationChanged(RuleConfigurationChangedEvent event) {
+    Iterator<UserActivityWindow> iterator = windows.values().iterator();
+    while (iterator.hasNext()) {
+      UserActivityWindow window = iterator.next();
+      synchronized (window) {
+        window.evict();
+        iterator.remove();
+      }
+    }
+  }
+
+  private UserActivityWindow warmUp(Transaction transaction, Set<Long> batchIds) {
+    LocalDateTime at = transaction.getTimestamp().toLocalDateTime();
+    LocalDateTime hourStart = at.truncatedTo(ChronoUnit.HOURS);
+    SuspiciousRuleConfiguration rules = ruleConfigurationService.current();
+    LocalDateTime rapidStart = at.minus(rules.getRapidWindow());
+    LocalDateTime since = hourStart.isBefore(rapidStart) ? hourStart : rapidStart;
+
+    List<Transaction> history =
+        transactionRepository.findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+            transaction.getUserId(), Timestamp.valueOf(since));
+
+    UserActivityWindow window = new UserActivityWindow(transaction.getUserId());
+    for (Transaction previous : history) {
+      if (!batchIds.contains(previous.getId())) {
+        window.record(previous, rules);
+      }
+    }
+
+    log.debug(
+        "Seeded activity window for user {} with {} transactions",
+        transaction.getUserId(),
+        history.size());
+    return window;
+  }
+}
@@ -0,0 +1,138 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.FeedProperties;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wakes feed connections when the outbox trigger notifies {@code suspicious_outbox}, which
+ * Postgres delivers on commit from every instance. One platform thread holds a {@code LISTEN} on a
+ * primary pool connection, started by the first consumer.
+ *
+ * <p>Waiters compare a generation counter rather than waiting for a signal, so a notification that
+ * arrives between a read and the wait is not lost. A lock and condition are used instead of {@code
+ * wait}, which would pin the carrier of a virtual thread.
+ */
+@Component
+@Slf4j
+public class SuspiciousFeedNotifier {
+
+  static final String CHANNEL = "suspicious_outbox";
+
+  private static final int RECEIVE_TIMEOUT_MILLIS = 500;
+  private static final long RECONNECT_DELAY_MILLIS = 1_000;
+
+  private final DataSource dataSource;
+  private final FeedProperties feedProperties;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private long generation;
+  private volatile boolean running = true;
+  private volatile Thread listener;
+
+  @Autowired
+  public SuspiciousFeedNotifier(DataSource dataSource, FeedProperties feedProperties) {
+    this.dataSource = dataSource;
+    this.feedProperties = feedProperties;
+  }
+
+  /** The current generation, to pass to {@link #awaitChange}. */
+  public long generation() {
+    startListening();
+    lock.lock();
+    try {
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Waits until a notification newer than {@code seen} arrives, or {@code timeout} passes. */
+  public void awaitChange(long seen, Duration timeout) throws InterruptedException {
+    long remaining = timeout.toNanos();
+    lock.lock();
+    try {
+      while (generation == seen && remaining > 0) {
+        remaining = changed.awaitNanos(remaining);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    Thread thread = listener;
+    if (thread != null) {
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  void signal() {
+    lock.lock();
+    try {
+      generation++;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void startListening() {
+    if (listener != null || !feedProperties.isListen()) {
+      return;
+    }
+    synchronized (this) {
+      if (listener == null && running) {
+        listener = Thread.ofPlatform().name("suspicious-feed-listener").daemon().start(this::run);
+      }
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try (Connection connection = dataSource.getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("LISTEN " + CHANNEL);
+        try {
+          // Anything committed while the listener was down.
+          signal();
+          PGConnection pgConnection = connection.unwrap(PGConnection.class);
+          while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MILLIS);
+            if (notifications != null && notifications.length > 0) {
+              signal();
+            }
+          }
+        } finally {
+          // The connection goes back to the pool.
+          statement.execute("UNLISTEN " + CHANNEL);
+        }
+      } catch (SQLException e) {
+        log.warn("Suspicious feed listener lost its connection, reconnecting", e);
+        try {
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+}
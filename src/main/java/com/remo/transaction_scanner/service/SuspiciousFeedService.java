@@ -0,0 +1,159 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.FeedProperties;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.repository.SuspiciousOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Serves the suspicious outbox to feed consumers in offset order. A connection reads every event
+ * after its offset, then waits for a notification from {@link SuspiciousFeedNotifier} or at most
+ * {@code pollInterval} before reading again, until {@code maxConnectionDuration} has passed.
+ *
+ * <p>Connections are served on a pool of {@code maxConsumers} threads of their own: each one holds
+ * its thread for the whole connection, which on the MVC async executor would leave the exports
+ * queued behind the consumers.
+ */
+@Service
+@Slf4j
+public class SuspiciousFeedService {
+
+  private final SuspiciousOutboxRepository suspiciousOutboxRepository;
+  private final SuspiciousFeedNotifier suspiciousFeedNotifier;
+  private final FeedProperties feedProperties;
+  private final TransactionScannerMetrics metrics;
+  private final Clock clock;
+  private final ThreadPoolExecutor consumers;
+
+  @Autowired
+  public SuspiciousFeedService(
+      SuspiciousOutboxRepository suspiciousOutboxRepository,
+      SuspiciousFeedNotifier suspiciousFeedNotifier,
+      FeedProperties feedProperties,
+      TransactionScannerMetrics metrics,
+      Clock clock) {
+    this.suspiciousOutboxRepository = suspiciousOutboxRepository;
+    this.suspiciousFeedNotifier = suspiciousFeedNotifier;
+    this.feedProperties = feedProperties;
+    this.metrics = metrics;
+    this.clock = clock;
+    int maxConsumers = feedProperties.getMaxConsumers();
+    this.consumers =
+        new ThreadPoolExecutor(
+            maxConsumers,
+            maxConsumers,
+            1,
+            TimeUnit.MINUTES,
+            new SynchronousQueue<>(),
+            Thread.ofPlatform().name("suspicious-feed-", 1).daemon().factory());
+    this.consumers.allowCoreThreadTimeOut(true);
+  }
+
+  @PreDestroy
+  public void stop() {
+    // Interrupts the waiting connections, which then end their streams.
+    consumers.shutdownNow();
+  }
+
+  /**
+   * The offset to resume after: {@code token} when the consumer has one, otherwise the end of the
+   * feed, so a new consumer only gets hits from now on.
+   */
+  public FeedOffset offset(String token) {
+    return token == null || token.isBlank()
+        ? suspiciousOutboxRepository.head()
+        : FeedOffset.decode(token.trim());
+  }
+
+  /**
+   * Hands the events after {@code after} to {@code sink} in batches as they become available, and
+   * calls {@code heartbeat} when nothing was written for {@code heartbeatInterval}. Returns the
+   * offset of the last event handed over once the connection has been served for {@code
+   * maxConnectionDuration}, or throws whatever {@code sink} throws.
+   */
+  public FeedOffset stream(
+      FeedOffset after, Consumer<List<SuspiciousFeedEvent>> sink, Runnable heartbeat) {
+    return metrics.trackFeedConsumer(() -> serve(after, sink, heartbeat));
+  }
+
+  /**
+   * {@link #stream} on a feed thread. The future completes with the last offset handed over, or
+   * with whatever {@code sink} throws.
+   *
+   * @throws RejectedExecutionException when {@code maxConsumers} connections are being served
+   */
+  public CompletableFuture<FeedOffset> follow(
+      FeedOffset after, Consumer<List<SuspiciousFeedEvent>> sink, Runnable heartbeat) {
+    return CompletableFuture.supplyAsync(() -> stream(after, sink, heartbeat), consumers);
+  }
+
+  private FeedOffset serve(
+      FeedOffset after, Consumer<List<SuspiciousFeedEvent>> sink, Runnable heartbeat) {
+    int batchSize = feedProperties.getBatchSize();
+    long pollNanos = feedProperties.getPollInterval().toNanos();
+    long heartbeatNanos = feedProperties.getHeartbeatInterval().toNanos();
+    long deadline = System.nanoTime() + feedProperties.getMaxConnectionDuration().toNanos();
+    long lastWrite = System.nanoTime();
+    FeedOffset cursor = after;
+
+    while (true) {
+      // Read before the query, so a notification for rows the query misses ends the wait.
+      long seen = suspiciousFeedNotifier.generation();
+      List<SuspiciousFeedEvent> events = suspiciousOutboxRepository.findAfter(cursor, batchSize);
+      long now = System.nanoTime();
+      if (!events.isEmpty()) {
+        sink.accept(events);
+        metrics.feedEvents(events.size());
+        cursor = events.get(events.size() - 1).getOffset();
+        lastWrite = now;
+      }
+      if (now - deadline >= 0) {
+        return cursor;
+      }
+      if (events.size() == batchSize) {
+        // More are waiting.
+        continue;
+      }
+      if (now - lastWrite >= heartbeatNanos) {
+        heartbeat.run();
+        lastWrite = now;
+      }
+
+      long wait = Math.min(pollNanos, Math.min(deadline - now, lastWrite + heartbeatNanos - now));
+      try {
+        suspiciousFeedNotifier.awaitChange(seen, Duration.ofNanos(wait));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return cursor;
+      }
+    }
+  }
+
+  /** Deletes outbox rows older than {@code retention}. */
+  @Scheduled(
+      fixedDelayString = "${transaction-scanner.feed.retention-check-interval:PT1H}",
+      initialDelayString = "${transaction-scanner.feed.retention-check-interval:PT1H}")
+  public void deleteExpiredEvents() {
+    Timestamp cutoff =
+        Timestamp.valueOf(LocalDateTime.now(clock).minus(feedProperties.getRetention()));
+    int deleted = suspiciousOutboxRepository.deleteOlderThan(cutoff);
+
+    log.info("Deleted {} suspicious feed events created before {}", deleted, cutoff);
+  }
+}
@@ -0,0 +1,239 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.ScannerProperties;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.ScannerWatermarkRepository;
+import com.remo.transaction_scanner.repository.SuspiciousFlagRepository;
+import com.remo.transaction_scanner.repository.model.ScannerWatermark;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes {@code suspicious_flags} for newly inserted transactions in the background, in id order,
+ * whichever path inserted them. Each chunk is committed together with the watermark, so a restart
+ * resumes after the last committed chunk.
+ *
+ * <p>Ids are handed out before their transaction commits, so a lower id can become visible after a
+ * higher one. The scanner therefore records the sequence head, and on the next run the snapshot
+ * {@code xmax}; it only reads up to that head once every transaction older than the {@code xmax}
+ * has ended. This only holds for ids reserved by a transaction that already has its transaction
+ * id, otherwise a transaction stalled between reserving an id and its first write gets a
+ * transaction id above the recorded {@code xmax} and its rows are skipped. Writers that reserve
+ * ids up front must therefore assign theirs first ({@code TransactionBatchRepository} runs {@code
+ * pg_current_xact_id()}); taking the {@code xmax} a run after the head covers ids drawn by the
+ * column default during an insert. Rows are scanned two to three runs after they are inserted.
+ */
+@Service
+@Slf4j
+public class SuspiciousFlagScanner {
+
+  static final String SCANNER = "suspicious_flags";
+
+  private static final int FREQUENT_BIT =
+      SuspiciousTransactionFinder.reasonBit(SuspiciousReason.FREQUENT_SMALL_TRANSACTION);
+
+  // The next chunk after the watermark in id order, with the reasons of each row evaluated against
+  // the user's history. Reads the primary: a replica could not see rows the watermark covers.
+  static final String CHUNK_SQL =
+      "SELECT t.id, t.user_id, t.timestamp, t.hour_bucket, "
+          + SuspiciousTransactionFinder.ROW_REASONS_SQL
+          + " AS reasons FROM transaction_scanner.transactions t"
+          + " WHERE t.id > :after AND t.id <= :upTo"
+          + " ORDER BY t.id"
+          + " LIMIT :limit";
+
+  // A new row that makes its hour frequent also makes the earlier small rows of that hour frequent.
+  static final String FLAG_FREQUENT_HOUR_SQL =
+      """
+      INSERT INTO transaction_scanner.suspicious_flags (transaction_id, user_id, timestamp, reason)
+      SELECT t.id, t.user_id, t.timestamp, 'FREQUENT_SMALL_TRANSACTION'
+      FROM transaction_scanner.transactions t
+      WHERE t.user_id = :userId
+        AND t.timestamp >= :hourStart
+        AND t.timestamp < :hourEnd
+        AND t.amount <= :smallTransactionAmount
+      ON CONFLICT DO NOTHING
+      """;
+
+  private record Hour(String userId, Timestamp start) {}
+
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private final ScannerWatermarkRepository scannerWatermarkRepository;
+  private final SuspiciousFlagRepository suspiciousFlagRepository;
+  private final RuleConfigurationService ruleConfigurationService;
+  private final ScannerProperties scannerProperties;
+  private final TransactionScannerMetrics metrics;
+  private final TransactionTemplate transactionTemplate;
+  private final Clock clock;
+
+  @Autowired
+  public SuspiciousFlagScanner(
+      NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+      ScannerWatermarkRepository scannerWatermarkRepository,
+      SuspiciousFlagRepository suspiciousFlagRepository,
+      RuleConfigurationService ruleConfigurationService,
+      ScannerProperties scannerProperties,
+      TransactionScannerMetrics metrics,
+      PlatformTransactionManager transactionManager,
+      Clock clock) {
+    this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    this.scannerWatermarkRepository = scannerWatermarkRepository;
+    this.suspiciousFlagRepository = suspiciousFlagRepository;
+    this.ruleConfigurationService = ruleConfigurationService;
+    this.scannerProperties = scannerProperties;
+    this.metrics = metrics;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.clock = clock;
+  }
+
+  /**
+   * Scans up to {@code maxChunksPerRun} chunks that can be scanned now, then records the position
+   * for the next run.
+   */
+  @Scheduled(
+      fixedDelayString = "${transaction-scanner.scanner.interval:PT5S}",
+      initialDelayString = "${transaction-scanner.scanner.interval:PT5S}")
+  public void scan() {
+    if (!scannerProperties.isEnabled()) {
+      return;
+    }
+    try {
+      // Each step commits one chunk with the watermark.
+      for (int chunk = 0; chunk < scannerProperties.getMaxChunksPerRun(); chunk++) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> step()))) {
+          return;
+        }
+      }
+    } catch (DataAccessException e) {
+      log.warn("Suspicious flag scan failed, resuming from the last committed chunk", e);
+    }
+  }
+
+  // One transaction holding the watermark row: scans the next chunk when the pending id is safe to
+  // read up to, otherwise moves the pending id along. Returns whether another chunk is ready.
+  boolean step() {
+    Optional<ScannerWatermark> locked = scannerWatermarkRepository.lock(SCANNER);
+    if (locked.isEmpty()) {
+      // Another instance is scanning.
+      return false;
+    }
+    ScannerWatermark position = locked.get();
+    long[] snapshot = scannerWatermarkRepository.snapshotBounds();
+
+    boolean ready =
+        position.getPendingId() != null
+            && position.getPendingXmax() != null
+            && snapshot[0] >= position.getPendingXmax();
+    if (ready && position.getWatermark() < position.getPendingId()) {
+      position.setWatermark(scanChunk(position.getWatermark(), position.getPendingId()));
+      scannerWatermarkRepository.save(position);
+      return true;
+    }
+    if (ready) {
+      position.setPendingId(null);
+      position.setPendingXmax(null);
+      position.setPendingSince(null);
+    }
+
+    long head = scannerWatermarkRepository.sequenceHead();
+    if (position.getPendingId() == null && head > position.getWatermark()) {
+      position.setPendingId(head);
+      position.setPendingSince(Timestamp.valueOf(LocalDateTime.now(clock)));
+    } else if (position.getPendingId() != null && position.getPendingXmax() == null) {
+      position.setPendingXmax(snapshot[1]);
+    }
+    scannerWatermarkRepository.save(position);
+
+    Timestamp since = position.getPendingSince();
+    metrics.scannerLag(
+        head - position.getWatermark(),
+        since != null
+            ? Duration.between(since.toLocalDateTime(), LocalDateTime.now(clock)).toSeconds()
+            : 0);
+    return false;
+  }
+
+  // Flags the rows of the next chunk in (after, upTo] and returns the new watermark.
+  private long scanChunk(long after, long upTo) {
+    SuspiciousRuleConfiguration rules = ruleConfigurationService.current();
+    int limit = scannerProperties.getChunkSize();
+    MapSqlParameterSource params =
+        SuspiciousTransactionFinder.thresholdParams(rules)
+            .addValue("after", after)
+            .addValue("upTo", upTo)
+            .addValue("limit", limit);
+
+    List<SuspiciousFlag> flags = new ArrayList<>();
+    Set<Hour> frequentHours = new LinkedHashSet<>();
+    long[] last = {after};
+    int[] rows = {0};
+    namedParameterJdbcTemplate.query(
+        CHUNK_SQL,
+        params,
+        rs -> {
+          last[0] = rs.getLong("id");
+          rows[0]++;
+          int reasons = rs.getInt("reasons");
+          for (SuspiciousReason reason : SuspiciousReason.values()) {
+            if ((reasons & SuspiciousTransactionFinder.reasonBit(reason)) != 0) {
+              flags.add(
+                  SuspiciousFlag.builder()
+                      .transactionId(last[0])
+                      .userId(rs.getString("user_id"))
+                      .timestamp(rs.getTimestamp("timestamp"))
+                      .reason(reason)
+                      .build());
+            }
+          }
+          if ((reasons & FREQUENT_BIT) != 0) {
+            frequentHours.add(new Hour(rs.getString("user_id"), rs.getTimestamp("hour_bucket")));
+          }
+        });
+
+    suspiciousFlagRepository.saveAll(flags);
+    flagFrequentHours(frequentHours, rules);
+    metrics.scannerChunk(rows[0], flags.size());
+
+    log.debug("Scanned {} transactions after id {}, {} flags", rows[0], after, flags.size());
+
+    // A short chunk read everything up to the pending id.
+    return rows[0] < limit ? upTo : last[0];
+  }
+
+  private void flagFrequentHours(Set<Hour> hours, SuspiciousRuleConfiguration rules) {
+    if (hours.isEmpty()) {
+      return;
+    }
+    MapSqlParameterSource[] batch =
+        hours.stream()
+            .map(
+                hour ->
+                    new MapSqlParameterSource()
+                        .addValue("userId", hour.userId())
+                        .addValue("hourStart", hour.start())
+                        .addValue(
+                            "hourEnd",
+                            Timestamp.valueOf(hour.start().toLocalDateTime().plusHours(1)))
+                        .addValue("smallTransactionAmount", rules.getSmallTransactionAmount()))
+            .toArray(MapSqlParameterSource[]::new);
+    namedParameterJdbcTemplate.batchUpdate(FLAG_FREQUENT_HOUR_SQL, batch);
+  }
+}
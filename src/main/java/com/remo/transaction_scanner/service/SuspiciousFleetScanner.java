@@ -0,0 +1,227 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.FleetScanProperties;
+import com.remo.transaction_scanner.config.ReadRouting;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Streams the suspicious transactions of every user in a time range, oldest first. The range is
+ * cut into consecutive slices of at most {@code sliceDuration}, and at least one per shard, dealt
+ * round-robin to {@code shards} shards. Each shard reads its slices in order on its own virtual
+ * thread and pooled connection into a bounded queue, so every row of the range is read once and
+ * the queues are drained slice by slice as the sink consumes them. A scan holds at most {@code
+ * shards * queueCapacity} rows however large the range, and shards only read ahead as fast as the
+ * sink drains them.
+ */
+@Service
+@Slf4j
+public class SuspiciousFleetScanner {
+
+  // Put in a shard's queue after the last row of each of its slices, or after it failed.
+  private static final TransactionResponse END = TransactionResponse.builder().build();
+
+  private final SuspiciousTransactionFinder suspiciousTransactionFinder;
+  private final FleetScanProperties fleetScanProperties;
+  private final TransactionScannerMetrics metrics;
+
+  @Autowired
+  public SuspiciousFleetScanner(
+      SuspiciousTransactionFinder suspiciousTransactionFinder,
+      FleetScanProperties fleetScanProperties,
+      TransactionScannerMetrics metrics) {
+    this.suspiciousTransactionFinder = suspiciousTransactionFinder;
+    this.fleetScanProperties = fleetScanProperties;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Hands every suspicious transaction with a timestamp in {@code [from, to)} to {@code sink},
+   * oldest first. If a shard fails, or the sink throws, the other shards' queries are cancelled on
+   * the server and the failure is rethrown; the method never returns while a shard is still
+   * running.
+   *
+   * @return the number of rows handed to {@code sink}
+   */
+  public long scan(Timestamp from, Timestamp to, Consumer<TransactionResponse> sink) {
+    long rows = metrics.timeFleetScan(() -> new Scan(from, to).run(sink));
+
+    log.info("Streamed {} suspicious transactions of all users between {} and {}", rows, from, to);
+
+    return rows;
+  }
+
+  /** A checked {@code [from, to)} range of a scan. */
+  public record Range(Timestamp from, Timestamp to) {}
+
+  private final class Scan {
+
+    private final int shards = fleetScanProperties.getShards();
+    private final List<Range> slices;
+    private final List<BlockingQueue<TransactionResponse>> queues = new ArrayList<>();
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+
+    private Scan(Timestamp from, Timestamp to) {
+      this.slices = slice(from, to);
+      for (int shard = 0; shard < shards; shard++) {
+        queues.add(new ArrayBlockingQueue<>(fleetScanProperties.getQueueCapacity()));
+      }
+    }
+
+    // Cuts [from, to) into consecutive slices on microsecond bounds, the timestamp resolution.
+    private List<Range> slice(Timestamp from, Timestamp to) {
+      long start = micros(from);
+      long span = micros(to) - start;
+      long sliceMicros = Math.max(1, fleetScanProperties.getSliceDuration().toNanos() / 1000);
+      long count = Math.max(shards, (span + sliceMicros - 1) / sliceMicros);
+
+      List<Range> ranges = new ArrayList<>();
+      Timestamp lower = from;
+      for (long slice = 1; slice <= count; slice++) {
+        Timestamp upper =
+            slice == count
+                ? to
+                : timestamp(start + span / count * slice + span % count * slice / count);
+        ranges.add(new Range(lower, upper));
+        lower = upper;
+      }
+      return ranges;
+    }
+
+    private long run(Consumer<TransactionResponse> sink) {
+      // Read routing is per thread, so hand the caller's choice to the shard threads.
+      boolean primaryPinned = ReadRouting.isPrimaryPinned();
+
+      // Closing the executor waits for every shard, which scopes the queries to this call.
+      try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int shard = 0; shard < shards; shard++) {
+          int index = shard;
+          scope.execute(
+              () -> {
+                try (ReadRouting.Scope routing = ReadRouting.pin(primaryPinned)) {
+                  read(index);
+                }
+              });
+        }
+        try {
+          return drain(sink);
+        } catch (RuntimeException e) {
+          cancel();
+          throw e;
+        } catch (InterruptedException e) {
+          cancel();
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while scanning suspicious transactions", e);
+        }
+      }
+    }
+
+    // Reads slices shard, shard + shards, ... each followed by END, and stops after a failure.
+    private void read(int shard) {
+      BlockingQueue<TransactionResponse> queue = queues.get(shard);
+      try {
+        for (int slice = shard; slice < slices.size() && failure.get() == null; slice += shards) {
+          Range range = slices.get(slice);
+          try {
+            suspiciousTransactionFinder.streamFleetSlice(
+                range.from(), range.to(), statements::add, row -> put(queue, row));
+          } catch (CancellationException e) {
+            return;
+          } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+          }
+          put(queue, END);
+        }
+      } catch (CancellationException e) {
+        // The drain is gone; nothing waits for the end of this slice.
+      }
+    }
+
+    // Hands over the slices in order, each already in (timestamp, id) order.
+    private long drain(Consumer<TransactionResponse> sink) throws InterruptedException {
+      long rows = 0;
+      for (int slice = 0; slice < slices.size(); slice++) {
+        BlockingQueue<TransactionResponse> queue = queues.get(slice % shards);
+        TransactionResponse next;
+        while ((next = take(queue)) != END) {
+          throwIfFailed();
+          sink.accept(next);
+          rows++;
+        }
+        throwIfFailed();
+      }
+      return rows;
+    }
+
+    // Waits for the next row of the queue, giving up once a shard has failed: the shard owning a
+    // later slice stops without reading it.
+    private TransactionResponse take(BlockingQueue<TransactionResponse> queue)
+        throws InterruptedException {
+      TransactionResponse next;
+      while ((next = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+        throwIfFailed();
+      }
+      return next;
+    }
+
+    private void throwIfFailed() {
+      RuntimeException failed = failure.get();
+      if (failed != null) {
+        throw failed;
+      }
+    }
+
+    // Waits for room in the queue, giving up once the scan is cancelled.
+    private void put(BlockingQueue<TransactionResponse> queue, TransactionResponse row) {
+      try {
+        while (!queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+          if (cancelled) {
+            throw new CancellationException("Fleet scan cancelled");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Fleet scan interrupted");
+      }
+    }
+
+    private void cancel() {
+      cancelled = true;
+      for (Statement statement : statements) {
+        try {
+          statement.cancel();
+        } catch (SQLException e) {
+          log.debug("Could not cancel fleet scan query", e);
+        }
+      }
+    }
+  }
+
+  private static long micros(Timestamp timestamp) {
+    return Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000 + timestamp.getNanos() / 1000;
+  }
+
+  private static Timestamp timestamp(long micros) {
+    Timestamp timestamp = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+    timestamp.setNanos((int) Math.floorMod(micros, 1_000_000) * 1000);
+    return timestamp;
+  }
+}
@@ -0,0 +1,47 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.time.Duration;
+
+/**
+ * A suspicious rule evaluated by {@link SuspiciousRuleEvaluator} in one pass over a user's
+ * transactions in time order. Every {@code SuspiciousRule} bean is picked up by the evaluator, so
+ * a new rule is a new bean and costs no extra query.
+ */
+public interface SuspiciousRule {
+
+  /** The reason the rule adds to the transactions it flags. */
+  SuspiciousReason reason();
+
+  /** How far before a transaction the rule needs to see history to evaluate it. */
+  Duration lookback(SuspiciousRuleConfiguration rules);
+
+  /**
+   * How long after a transaction the rule may still flag it, e.g. because a threshold is only
+   * reached later in the same hour. Zero for rules that only flag the current transaction.
+   */
+  Duration lookahead(SuspiciousRuleConfiguration rules);
+
+  /** Starts evaluating one user's transactions with fresh state. */
+  Evaluation begin(SuspiciousRuleConfiguration rules);
+
+  /** State of the rule for one pass. Not shared between threads. */
+  interface Evaluation {
+
+    /**
+     * Sees the next transaction of the pass, oldest first ({@code timestamp, id} order). {@code
+     * sequence} numbers the transactions of the pass from zero; the rule may flag this one and any
+     * earlier one within {@link #lookahead} of it.
+     */
+    void accept(
+        long sequence, long epochMicros, long amountCents, TransactionType type, Flags flags);
+  }
+
+  /** Receives the flags raised by an {@link Evaluation}. */
+  @FunctionalInterface
+  interface Flags {
+    void flag(long sequence);
+  }
+}
@@ -0,0 +1,216 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Evaluates every {@link SuspiciousRule} bean over a user's transactions with one ordered read and
+ * one pass: each row is handed to every rule as it arrives, and a transaction is emitted with its
+ * reasons once no rule can flag it any more, i.e. once the pass is further than the longest
+ * {@link SuspiciousRule#lookahead} past it. Only those rows are held in memory.
+ */
+@Service
+public class SuspiciousRuleEvaluator {
+
+  static final String HISTORY_SQL =
+      """
+      SELECT id, user_id, amount, timestamp, transaction_type
+      FROM transaction_scanner.transactions
+      WHERE user_id = :userId
+      ORDER BY timestamp, id
+      """;
+
+  static final String HISTORY_RANGE_SQL =
+      """
+      SELECT id, user_id, amount, timestamp, transaction_type
+      FROM transaction_scanner.transactions
+      WHERE user_id = :userId
+        AND timestamp >= CAST(:from AS timestamp)
+        AND timestamp < CAST(:to AS timestamp)
+      ORDER BY timestamp, id
+      """;
+
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private final RuleConfigurationService ruleConfigurationService;
+  private final List<SuspiciousRule> rules;
+
+  /** Receives each suspicious transaction with its reasons, oldest first. */
+  @FunctionalInterface
+  public interface ReasonSink {
+    void accept(TransactionResponse transaction, EnumSet<SuspiciousReason> reasons);
+  }
+
+  @Autowired
+  public SuspiciousRuleEvaluator(
+      @Qualifier("readNamedParameterJdbcTemplate")
+          NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+      RuleConfigurationService ruleConfigurationService,
+      List<SuspiciousRule> rules) {
+    this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    this.ruleConfigurationService = ruleConfigurationService;
+    this.rules = List.copyOf(rules);
+  }
+
+  /** Evaluates every transaction of the user. */
+  public void evaluate(String userId, ReasonSink sink) {
+    Pass pass = begin(ruleConfigurationService.current(), sink);
+    namedParameterJdbcTemplate.query(
+        HISTORY_SQL, new MapSqlParameterSource("userId", userId), pass.rowHandler());
+    pass.finish();
+  }
+
+  /**
+   * Evaluates the transactions with a timestamp in {@code [from, to)}, reading only the rules'
+   * lookback before and lookahead after the range.
+   */
+  public void evaluate(String userId, Timestamp from, Timestamp to, ReasonSink sink) {
+    SuspiciousRuleConfiguration configuration = ruleConfigurationService.current();
+    Duration lookback = Duration.ZERO;
+    Duration lookahead = Duration.ZERO;
+    for (SuspiciousRule rule : rules) {
+      lookback = max(lookback, rule.lookback(configuration));
+      lookahead = max(lookahead, rule.lookahead(configuration));
+    }
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("from", Timestamp.from(from.toInstant().minus(lookback)))
+            .addValue("to", Timestamp.from(to.toInstant().plus(lookahead)));
+
+    Pass pass =
+        begin(
+            configuration,
+            (transaction, reasons) -> {
+              Timestamp timestamp = transaction.getTimestamp();
+              if (!timestamp.before(from) && timestamp.before(to)) {
+                sink.accept(transaction, reasons);
+              }
+            });
+    namedParameterJdbcTemplate.query(HISTORY_RANGE_SQL, params, pass.rowHandler());
+    pass.finish();
+  }
+
+  /** Starts a pass of every rule over transactions the caller feeds in order. */
+  Pass begin(SuspiciousRuleConfiguration configuration, ReasonSink sink) {
+    return new Pass(rules, configuration, sink);
+  }
+
+  private static Duration max(Duration a, Duration b) {
+    return a.compareTo(b) >= 0 ? a : b;
+  }
+
+  /** One pass over one user's transactions. Not thread safe. */
+  static final class Pass {
+
+    private final SuspiciousRule.Evaluation[] evaluations;
+    private final SuspiciousRule.Flags[] flags;
+    private final long lookaheadMicros;
+    private final ReasonSink sink;
+
+    // Transactions a rule may still flag, oldest first, from index head; the one at head has
+    // sequence firstPending.
+    private final List<Pending> pending = new ArrayList<>();
+    private int head;
+    private long firstPending;
+    private long nextSequence;
+
+    private Pass(
+        List<SuspiciousRule> rules, SuspiciousRuleConfiguration configuration, ReasonSink sink) {
+      this.evaluations = new SuspiciousRule.Evaluation[rules.size()];
+      this.flags = new SuspiciousRule.Flags[rules.size()];
+      long lookahead = 0;
+      for (int i = 0; i < rules.size(); i++) {
+        SuspiciousRule rule = rules.get(i);
+        SuspiciousReason reason = rule.reason();
+        evaluations[i] = rule.begin(configuration);
+        flags[i] = sequence -> flag(sequence, reason);
+        lookahead = Math.max(lookahead, rule.lookahead(configuration).toNanos() / 1000);
+      }
+      this.lookaheadMicros = lookahead;
+      this.sink = sink;
+    }
+
+    /** Feeds the next transaction, in {@code (timestamp, id)} order. */
+    void accept(TransactionResponse transaction) {
+      long sequence = nextSequence++;
+      long micros = UserActivityWindow.epochMicros(transaction.getTimestamp());
+      pending.add(new Pending(transaction, micros));
+      for (int i = 0; i < evaluations.length; i++) {
+        evaluations[i].accept(
+            sequence,
+            micros,
+            transaction.getAmountCents(),
+            transaction.getTransactionType(),
+            flags[i]);
+      }
+
+      // Strictly older, so rules can still flag transactions with the same timestamp.
+      while (head < pending.size() && pending.get(head).micros < micros - lookaheadMicros) {
+        settle();
+      }
+      if (head > 1024 && head > pending.size() / 2) {
+        pending.subList(0, head).clear();
+        head = 0;
+      }
+    }
+
+    /** Emits whatever is still pending; call after the last transaction. */
+    void finish() {
+      while (head < pending.size()) {
+        settle();
+      }
+      pending.clear();
+      head = 0;
+    }
+
+    RowCallbackHandler rowHandler() {
+      return rs -> accept(SuspiciousTransactionFinder.suspiciousViewRowMapper.mapRow(rs, 0));
+    }
+
+    private void flag(long sequence, SuspiciousReason reason) {
+      if (sequence < firstPending || sequence >= nextSequence) {
+        throw new IllegalStateException(
+            "Rule %s flagged transaction %d outside its lookahead".formatted(reason, sequence));
+      }
+      Pending transaction = pending.get(head + (int) (sequence - firstPending));
+      if (transaction.reasons == null) {
+        transaction.reasons = EnumSet.of(reason);
+      } else {
+        transaction.reasons.add(reason);
+      }
+    }
+
+    private void settle() {
+      Pending transaction = pending.get(head);
+      pending.set(head, null);
+      head++;
+      firstPending++;
+      if (transaction.reasons != null) {
+        sink.accept(transaction.transaction, transaction.reasons);
+      }
+    }
+  }
+
+  private static final class Pending {
+    private final TransactionResponse transaction;
+    private final long micros;
+    private EnumSet<SuspiciousReason> reasons;
+
+    private Pending(TransactionResponse transaction, long micros) {
+      this.transaction = transaction;
+      this.micros = micros;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.remo.transaction_scanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.remo.transaction_scanner.config.ReadRouting;
+import com.remo.transaction_scanner.config.SuspiciousCacheProperties;
+import com.remo.transaction_scanner.model.CacheStatsResponse;
+import com.remo.transaction_scanner.model.RuleConfigurationChangedEvent;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded per-user cache of suspicious transaction lists. Entries are dropped when the user writes
+ * a new transaction through this instance, once that write has committed, so a read never returns
+ * a list older than the user's last write committed here. Invalidations are not shared with other
+ * instances; a write taken by another one is only seen once the entry expires after {@code ttl}. A
+ * list read from a replica within {@code replicaLag} of the user's last write may predate it, so
+ * it is returned but not cached. Its statistics are also published as {@code cache.*} meters with
+ * {@code cache=suspicious_transactions}.
+ */
+@Component
+public class SuspiciousTransactionCache implements MeterBinder {
+
+  private final SuspiciousCacheProperties properties;
+  private final Cache<String, List<TransactionResponse>> cache;
+
+  // Stamp of each user's last invalidation, drawn from invalidations. A load only stays cached if
+  // its user's stamp did not change while it was reading, otherwise it could put back a list read
+  // before the write committed. Kept for the ttl, since a load outliving it is already stale.
+  private final AtomicLong invalidations = new AtomicLong();
+  private final Cache<String, Long> invalidatedAt;
+
+  // Bumped when the rules change, which makes every list being loaded stale.
+  private final AtomicLong ruleChanges = new AtomicLong();
+
+  // Users written within the replica lag, whose lists are only cached when read from the primary.
+  private final Cache<String, Boolean> recentWrites;
+
+  @Autowired
+  public SuspiciousTransactionCache(SuspiciousCacheProperties properties) {
+    this.properties = properties;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(properties.getMaxUsers())
+            .expireAfterWrite(properties.getTtl())
+            .recordStats()
+            .build();
+    this.invalidatedAt = Caffeine.newBuilder().expireAfterWrite(properties.getTtl()).build();
+    this.recentWrites = Caffeine.newBuilder().expireAfterWrite(properties.getReplicaLag()).build();
+  }
+
+  /** Returns the cached list for {@code userId}, loading it with {@code loader} on a miss. */
+  public List<TransactionResponse> get(
+      String userId, Function<String, List<TransactionResponse>> loader) {
+    if (!properties.isEnabled()) {
+      return loader.apply(userId);
+    }
+    List<TransactionResponse> cached = cache.getIfPresent(userId);
+    if (cached != null) {
+      return cached;
+    }
+    return load(userId, loader);
+  }
+
+  /**
+   * Loads the list for {@code userId} with {@code loader} even if one is cached, and caches the
+   * result, for reads that must not be served a stale list.
+   */
+  public List<TransactionResponse> refresh(
+      String userId, Function<String, List<TransactionResponse>> loader) {
+    if (!properties.isEnabled()) {
+      return loader.apply(userId);
+    }
+    return load(userId, loader);
+  }
+
+  private List<TransactionResponse> load(
+      String userId, Function<String, List<TransactionResponse>> loader) {
+    long rulesBefore = ruleChanges.get();
+    Long stampBefore = invalidatedAt.getIfPresent(userId);
+    List<TransactionResponse> loaded = loader.apply(userId);
+    if (!ReadRouting.isPrimaryPinned() && recentWrites.getIfPresent(userId) != null) {
+      return loaded;
+    }
+    cache.put(userId, loaded);
+    if (ruleChanges.get() != rulesBefore
+        || !Objects.equals(invalidatedAt.getIfPresent(userId), stampBefore)) {
+      cache.invalidate(userId);
+    }
+    return loaded;
+  }
+
+  /**
+   * Drops the cached lists of {@code userIds} after the current transaction commits, or right away
+   * when there is none.
+   */
+  public void invalidateAfterCommit(Collection<String> userIds) {
+    if (!properties.isEnabled() || userIds.isEmpty()) {
+      return;
+    }
+    invalidate(userIds);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              invalidate(userIds);
+            }
+          });
+    }
+  }
+
+  /** Every cached list was computed with the old thresholds. */
+  @EventListener
+  public void onRuleConfigurationChanged(RuleConfigurationChangedEvent event) {
+    ruleChanges.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "suspicious_transactions");
+  }
+
+  public CacheStatsResponse stats() {
+    CacheStats stats = cache.stats();
+    return CacheStatsResponse.builder()
+        .hits(stats.hitCount())
+        .misses(stats.missCount())
+        .hitRatio(stats.hitRate())
+        .missRatio(stats.missRate())
+        .evictions(stats.evictionCount())
+        .size(cache.estimatedSize())
+        .build();
+  }
+
+  private void invalidate(Collection<String> userIds) {
+    for (String userId : userIds) {
+      recentWrites.put(userId, Boolean.TRUE);
+      invalidatedAt.put(userId, invalidations.incrementAndGet());
+    }
+    cache.invalidateAll(userIds);
+  }
+}
@@ -1,62 +1,517 @@
 package com.remo.transaction_scanner.service;
 
+import com.remo.transaction_scanner.config.FinderProperties;
+import com.remo.transaction_scanner.config.ReadRouting;
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.PageCursor;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
 import com.remo.transaction_scanner.model.TransactionResponse;
 import com.remo.transaction_scanner.model.TransactionType;
 import com.remo.transaction_scanner.repository.*;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @Slf4j
 public class SuspiciousTransactionFinder {
 
+  // Reasons in the order the rule queries have always reported them.
+  private static final SuspiciousReason[] RULE_ORDER = {
+    SuspiciousReason.FREQUENT_SMALL_TRANSACTION,
+    SuspiciousReason.HIGH_VOLUME_TRANSACTION,
+    SuspiciousReason.RAPID_TRANSFER
+  };
+
+  // The rules of the views, each tagged with the bit of its reason (1 << ordinal) and folded into
+  // one row per transaction with bit_or, ordered by Postgres. The frequent rule only reads the
+  // small transactions of the hours whose counter reaches the threshold, joined on the hour's
+  // timestamp range so the (user_id, timestamp, id) index bounds them. The thresholds are bind
+  // parameters, so there is no join on the configuration table.
+  static final String SINGLE_QUERY_SQL =
+      """
+      SELECT id, user_id, amount, timestamp, transaction_type, bit_or(reason_bit) AS reasons
+      FROM (
+          SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type, %d AS reason_bit
+          FROM transaction_scanner.user_hourly_rollups h
+          JOIN transaction_scanner.transactions t
+              ON t.user_id = h.user_id
+              AND t.timestamp >= h.hour_bucket
+              AND t.timestamp < h.hour_bucket + INTERVAL '1 hour'
+          WHERE h.user_id = :userId
+            AND h.small_transaction_count >= :frequentThreshold
+            AND t.amount <= :smallTransactionAmount
+          UNION ALL
+          SELECT id, user_id, amount, timestamp, transaction_type, %d
+          FROM transaction_scanner.transactions
+          WHERE user_id = :userId
+            AND amount >= :highVolumeAmount
+          UNION ALL
+          SELECT id, user_id, amount, timestamp, transaction_type, %d
+          FROM transaction_scanner.suspicious_rapid_transactions_for_user(
+              :userId, :rapidWindowSeconds, :rapidThreshold)
+      ) s
+      GROUP BY id, user_id, amount, timestamp, transaction_type
+      ORDER BY timestamp DESC, id DESC
+      """
+          .formatted(
+              reasonBit(SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+              reasonBit(SuspiciousReason.HIGH_VOLUME_TRANSACTION),
+              reasonBit(SuspiciousReason.RAPID_TRANSFER));
+
+  // Same rules as the views, but each bounded to the rows that can affect [from, to) so Postgres
+  // prunes every other partition: the frequent rule takes its hourly counts from the counters, so
+  // it only reads the range, and the rapid rule reads the window before it. Rapid is evaluated as
+  // a trailing window, as the write-time detector does.
+  static final String TIME_RANGE_SQL =
+      """
+      SELECT id, user_id, amount, timestamp, transaction_type, bit_or(reason_bit) AS reasons
+      FROM (
+          SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type, %d AS reason_bit
+          FROM transaction_scanner.user_hourly_rollups h
+          JOIN transaction_scanner.transactions t
+              ON t.user_id = h.user_id
+              AND t.timestamp >= h.hour_bucket
+              AND t.timestamp < h.hour_bucket + INTERVAL '1 hour'
+          WHERE h.user_id = :userId
+            AND h.hour_bucket >= date_trunc('hour', CAST(:from AS timestamp))
+            AND h.hour_bucket < CAST(:to AS timestamp)
+            AND h.small_transaction_count >= :frequentThreshold
+            AND t.amount <= :smallTransactionAmount
+            AND t.timestamp >= CAST(:from AS timestamp)
+            AND t.timestamp < CAST(:to AS timestamp)
+          UNION ALL
+          SELECT id, user_id, amount, timestamp, transaction_type, %d
+          FROM transaction_scanner.transactions
+          WHERE user_id = :userId
+            AND amount >= :highVolumeAmount
+            AND timestamp >= CAST(:from AS timestamp)
+            AND timestamp < CAST(:to AS timestamp)
+          UNION ALL
+          SELECT id, user_id, amount, timestamp, transaction_type, %d
+          FROM (
+              SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type,
+                     COUNT(*) OVER (
+                         ORDER BY t.timestamp
+                         RANGE BETWEEN :rapidWindowSeconds * INTERVAL '1 second' PRECEDING
+                         AND CURRENT ROW
+                     ) AS five_min_count
+              FROM transaction_scanner.transactions t
+              WHERE t.user_id = :userId
+                AND t.timestamp >= CAST(:from AS timestamp)
+                    - :rapidWindowSeconds * INTERVAL '1 second'
+                AND t.timestamp < CAST(:to AS timestamp)
+          ) rapid
+          WHERE five_min_count >= :rapidThreshold
+      ) s
+      WHERE timestamp >= CAST(:from AS timestamp) AND timestamp < CAST(:to AS timestamp)
+      GROUP BY id, user_id, amount, timestamp, transaction_type
+      ORDER BY timestamp DESC, id DESC
+      """
+          .formatted(
+              reasonBit(SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+              reasonBit(SuspiciousReason.HIGH_VOLUME_TRANSACTION),
+              reasonBit(SuspiciousReason.RAPID_TRANSFER));
+
+  // The three rules evaluated for one row t of transactions, each with an index probe, folded into
+  // the bitmask of its reasons. Evaluating per row keeps the (user_id, timestamp, id) index order,
+  // so callers can stop early or consume rows as they come without a sort. The frequent rule reads
+  // the hour's counter; the rapid rule only counts the window when the 5 minute counters covering
+  // it can reach the threshold.
+  static final String ROW_REASONS_SQL =
+      """
+      CASE WHEN t.amount <= :smallTransactionAmount AND (
+          SELECT h.small_transaction_count
+          FROM transaction_scanner.user_hourly_rollups h
+          WHERE h.user_id = t.user_id
+            AND h.hour_bucket = t.hour_bucket
+      ) >= :frequentThreshold THEN %d ELSE 0 END
+      | CASE WHEN t.amount >= :highVolumeAmount THEN %d ELSE 0 END
+      | CASE WHEN (
+          SELECT coalesce(sum(m.transaction_count), 0)
+          FROM transaction_scanner.user_five_minute_rollups m
+          WHERE m.user_id = t.user_id
+            AND m.bucket_start > t.timestamp - :rapidWindowSeconds * INTERVAL '1 second'
+                - INTERVAL '5 minutes'
+            AND m.bucket_start <= t.timestamp
+      ) < :rapidThreshold THEN 0
+      WHEN (
+          SELECT count(*)
+          FROM transaction_scanner.transactions r
+          WHERE r.user_id = t.user_id
+            AND r.timestamp >= t.timestamp - :rapidWindowSeconds * INTERVAL '1 second'
+            AND r.timestamp <= t.timestamp
+      ) >= :rapidThreshold THEN %d ELSE 0 END
+      """
+          .formatted(
+              reasonBit(SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+              reasonBit(SuspiciousReason.HIGH_VOLUME_TRANSACTION),
+              reasonBit(SuspiciousReason.RAPID_TRANSFER));
+
+  // Walks the user's transactions backwards from the cursor along the (user_id, timestamp, id)
+  // index, so Postgres can stop as soon as it has a page of suspicious rows no matter how deep the
+  // cursor is.
+  static final String PAGE_SQL =
+      "SELECT id, user_id, amount, timestamp, transaction_type, reasons FROM ("
+          + " SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type, "
+          + ROW_REASONS_SQL
+          + " AS reasons FROM transaction_scanner.transactions t"
+          + " WHERE t.user_id = :userId"
+          + " AND (t.timestamp, t.id) < (CAST(:cursorTimestamp AS timestamp), :cursorId)"
+          + ") s WHERE reasons <> 0"
+          + " ORDER BY timestamp DESC, id DESC"
+          + " LIMIT :limit";
+
+  // Every suspicious transaction of a user in (timestamp desc, id desc) order, read through a
+  // cursor. There is no GROUP BY or sort for the server to materialize before the first row.
+  static final String STREAM_SQL =
+      "SELECT id, user_id, amount, timestamp, transaction_type, reasons FROM ("
+          + " SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type, "
+          + ROW_REASONS_SQL
+          + " AS reasons FROM transaction_scanner.transactions t"
+          + " WHERE t.user_id = :userId"
+          + ") s WHERE reasons <> 0"
+          + " ORDER BY timestamp DESC, id DESC";
+
+  // The suspicious transactions of every user with a timestamp in one slice [from, to) of a fleet
+  // scan, oldest first along the (timestamp, id) index, which only reads the rows of the slice.
+  // Reasons are evaluated per row against the user's whole history, so rows at the start of the
+  // slice still see the hour and the rapid window before it.
+  static final String FLEET_SLICE_SQL =
+      "SELECT id, user_id, amount, timestamp, transaction_type, reasons FROM ("
+          + " SELECT t.id, t.user_id, t.amount, t.timestamp, t.transaction_type, "
+          + ROW_REASONS_SQL
+          + " AS reasons FROM transaction_scanner.transactions t"
+          + " WHERE t.timestamp >= CAST(:from AS timestamp)"
+          + " AND t.timestamp < CAST(:to AS timestamp)"
+          + ") s WHERE reasons <> 0"
+          + " ORDER BY timestamp, id";
+
+  static final String FREQUENT_VIEW_SQL =
+      "SELECT id, user_id, amount, timestamp, cnt, transaction_type FROM transaction_scanner.suspicious_frequent_transactions WHERE user_id = ?";
+
+  static final String HIGH_VOLUME_VIEW_SQL =
+      "SELECT id, user_id, amount, timestamp, transaction_type FROM transaction_scanner.suspicious_high_volume_transactions WHERE user_id = ?";
+
+  // A trailing window over the user's rows; the window and threshold are bound after the user.
+  static final String RAPID_VIEW_SQL =
+      "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions_for_user(?, ?, ?)";
+
+  // Rule views in RULE_ORDER, the order their reasons are merged in.
+  private static final Map<SuspiciousReason, String> RULE_VIEW_SQL = new LinkedHashMap<>();
+
+  static {
+    RULE_VIEW_SQL.put(SuspiciousReason.FREQUENT_SMALL_TRANSACTION, FREQUENT_VIEW_SQL);
+    RULE_VIEW_SQL.put(SuspiciousReason.HIGH_VOLUME_TRANSACTION, HIGH_VOLUME_VIEW_SQL);
+    RULE_VIEW_SQL.put(SuspiciousReason.RAPID_TRANSFER, RAPID_VIEW_SQL);
+  }
+
+  private static final Comparator<TransactionResponse> NEWEST_FIRST =
+      Comparator.comparing(TransactionResponse::getTimestamp)
+          .thenComparingLong(TransactionResponse::getId)
+          .reversed();
+
   private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private final FinderProperties finderProperties;
+  private final RuleConfigurationService ruleConfigurationService;
+  private final TransactionScannerMetrics metrics;
+  private final SuspiciousRuleEvaluator ruleEvaluator;
 
-  private static final RowMapper<TransactionResponse> suspiciousViewRowMapper =
+  static final RowMapper<TransactionResponse> suspiciousViewRowMapper =
       (rs, rowNum) ->
           TransactionResponse.builder()
               .id(rs.getLong("id"))
               .userId(rs.getString("user_id"))
-              .amount(rs.getBigDecimal("amount"))
+              .amountCents(Cents.of(rs.getBigDecimal("amount")))
               .timestamp(rs.getTimestamp("timestamp"))
               .transactionType(TransactionType.valueOf(rs.getString("transaction_type")))
               .build();
 
+  static final RowMapper<TransactionResponse> singleQueryRowMapper =
+      (rs, rowNum) -> {
+        TransactionResponse tr = suspiciousViewRowMapper.mapRow(rs, rowNum);
+        int reasons = rs.getInt("reasons");
+        for (SuspiciousReason reason : RULE_ORDER) {
+          if ((reasons & reasonBit(reason)) != 0) {
+            tr.getSuspiciousReason().add(reason.getDescription());
+          }
+        }
+        return tr;
+      };
+
+  /** Reads through the {@code read*} templates, so they go to a replica when there is one. */
   @Autowired
-  public SuspiciousTransactionFinder(JdbcTemplate jdbcTemplate) {
+  public SuspiciousTransactionFinder(
+      @Qualifier("readJdbcTemplate") JdbcTemplate jdbcTemplate,
+      @Qualifier("readNamedParameterJdbcTemplate")
+          NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+      FinderProperties finderProperties,
+      RuleConfigurationService ruleConfigurationService,
+      TransactionScannerMetrics metrics,
+      SuspiciousRuleEvaluator ruleEvaluator) {
     this.jdbcTemplate = jdbcTemplate;
+    this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    this.finderProperties = finderProperties;
+    this.ruleConfigurationService = ruleConfigurationService;
+    this.metrics = metrics;
+    this.ruleEvaluator = ruleEvaluator;
   }
 
   public List<TransactionResponse> getAllSuspiciousTransactionForUserId(String userId) {
-    List<TransactionResponse> allSuspiciousTransactions = new ArrayList<>();
-    Map<Long, TransactionResponse> suspiciousTransactions = new HashMap<>();
+    return switch (finderProperties.getStrategy()) {
+      case RULE_QUERIES -> findWithRuleQueries(userId);
+      case PARALLEL_RULE_QUERIES -> findWithParallelRuleQueries(userId);
+      case SINGLE_QUERY -> findWithSingleQuery(userId);
+      case SINGLE_PASS -> findWithSinglePass(userId);
+    };
+  }
 
-    String freqSql =
-        "SELECT id, user_id, amount, timestamp, cnt, transaction_type FROM transaction_scanner.suspicious_frequent_transactions WHERE user_id = ?";
-    List<TransactionResponse> frequent =
-        jdbcTemplate.query(freqSql, suspiciousViewRowMapper, userId);
-    frequent.forEach(
-        tr -> {
-          tr.getSuspiciousReason().add("Frequent transaction");
-          suspiciousTransactions.put(tr.getId(), tr);
+  /**
+   * Reads the user's transactions once in time order and runs every {@link SuspiciousRule} over
+   * them in one pass.
+   */
+  public List<TransactionResponse> findWithSinglePass(String userId) {
+    List<TransactionResponse> suspicious =
+        metrics.timeRuleQuery(
+            TransactionScannerMetrics.ALL_RULES,
+            "SINGLE_PASS",
+            () -> {
+              List<TransactionResponse> rows = new ArrayList<>();
+              ruleEvaluator.evaluate(userId, describeInto(rows));
+              Collections.reverse(rows);
+              return rows;
+            });
+
+    log.info("Found {} suspicious transactions for user {}", suspicious.size(), userId);
+
+    return suspicious;
+  }
+
+  /** Fetches every suspicious transaction with its reasons in one round-trip. */
+  public List<TransactionResponse> findWithSingleQuery(String userId) {
+    List<TransactionResponse> suspicious =
+        metrics.timeRuleQuery(
+            TransactionScannerMetrics.ALL_RULES,
+            "SINGLE_QUERY",
+            () ->
+                namedParameterJdbcTemplate.query(
+                    SINGLE_QUERY_SQL, ruleParams(userId), singleQueryRowMapper));
+
+    log.info("Found {} suspicious transactions for user {}", suspicious.size(), userId);
+
+    return suspicious;
+  }
+
+  /**
+   * Fetches suspicious transactions with a timestamp in {@code [from, to)}, reading only the
+   * partitions that can affect that range.
+   */
+  public List<TransactionResponse> findInTimeRange(String userId, Timestamp from, Timestamp to) {
+    List<TransactionResponse> suspicious =
+        finderProperties.getStrategy() == FinderProperties.FinderStrategy.SINGLE_PASS
+            ? findInTimeRangeWithSinglePass(userId, from, to)
+            : findInTimeRangeWithQuery(userId, from, to);
+
+    log.info(
+        "Found {} suspicious transactions for user {} between {} and {}",
+        suspicious.size(),
+        userId,
+        from,
+        to);
+
+    return suspicious;
+  }
+
+  private List<TransactionResponse> findInTimeRangeWithQuery(
+      String userId, Timestamp from, Timestamp to) {
+    MapSqlParameterSource params = ruleParams(userId).addValue("from", from).addValue("to", to);
+    return metrics.timeRuleQuery(
+        TransactionScannerMetrics.ALL_RULES,
+        "TIME_RANGE",
+        () -> namedParameterJdbcTemplate.query(TIME_RANGE_SQL, params, singleQueryRowMapper));
+  }
+
+  private List<TransactionResponse> findInTimeRangeWithSinglePass(
+      String userId, Timestamp from, Timestamp to) {
+    return metrics.timeRuleQuery(
+        TransactionScannerMetrics.ALL_RULES,
+        "TIME_RANGE_SINGLE_PASS",
+        () -> {
+          List<TransactionResponse> rows = new ArrayList<>();
+          ruleEvaluator.evaluate(userId, from, to, describeInto(rows));
+          Collections.reverse(rows);
+          return rows;
         });
+  }
+
+  // Adds the reasons to each transaction, the built-in ones in RULE_ORDER and those of any other
+  // rule after them, and collects it. The evaluator hands rows over oldest first.
+  private static SuspiciousRuleEvaluator.ReasonSink describeInto(List<TransactionResponse> rows) {
+    return (transaction, reasons) -> {
+      EnumSet<SuspiciousReason> remaining = EnumSet.copyOf(reasons);
+      for (SuspiciousReason reason : RULE_ORDER) {
+        if (remaining.remove(reason)) {
+          transaction.getSuspiciousReason().add(reason.getDescription());
+        }
+      }
+      remaining.forEach(reason -> transaction.getSuspiciousReason().add(reason.getDescription()));
+      rows.add(transaction);
+    };
+  }
+
+  /**
+   * Fetches up to {@code limit} suspicious transactions that sort after {@code cursor} in {@code
+   * (timestamp desc, id desc)} order.
+   */
+  public List<TransactionResponse> findPage(String userId, PageCursor cursor, int limit) {
+    MapSqlParameterSource params =
+        ruleParams(userId)
+            .addValue("cursorTimestamp", Timestamp.valueOf(cursor.getTimestamp()))
+            .addValue("cursorId", cursor.getId())
+            .addValue("limit", limit);
+    return metrics.timeRuleQuery(
+        TransactionScannerMetrics.ALL_RULES,
+        "PAGE",
+        () -> namedParameterJdbcTemplate.query(PAGE_SQL, params, singleQueryRowMapper));
+  }
+
+  /**
+   * Hands every suspicious transaction of a user to {@code sink} as it is read, newest first,
+   * without holding the result in memory. Runs in a read-only transaction on the read data source
+   * because the Postgres driver only fetches through a cursor, {@code fetchSize} rows at a time,
+   * with autocommit off.
+   *
+   * @return the number of rows handed to {@code sink}
+   */
+  @Transactional(transactionManager = "readTransactionManager", readOnly = true)
+  public long streamSuspiciousTransactions(String userId, Consumer<TransactionResponse> sink) {
+    long rows = streamThroughCursor(STREAM_SQL, ruleParams(userId), statement -> {}, sink);
+
+    log.info("Streamed {} suspicious transactions for user {}", rows, userId);
+
+    return rows;
+  }
+
+  /**
+   * Hands the suspicious transactions of every user with a timestamp in {@code [from, to)} to
+   * {@code sink} as they are read, oldest first. Reads through a cursor like {@link
+   * #streamSuspiciousTransactions}; the statement is passed to {@code onStatement} before it runs
+   * so the caller can cancel it.
+   *
+   * @return the number of rows handed to {@code sink}
+   */
+  @Transactional(transactionManager = "readTransactionManager", readOnly = true)
+  public long streamFleetSlice(
+      Timestamp from,
+      Timestamp to,
+      Consumer<Statement> onStatement,
+      Consumer<TransactionResponse> sink) {
+    MapSqlParameterSource params = thresholdParams().addValue("from", from).addValue("to", to);
+    return streamThroughCursor(FLEET_SLICE_SQL, params, onStatement, sink);
+  }
+
+  // The Postgres driver only fetches through a cursor with autocommit off, so callers run in a
+  // transaction on the read data source.
+  private long streamThroughCursor(
+      String namedSql,
+      MapSqlParameterSource params,
+      Consumer<Statement> onStatement,
+      Consumer<TransactionResponse> sink) {
+    ParsedSql parsed = NamedParameterUtils.parseSqlStatement(namedSql);
+    String sql = NamedParameterUtils.substituteNamedParameters(parsed, params);
+    Object[] values = NamedParameterUtils.buildValueArray(parsed, params, null);
+    PreparedStatementCreator statement =
+        con -> {
+          PreparedStatement ps =
+              con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+          ps.setFetchSize(finderProperties.getStreamFetchSize());
+          new ArgumentPreparedStatementSetter(values).setValues(ps);
+          onStatement.accept(ps);
+          return ps;
+        };
+    long[] rows = {0};
+    jdbcTemplate.query(
+        statement,
+        (RowCallbackHandler)
+            rs -> sink.accept(singleQueryRowMapper.mapRow(rs, (int) rows[0]++)));
+    return rows[0];
+  }
+
+  /** Runs one query per rule view and merges the results in Java. */
+  public List<TransactionResponse> findWithRuleQueries(String userId) {
+    List<TransactionResponse> frequent =
+        queryRuleView(SuspiciousReason.FREQUENT_SMALL_TRANSACTION, "RULE_QUERIES", userId);
 
     log.info(
         "Found {} frequent transactions for user {}",
         frequent != null ? frequent.size() : 0,
         userId);
 
-    String highVolSql =
-        "SELECT id, user_id, amount, timestamp, transaction_type FROM transaction_scanner.suspicious_high_volume_transactions WHERE user_id = ?";
     List<TransactionResponse> highVolume =
-        jdbcTemplate.query(highVolSql, suspiciousViewRowMapper, userId);
+        queryRuleView(SuspiciousReason.HIGH_VOLUME_TRANSACTION, "RULE_QUERIES", userId);
+
+    log.info(
+        "Found {} high volume transactions for user {}",
+        highVolume != null ? highVolume.size() : 0,
+        userId);
+
+    List<TransactionResponse> rapid =
+        queryRuleView(SuspiciousReason.RAPID_TRANSFER, "RULE_QUERIES", userId);
+
+    log.info("Found {} rapid transactions for user {}", rapid != null ? rapid.size() : 0, userId);
+
+    return metrics.timeMerge(
+        "RULE_QUERIES", () -> mergeRuleResults(frequent, highVolume, rapid));
+  }
+
+  /** Folds the rows of the three rule views into one response per transaction, newest first. */
+  static List<TransactionResponse> mergeRuleResults(
+      List<TransactionResponse> frequent,
+      List<TransactionResponse> highVolume,
+      List<TransactionResponse> rapid) {
+    Map<Long, TransactionResponse> suspiciousTransactions = new HashMap<>();
+
+    frequent.forEach(
+        tr -> {
+          tr.getSuspiciousReason().add("Frequent transaction");
+          suspiciousTransactions.put(tr.getId(), tr);
+        });
+
     highVolume.forEach(
         tr -> {
           if (suspiciousTransactions.containsKey(tr.getId())) {
@@ -68,14 +523,6 @@ public class SuspiciousTransactionFinder {
           }
         });
 
-    log.info(
-        "Found {} high volume transactions for user {}",
-        highVolume != null ? highVolume.size() : 0,
-        userId);
-
-    String rapidSql =
-        "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions WHERE user_id = ?";
-    List<TransactionResponse> rapid = jdbcTemplate.query(rapidSql, suspiciousViewRowMapper, userId);
     rapid.forEach(
         tr -> {
           if (suspiciousTransactions.containsKey(tr.getId())) {
@@ -87,11 +534,154 @@ public class SuspiciousTransactionFinder {
           }
         });
 
-    log.info("Found {} rapid transactions for user {}", rapid != null ? rapid.size() : 0, userId);
-    allSuspiciousTransactions.addAll(rapid);
-
     return suspiciousTransactions.values().stream()
         .sorted((tr1, tr2) -> tr2.getTimestamp().compareTo(tr1.getTimestamp()))
         .toList();
   }
+
+  /**
+   * Runs the three rule view queries at the same time, each on its own virtual thread and pooled
+   * connection, and merges them in rule order so the result does not depend on which query
+   * finishes first. If one query fails the others are cancelled on the server and the failure is
+   * rethrown; the method never returns while one of its queries is still running.
+   */
+  public List<TransactionResponse> findWithParallelRuleQueries(String userId) {
+    List<Statement> statements = new CopyOnWriteArrayList<>();
+    Map<SuspiciousReason, Future<List<TransactionResponse>>> results = new LinkedHashMap<>();
+    // Read routing is per thread, so hand the caller's choice to the query threads.
+    boolean primaryPinned = ReadRouting.isPrimaryPinned();
+
+    // Closing the executor waits for every task, which scopes the queries to this call.
+    try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+      CompletionService<List<TransactionResponse>> completion =
+          new ExecutorCompletionService<>(scope);
+      for (SuspiciousReason reason : RULE_VIEW_SQL.keySet()) {
+        results.put(
+            reason,
+            completion.submit(
+                () -> {
+                  try (ReadRouting.Scope routing = ReadRouting.pin(primaryPinned)) {
+                    return queryRuleViewCancellable(reason, userId, statements);
+                  }
+                }));
+      }
+      try {
+        for (int i = 0; i < results.size(); i++) {
+          completion.take().get();
+        }
+      } catch (ExecutionException e) {
+        cancel(results.values(), statements);
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw new IllegalStateException("Rule query failed for user " + userId, e.getCause());
+      } catch (InterruptedException e) {
+        cancel(results.values(), statements);
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while querying rules for user " + userId, e);
+      }
+    }
+
+    Map<SuspiciousReason, List<TransactionResponse>> rows = new LinkedHashMap<>();
+    results.forEach((reason, result) -> rows.put(reason, result.resultNow()));
+    List<TransactionResponse> suspicious =
+        metrics.timeMerge("PARALLEL_RULE_QUERIES", () -> mergeInRuleOrder(rows));
+
+    log.info(
+        "Found {} suspicious transactions for user {} with parallel rule queries",
+        suspicious.size(),
+        userId);
+
+    return suspicious;
+  }
+
+  /**
+   * Folds rule view rows, given in rule order, into one response per transaction sorted by {@code
+   * (timestamp desc, id desc)}, so the result only depends on the rows.
+   */
+  static List<TransactionResponse> mergeInRuleOrder(
+      Map<SuspiciousReason, List<TransactionResponse>> rows) {
+    Map<Long, TransactionResponse> suspiciousTransactions = new LinkedHashMap<>();
+    rows.forEach(
+        (reason, responses) ->
+            responses.forEach(
+                tr ->
+                    suspiciousTransactions
+                        .computeIfAbsent(tr.getId(), id -> tr)
+                        .getSuspiciousReason()
+                        .add(reason.getDescription())));
+    return suspiciousTransactions.values().stream().sorted(NEWEST_FIRST).toList();
+  }
+
+  private List<TransactionResponse> queryRuleView(
+      SuspiciousReason reason, String kind, String userId) {
+    Object[] args = ruleViewArgs(reason, userId);
+    return metrics.timeRuleQuery(
+        reason.name(),
+        kind,
+        () -> jdbcTemplate.query(RULE_VIEW_SQL.get(reason), suspiciousViewRowMapper, args));
+  }
+
+  // The frequent and high volume views read their thresholds from the configuration row; the
+  // rapid function takes them as arguments.
+  private Object[] ruleViewArgs(SuspiciousReason reason, String userId) {
+    if (reason != SuspiciousReason.RAPID_TRANSFER) {
+      return new Object[] {userId};
+    }
+    SuspiciousRuleConfiguration rules = ruleConfigurationService.current();
+    return new Object[] {userId, rules.getRapidWindow().toSeconds(), rules.getRapidThreshold()};
+  }
+
+  // Registers the statement in statements so a failing sibling query can cancel it.
+  private List<TransactionResponse> queryRuleViewCancellable(
+      SuspiciousReason reason, String userId, List<Statement> statements) {
+    Object[] args = ruleViewArgs(reason, userId);
+    return metrics.timeRuleQuery(
+        reason.name(),
+        "PARALLEL_RULE_QUERIES",
+        () ->
+            jdbcTemplate.query(
+                con -> {
+                  PreparedStatement ps = con.prepareStatement(RULE_VIEW_SQL.get(reason));
+                  statements.add(ps);
+                  new ArgumentPreparedStatementSetter(args).setValues(ps);
+                  return ps;
+                },
+                suspiciousViewRowMapper));
+  }
+
+  private static void cancel(
+      Collection<Future<List<TransactionResponse>>> futures, List<Statement> statements) {
+    futures.forEach(future -> future.cancel(true));
+    for (Statement statement : statements) {
+      try {
+        statement.cancel();
+      } catch (SQLException e) {
+        log.debug("Could not cancel rule query", e);
+      }
+    }
+  }
+
+  // The user and every rule threshold, bound into the rule queries.
+  private MapSqlParameterSource ruleParams(String userId) {
+    return thresholdParams().addValue("userId", userId);
+  }
+
+  private MapSqlParameterSource thresholdParams() {
+    return thresholdParams(ruleConfigurationService.current());
+  }
+
+  // Every rule threshold, bound into ROW_REASONS_SQL and the rule queries.
+  static MapSqlParameterSource thresholdParams(SuspiciousRuleConfiguration rules) {
+    return new MapSqlParameterSource()
+        .addValue("frequentThreshold", rules.getFrequentThreshold())
+        .addValue("smallTransactionAmount", rules.getSmallTransactionAmount())
+        .addValue("highVolumeAmount", rules.getHighVolumeAmount())
+        .addValue("rapidWindowSeconds", rules.getRapidWindow().toSeconds())
+        .addValue("rapidThreshold", rules.getRapidThreshold());
+  }
+
+  static int reasonBit(SuspiciousReason reason) {
+    return 1 << reason.ordinal();
+  }
 }
@@ -0,0 +1,402 @@
+package com.remo.transaction_scanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remo.transaction_scanner.config.BackfillProperties;
+import com.remo.transaction_scanner.model.BackfillFormat;
+import com.remo.transaction_scanner.model.BackfillRequest;
+import com.remo.transaction_scanner.model.BackfillResponse;
+import com.remo.transaction_scanner.model.BackfillStatus;
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.repository.BackfillRepository;
+import com.remo.transaction_scanner.repository.TransactionPartitionRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports historical transactions from CSV or NDJSON files in the backfill directory with
+ * PostgreSQL {@code COPY}, keeping the timestamps from the file.
+ *
+ * <p>Rows are validated and normalised as they are read, then sent in chunks of {@code
+ * transaction-scanner.backfill.chunk-size}. Each chunk is copied and its checkpoint (lines read,
+ * rows imported and rejected) saved in one transaction, so an import that stops for any reason is
+ * restarted by posting the same import id again and continues after the last committed line.
+ *
+ * <p>The copy bypasses the write path of {@link TransactionScannerService}: imported rows are not
+ * flagged at write time and do not enter the in-memory detector windows. The suspicious views
+ * still see them, and cached lists of the imported users are invalidated after each chunk.
+ */
+@Service
+@Slf4j
+public class TransactionBackfillService {
+
+  private static final String CSV_HEADER_PREFIX = "user_id";
+  private static final int MAX_USER_ID_LENGTH = 255;
+
+  private record Row(String userId, long amountCents, TransactionType type, LocalDateTime time) {}
+
+  private final BackfillRepository backfillRepository;
+  private final TransactionPartitionRepository partitionRepository;
+  private final SuspiciousTransactionCache suspiciousTransactionCache;
+  private final BackfillProperties properties;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+
+  // Imports running on this instance, with the rows per second of their current run.
+  private final Map<String, Double> running = new ConcurrentHashMap<>();
+
+  @Autowired
+  public TransactionBackfillService(
+      BackfillRepository backfillRepository,
+      TransactionPartitionRepository partitionRepository,
+      SuspiciousTransactionCache suspiciousTransactionCache,
+      BackfillProperties properties,
+      ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager) {
+    this.backfillRepository = backfillRepository;
+    this.partitionRepository = partitionRepository;
+    this.suspiciousTransactionCache = suspiciousTransactionCache;
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Starts importing {@code request.file} in the background, or resumes the import with the same id
+   * from its checkpoint. A completed import is returned as is.
+   *
+   * @throws IllegalArgumentException if the file is outside the backfill directory or missing, or
+   *     the id was used for another file
+   * @throws IllegalStateException if the import is already running, on this instance or on one
+   *     that has moved its checkpoint since it was read
+   */
+  public BackfillResponse start(BackfillRequest request) {
+    Path file = resolve(request.getFile());
+    Optional<BackfillResponse> checkpoint =
+        backfillRepository.findCheckpoint(request.getImportId());
+    if (checkpoint.isPresent()) {
+      BackfillResponse previous = checkpoint.get();
+      if (!previous.getFile().equals(request.getFile())
+          || previous.getFormat() != request.getFormat()) {
+        throw new IllegalArgumentException(
+            "Import " + request.getImportId() + " was started for another file or format");
+      }
+      if (previous.getStatus() == BackfillStatus.COMPLETED) {
+        return previous;
+      }
+    }
+    if (running.putIfAbsent(request.getImportId(), 0.0) != null) {
+      throw new IllegalStateException("Import " + request.getImportId() + " is already running");
+    }
+
+    BackfillResponse progress =
+        checkpoint.orElseGet(
+            () ->
+                BackfillResponse.builder()
+                    .importId(request.getImportId())
+                    .file(request.getFile())
+                    .format(request.getFormat())
+                    .build());
+    progress.setStatus(BackfillStatus.RUNNING);
+    progress.setMessage(null);
+    BackfillResponse started = snapshot(progress);
+    try {
+      if (!backfillRepository.saveCheckpoint(progress, progress.getLinesRead())) {
+        throw new IllegalStateException("Import " + request.getImportId() + " is already running");
+      }
+      Thread.ofVirtual().name("backfill-" + request.getImportId()).start(() -> run(file, progress));
+    } catch (RuntimeException e) {
+      running.remove(request.getImportId());
+      throw e;
+    }
+    return started;
+  }
+
+  /** Returns the checkpoint of an import, with its current rate if it runs on this instance. */
+  public Optional<BackfillResponse> status(String importId) {
+    return backfillRepository
+        .findCheckpoint(importId)
+        .map(
+            checkpoint -> {
+              checkpoint.setRowsPerSecond(running.get(importId));
+              return checkpoint;
+            });
+  }
+
+  /** Imports {@code file} from the line after {@code progress.linesRead}, updating it in place. */
+  void run(Path file, BackfillResponse progress) {
+    String importId = progress.getImportId();
+    long startNanos = System.nanoTime();
+    long importedThisRun = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      long skipped = 0;
+      while (skipped < progress.getLinesRead() && reader.readLine() != null) {
+        skipped++;
+      }
+
+      Chunk chunk = new Chunk();
+      long lineNumber = skipped;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        chunk.lines++;
+        if (line.isBlank() || isCsvHeader(progress.getFormat(), lineNumber, line)) {
+          continue;
+        }
+        Row row = parse(progress.getFormat(), line);
+        if (row == null) {
+          chunk.rejected++;
+          continue;
+        }
+        chunk.add(row);
+        if (chunk.rows >= properties.getChunkSize()) {
+          importedThisRun += flush(chunk, progress);
+          running.put(importId, rate(importedThisRun, startNanos));
+          chunk = new Chunk();
+        }
+      }
+      if (chunk.lines > 0) {
+        importedThisRun += flush(chunk, progress);
+      }
+
+      progress.setStatus(BackfillStatus.COMPLETED);
+      progress.setRowsPerSecond(rate(importedThisRun, startNanos));
+      backfillRepository.saveCheckpoint(progress, progress.getLinesRead());
+      log.info(
+          "Backfill {} completed: {} rows imported, {} rejected, {} rows/s",
+          importId,
+          progress.getRowsImported(),
+          progress.getRowsRejected(),
+          String.format("%.0f", progress.getRowsPerSecond()));
+    } catch (IOException | RuntimeException e) {
+      log.error("Backfill {} stopped after line {}", importId, progress.getLinesRead(), e);
+      progress.setStatus(BackfillStatus.FAILED);
+      progress.setMessage(e.getMessage());
+      try {
+        // Leaves the checkpoint alone if another run of the import moved it.
+        backfillRepository.saveCheckpoint(progress, progress.getLinesRead());
+      } catch (RuntimeException checkpointFailure) {
+        log.error("Could not record failure of backfill {}", importId, checkpointFailure);
+      }
+    } finally {
+      running.remove(importId);
+    }
+  }
+
+  private long flush(Chunk chunk, BackfillResponse progress) {
+    if (chunk.rows > 0) {
+      // Partitions must exist before the COPY; rows for a missing month would land in the default
+      // partition and block creating that month later.
+      partitionRepository.createPartitions(chunk.minDate, chunk.maxDate);
+    }
+    // The progress only advances once the chunk has committed; a failed run checkpoints the last
+    // committed line so a resume copies this chunk again. The checkpoint only advances from the
+    // line this run read it at, so when the same import runs twice (another instance, or a repost
+    // racing this one), the run that loses rolls its copy back instead of importing it again.
+    BackfillResponse committed =
+        transactionTemplate.execute(
+            status -> {
+              long copied =
+                  chunk.rows > 0
+                      ? backfillRepository.copyTransactions(new StringReader(chunk.csv.toString()))
+                      : 0;
+              BackfillResponse checkpoint =
+                  progress.toBuilder()
+                      .linesRead(progress.getLinesRead() + chunk.lines)
+                      .rowsImported(progress.getRowsImported() + copied)
+                      .rowsRejected(progress.getRowsRejected() + chunk.rejected)
+                      .build();
+              if (!backfillRepository.saveCheckpoint(checkpoint, progress.getLinesRead())) {
+                throw new IllegalStateException(
+                    "Import " + progress.getImportId() + " was advanced by another run");
+              }
+              suspiciousTransactionCache.invalidateAfterCommit(chunk.users);
+              return checkpoint;
+            });
+    progress.setLinesRead(committed.getLinesRead());
+    progress.setRowsImported(committed.getRowsImported());
+    progress.setRowsRejected(committed.getRowsRejected());
+    log.debug(
+        "Backfill {} committed through line {}", progress.getImportId(), progress.getLinesRead());
+    return chunk.rows;
+  }
+
+  private Path resolve(String file) {
+    Path directory = Path.of(properties.getDirectory()).toAbsolutePath().normalize();
+    Path resolved = directory.resolve(file).normalize();
+    if (!resolved.startsWith(directory)) {
+      throw new IllegalArgumentException("File must be inside the backfill directory");
+    }
+    if (!Files.isRegularFile(resolved)) {
+      throw new IllegalArgumentException("File " + file + " does not exist");
+    }
+    return resolved;
+  }
+
+  private static boolean isCsvHeader(BackfillFormat format, long lineNumber, String line) {
+    return format == BackfillFormat.CSV
+        && lineNumber == 1
+        && line.strip().startsWith(CSV_HEADER_PREFIX);
+  }
+
+  /** Returns the validated row of {@code line}, or null if it cannot be imported. */
+  private Row parse(BackfillFormat format, String line) {
+    try {
+      String userId;
+      String amount;
+      String type;
+      String timestamp;
+      if (format == BackfillFormat.CSV) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 4) {
+          return null;
+        }
+        userId = fields.get(0);
+        amount = fields.get(1).strip();
+        type = fields.get(2).strip();
+        timestamp = fields.get(3).strip();
+      } else {
+        JsonNode node = objectMapper.readTree(line);
+        userId = node.path("userId").asText(null);
+        amount = node.path("amount").asText(null);
+        type = node.path("transactionType").asText(null);
+        timestamp = node.path("timestamp").asText(null);
+      }
+      return validate(userId, amount, type, timestamp);
+    } catch (IOException
+        | IllegalArgumentException
+        | ArithmeticException
+        | DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static Row validate(String userId, String amount, String type, String timestamp) {
+    if (userId == null
+        || userId.isBlank()
+        || userId.length() > MAX_USER_ID_LENGTH
+        || amount == null
+        || type == null
+        || timestamp == null) {
+      return null;
+    }
+    long cents = Cents.parse(amount);
+    if (cents <= 0 || cents > Cents.MAX_NUMERIC_12_2) {
+      return null;
+    }
+    return new Row(userId, cents, TransactionType.valueOf(type), parseTimestamp(timestamp));
+  }
+
+  /** Local timestamps are taken as UTC; ones with an offset are converted to UTC. */
+  private static LocalDateTime parseTimestamp(String timestamp) {
+    String iso = timestamp.replace(' ', 'T');
+    try {
+      return LocalDateTime.parse(iso);
+    } catch (DateTimeParseException e) {
+      return OffsetDateTime.parse(iso).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+  }
+
+  /** Splits one CSV record; fields may be quoted, with {@code ""} for a quote inside them. */
+  private static List<String> splitCsv(String line) {
+    List<String> fields = new ArrayList<>(4);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  // The running import keeps updating its progress; callers get a copy.
+  private static BackfillResponse snapshot(BackfillResponse progress) {
+    return BackfillResponse.builder()
+        .importId(progress.getImportId())
+        .file(progress.getFile())
+        .format(progress.getFormat())
+        .status(progress.getStatus())
+        .linesRead(progress.getLinesRead())
+        .rowsImported(progress.getRowsImported())
+        .rowsRejected(progress.getRowsRejected())
+        .message(progress.getMessage())
+        .build();
+  }
+
+  private static double rate(long rows, long startNanos) {
+    double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+    return rows / seconds;
+  }
+
+  /** Lines read since the last flush and the normalised CSV of their valid rows. */
+  private static final class Chunk {
+    private final StringBuilder csv = new StringBuilder();
+    private final Set<String> users = new HashSet<>();
+    private long lines;
+    private long rows;
+    private long rejected;
+    private LocalDate minDate;
+    private LocalDate maxDate;
+
+    void add(Row row) {
+      csv.append('"').append(row.userId().replace("\"", "\"\"")).append("\",");
+      Cents.append(csv, row.amountCents())
+          .append(',')
+          .append(row.type().name())
+          .append(',')
+          .append(row.time())
+          .append('\n');
+      users.add(row.userId());
+      rows++;
+      LocalDate date = row.time().toLocalDate();
+      if (minDate == null || date.isBefore(minDate)) {
+        minDate = date;
+      }
+      if (maxDate == null || date.isAfter(maxDate)) {
+        maxDate = date;
+      }
+    }
+  }
+}
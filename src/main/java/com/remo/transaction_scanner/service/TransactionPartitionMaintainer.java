@@ -0,0 +1,47 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.config.PartitionProperties;
+import com.remo.transaction_scanner.repository.TransactionPartitionRepository;
+import java.time.Clock;
+import java.time.LocalDate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/** Keeps monthly partitions of {@code transactions} created ahead of the current month. */
+@Service
+@Slf4j
+public class TransactionPartitionMaintainer {
+
+  private final TransactionPartitionRepository transactionPartitionRepository;
+  private final PartitionProperties partitionProperties;
+  private final Clock clock;
+
+  @Autowired
+  public TransactionPartitionMaintainer(
+      TransactionPartitionRepository transactionPartitionRepository,
+      PartitionProperties partitionProperties,
+      Clock clock) {
+    this.transactionPartitionRepository = transactionPartitionRepository;
+    this.partitionProperties = partitionProperties;
+    this.clock = clock;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(cron = "${transaction-scanner.partitions.maintenance-cron:0 0 3 * * *}")
+  public void createUpcomingPartitions() {
+    LocalDate today = LocalDate.now(clock);
+    try {
+      int created =
+          transactionPartitionRepository.createPartitions(
+              today, today.plusMonths(partitionProperties.getMonthsAhead()));
+      log.info("Created {} transaction partitions", created);
+    } catch (DataAccessException e) {
+      log.error("Could not create upcoming transaction partitions", e);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.TransactionRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Validates {@link TransactionRequest}s that arrive outside of a single {@code @Valid} request body
+ * (e.g. items of a batch). Errors use the same field to message shape as {@code
+ * RestExceptionHandler}.
+ */
+@Component
+public class TransactionRequestValidator {
+
+  private final Validator validator;
+
+  @Autowired
+  public TransactionRequestValidator(Validator validator) {
+    this.validator = validator;
+  }
+
+  public Map<String, String> validate(TransactionRequest transactionRequest) {
+    Map<String, String> errors = new HashMap<>();
+    if (transactionRequest == null) {
+      errors.put("transaction", "Transaction must not be null");
+      return errors;
+    }
+
+    for (ConstraintViolation<TransactionRequest> violation :
+        validator.validate(transactionRequest)) {
+      errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+    }
+    return errors;
+  }
+}
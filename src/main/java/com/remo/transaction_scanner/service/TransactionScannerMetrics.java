@@ -0,0 +1,190 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the ingest and suspicious read paths. Tags only take values from fixed sets (rules,
+ * query kinds, rejection causes), never user ids, so the number of series stays bounded.
+ */
+@Component
+public class TransactionScannerMetrics {
+
+  /** Rule tag of the queries that evaluate every rule at once. */
+  static final String ALL_RULES = "ALL";
+
+  private final MeterRegistry registry;
+  private final Timer saveTimer;
+  private final DistributionSummary groupCommitSize;
+  private final AtomicLong scannerLagTransactions = new AtomicLong();
+  private final AtomicLong scannerLagSeconds = new AtomicLong();
+  private final AtomicLong feedConsumers = new AtomicLong();
+
+  @Autowired
+  public TransactionScannerMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.saveTimer =
+        Timer.builder("transaction_scanner.transactions.save")
+            .description("Time to save one posted transaction, including write-time detection")
+            .publishPercentileHistogram()
+            .register(registry);
+    this.groupCommitSize =
+        DistributionSummary.builder("transaction_scanner.transactions.group_commit.size")
+            .description("Transactions saved per group commit")
+            .register(registry);
+    Gauge.builder("transaction_scanner.scanner.lag.transactions", scannerLagTransactions::get)
+        .description("Transaction ids handed out but not yet scanned for suspicious flags")
+        .register(registry);
+    Gauge.builder("transaction_scanner.scanner.lag.seconds", scannerLagSeconds::get)
+        .description("Age of the oldest transaction not yet scanned for suspicious flags")
+        .register(registry);
+    Gauge.builder("transaction_scanner.feed.consumers", feedConsumers::get)
+        .description("Connections reading the suspicious feed on this instance")
+        .register(registry);
+  }
+
+  public <T> T timeSave(Supplier<T> save) {
+    return saveTimer.record(save);
+  }
+
+  public void groupCommitted(int transactions) {
+    groupCommitSize.record(transactions);
+  }
+
+  /**
+   * Times a query of one rule, or of {@link #ALL_RULES}, tagged with the kind of read it serves
+   * ({@code SINGLE_QUERY}, {@code PAGE}, ...), and counts the rows it returned against that rule.
+   */
+  public List<TransactionResponse> timeRuleQuery(
+      String rule, String kind, Supplier<List<TransactionResponse>> query) {
+    List<TransactionResponse> rows =
+        Timer.builder("transaction_scanner.suspicious.rule.query")
+            .description("Time to run one suspicious rule query")
+            .tag("rule", rule)
+            .tag("query", kind)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(query);
+    if (ALL_RULES.equals(rule)) {
+      countRuleRows(rows);
+    } else {
+      ruleRows(rule).increment(rows.size());
+    }
+    return rows;
+  }
+
+  // Rows of a query over every rule count against each rule they matched.
+  private void countRuleRows(Collection<TransactionResponse> rows) {
+    for (SuspiciousReason reason : SuspiciousReason.values()) {
+      long matched =
+          rows.stream()
+              .filter(row -> row.getSuspiciousReason().contains(reason.getDescription()))
+              .count();
+      if (matched > 0) {
+        ruleRows(reason.name()).increment(matched);
+      }
+    }
+  }
+
+  /** Times a fleet-wide scan and counts the suspicious rows it streamed. */
+  public long timeFleetScan(LongSupplier scan) {
+    Timer.Sample sample = Timer.start(registry);
+    long rows = 0;
+    try {
+      rows = scan.getAsLong();
+      return rows;
+    } finally {
+      sample.stop(
+          Timer.builder("transaction_scanner.suspicious.fleet_scan")
+              .description("Time to stream the suspicious transactions of every user in a range")
+              .register(registry));
+      Counter.builder("transaction_scanner.suspicious.fleet_scan.rows")
+          .description("Suspicious transactions streamed by fleet-wide scans")
+          .register(registry)
+          .increment(rows);
+    }
+  }
+
+  /** Counts one chunk read by the incremental scanner and the flags it wrote. */
+  public void scannerChunk(int transactions, int flags) {
+    Counter.builder("transaction_scanner.scanner.transactions")
+        .description("Transactions read by the incremental scanner")
+        .register(registry)
+        .increment(transactions);
+    Counter.builder("transaction_scanner.scanner.flags")
+        .description("Suspicious flags written by the incremental scanner")
+        .register(registry)
+        .increment(flags);
+  }
+
+  /** Records how far the incremental scanner is behind the transaction id sequence. */
+  public void scannerLag(long transactions, long seconds) {
+    scannerLagTransactions.set(transactions);
+    scannerLagSeconds.set(seconds);
+  }
+
+  /** Counts a suspicious feed connection until {@code stream} returns. */
+  public <T> T trackFeedConsumer(Supplier<T> stream) {
+    feedConsumers.incrementAndGet();
+    try {
+      return stream.get();
+    } finally {
+      feedConsumers.decrementAndGet();
+    }
+  }
+
+  public void feedEvents(int events) {
+    Counter.builder("transaction_scanner.feed.events")
+        .description("Suspicious feed events written to consumers")
+        .register(registry)
+        .increment(events);
+  }
+
+  public <T> T timeMerge(String kind, Supplier<T> merge) {
+    return Timer.builder("transaction_scanner.suspicious.merge")
+        .description("Time to merge the rule query results in Java")
+        .tag("query", kind)
+        .register(registry)
+        .record(merge);
+  }
+
+  /**
+   * Counts a rejected transaction request; {@code cause} is one of {@code validation}, {@code
+   * batch_size} or {@code malformed}.
+   */
+  public void rejected(String cause) {
+    Counter.builder("transaction_scanner.requests.rejected")
+        .description("Transaction requests rejected before anything was saved")
+        .tag("cause", cause)
+        .register(registry)
+        .increment();
+  }
+
+  /** Counts a flag raised by write-time detection. */
+  public void suspiciousHit(SuspiciousReason reason) {
+    Counter.builder("transaction_scanner.suspicious.hits")
+        .description("Suspicious flags raised at write time")
+        .tag("reason", reason.name())
+        .register(registry)
+        .increment();
+  }
+
+  private Counter ruleRows(String rule) {
+    return Counter.builder("transaction_scanner.suspicious.rule.rows")
+        .description("Rows returned by the suspicious rule queries")
+        .tag("rule", rule)
+        .register(registry);
+  }
+}
@@ -1,43 +1,141 @@
 package com.remo.transaction_scanner.service;
 
+import com.remo.transaction_scanner.config.DetectionProperties;
+import com.remo.transaction_scanner.config.FinderProperties;
+import com.remo.transaction_scanner.config.FleetScanProperties;
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.config.ReadRouting;
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.CacheStatsResponse;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.PageCursor;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousTransactionPage;
+import com.remo.transaction_scanner.model.TransactionBatchItemResult;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
 import com.remo.transaction_scanner.model.TransactionRequest;
 import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.repository.SuspiciousFlagRepository;
+import com.remo.transaction_scanner.repository.TransactionBatchRepository;
 import com.remo.transaction_scanner.repository.TransactionRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
 import com.remo.transaction_scanner.repository.model.Transaction;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.PersistenceException;
 import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
 public class TransactionScannerService {
 
+  // Bounds used for an open-ended side of a time range read.
+  private static final LocalDateTime RANGE_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+  private static final LocalDateTime RANGE_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
   private final TransactionRepository transactionRepository;
+  private final TransactionBatchRepository transactionBatchRepository;
   private final SuspiciousTransactionFinder suspiciousTransactionFinder;
+  private final SuspiciousFleetScanner suspiciousFleetScanner;
+  private final SuspiciousFeedService suspiciousFeedService;
+  private final SuspiciousTransactionCache suspiciousTransactionCache;
+  private final SuspiciousActivityDetector suspiciousActivityDetector;
+  private final SuspiciousFlagRepository suspiciousFlagRepository;
+  private final TransactionRequestValidator transactionRequestValidator;
+  private final IngestionProperties ingestionProperties;
+  private final DetectionProperties detectionProperties;
+  private final FinderProperties finderProperties;
+  private final FleetScanProperties fleetScanProperties;
+  private final TransactionScannerMetrics metrics;
+  private final TransactionTemplate transactionTemplate;
   private final Clock clock;
 
+  // Started on the first post in GROUP_COMMIT mode.
+  private volatile GroupCommitQueue<Transaction, TransactionResponse> groupCommitQueue;
+
   @Autowired
   public TransactionScannerService(
       TransactionRepository transactionRepository,
+      TransactionBatchRepository transactionBatchRepository,
       SuspiciousTransactionFinder suspiciousTransactionFinder,
+      SuspiciousFleetScanner suspiciousFleetScanner,
+      SuspiciousFeedService suspiciousFeedService,
+      SuspiciousTransactionCache suspiciousTransactionCache,
+      SuspiciousActivityDetector suspiciousActivityDetector,
+      SuspiciousFlagRepository suspiciousFlagRepository,
+      TransactionRequestValidator transactionRequestValidator,
+      IngestionProperties ingestionProperties,
+      DetectionProperties detectionProperties,
+      FinderProperties finderProperties,
+      FleetScanProperties fleetScanProperties,
+      TransactionScannerMetrics metrics,
+      PlatformTransactionManager transactionManager,
       Clock clock) {
     this.transactionRepository = transactionRepository;
+    this.transactionBatchRepository = transactionBatchRepository;
     this.suspiciousTransactionFinder = suspiciousTransactionFinder;
+    this.suspiciousFleetScanner = suspiciousFleetScanner;
+    this.suspiciousFeedService = suspiciousFeedService;
+    this.suspiciousTransactionCache = suspiciousTransactionCache;
+    this.suspiciousActivityDetector = suspiciousActivityDetector;
+    this.suspiciousFlagRepository = suspiciousFlagRepository;
+    this.transactionRequestValidator = transactionRequestValidator;
+    this.ingestionProperties = ingestionProperties;
+    this.detectionProperties = detectionProperties;
+    this.finderProperties = finderProperties;
+    this.fleetScanProperties = fleetScanProperties;
+    this.metrics = metrics;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
     this.clock = clock;
   }
 
+  /**
+   * Saves one transaction and returns it once committed. In {@code GROUP_COMMIT} mode it is queued
+   * and committed together with other posts; the transaction is managed here rather than with
+   * {@code @Transactional} so a queued caller does not hold a connection while it waits.
+   */
   public TransactionResponse saveTransaction(TransactionRequest transactionRequest) {
+    if (ingestionProperties.getMode() == IngestionProperties.IngestionMode.GROUP_COMMIT) {
+      return metrics.timeSave(() -> saveInGroup(transactionRequest));
+    }
+    return metrics.timeSave(() -> transactionTemplate.execute(status -> save(transactionRequest)));
+  }
+
+  /** Flushes the transactions still queued for a group commit and stops its writer. */
+  @PreDestroy
+  public void stopGroupCommit() {
+    GroupCommitQueue<Transaction, TransactionResponse> queue = groupCommitQueue;
+    if (queue != null) {
+      queue.close();
+    }
+  }
+
+  private TransactionResponse save(TransactionRequest transactionRequest) {
     try {
       Transaction transaction =
           Transaction.builder()
               .userId(transactionRequest.getUserId())
-              .amount(transactionRequest.getAmount())
+              .amountCents(transactionRequest.getAmount())
               .transactionType(transactionRequest.getTransactionType())
               .timestamp(
                   Timestamp.valueOf(
@@ -48,12 +146,9 @@ public class TransactionScannerService {
       Transaction saved = transactionRepository.save(transaction);
 
       log.info("Saved transaction {}", saved);
+      suspiciousTransactionCache.invalidateAfterCommit(List.of(saved.getUserId()));
 
-      return TransactionResponse.builder()
-          .userId(saved.getUserId())
-          .amount(saved.getAmount())
-          .timestamp(saved.getTimestamp())
-          .build();
+      return toResponse(saved, detect(List.of(saved)));
 
     } catch (DataIntegrityViolationException | PersistenceException e) {
       throw new RuntimeException("Error saving transaction: " + e.getMessage());
@@ -62,7 +157,304 @@ public class TransactionScannerService {
     }
   }
 
+  private TransactionResponse saveInGroup(TransactionRequest transactionRequest) {
+    try {
+      return groupCommitQueue().submit(toTransaction(transactionRequest));
+    } catch (DataAccessException e) {
+      throw new RuntimeException("Error saving transaction: " + e.getMessage());
+    }
+  }
+
+  private GroupCommitQueue<Transaction, TransactionResponse> groupCommitQueue() {
+    GroupCommitQueue<Transaction, TransactionResponse> queue = groupCommitQueue;
+    if (queue == null) {
+      synchronized (this) {
+        queue = groupCommitQueue;
+        if (queue == null) {
+          queue =
+              new GroupCommitQueue<>(
+                  "transaction-group-commit",
+                  ingestionProperties.getGroupCommitQueueCapacity(),
+                  ingestionProperties.getGroupCommitMaxBatchSize(),
+                  ingestionProperties.getGroupCommitMaxWait(),
+                  this::commitGroup,
+                  // A rejected row fails its statement before the commit, so the batch rolled
+                  // back, and the detector evicted the windows that had counted it.
+                  DataIntegrityViolationException.class::isInstance);
+          groupCommitQueue = queue;
+        }
+      }
+    }
+    return queue;
+  }
+
+  // One batched insert, the flags it raises and a single commit for every queued caller.
+  private List<TransactionResponse> commitGroup(List<Transaction> transactions) {
+    return transactionTemplate.execute(
+        status -> {
+          List<Transaction> saved =
+              transactionBatchRepository.saveAll(new ArrayList<>(transactions));
+
+          log.debug("Group committing {} transactions", saved.size());
+          metrics.groupCommitted(saved.size());
+          suspiciousTransactionCache.invalidateAfterCommit(
+              saved.stream().map(Transaction::getUserId).distinct().toList());
+
+          Map<Long, EnumSet<SuspiciousReason>> reasons = detect(saved);
+          return saved.stream().map(transaction -> toResponse(transaction, reasons)).toList();
+        });
+  }
+
+  @Transactional
+  public TransactionBatchResponse saveTransactions(List<TransactionRequest> transactionRequests) {
+    if (transactionRequests.isEmpty()
+        || transactionRequests.size() > ingestionProperties.getMaxBatchSize()) {
+      metrics.rejected("batch_size");
+      throw new IllegalArgumentException(
+          "A batch must contain between 1 and "
+              + ingestionProperties.getMaxBatchSize()
+              + " transactions.");
+    }
+
+    TransactionBatchItemResult[] results =
+        new TransactionBatchItemResult[transactionRequests.size()];
+    List<Integer> acceptedIndexes = new ArrayList<>();
+    List<Transaction> accepted = new ArrayList<>();
+
+    for (int i = 0; i < transactionRequests.size(); i++) {
+      TransactionRequest transactionRequest = transactionRequests.get(i);
+      Map<String, String> errors = transactionRequestValidator.validate(transactionRequest);
+      if (!errors.isEmpty()) {
+        metrics.rejected("validation");
+        results[i] =
+            TransactionBatchItemResult.builder()
+                .index(i)
+                .status(BatchItemStatus.REJECTED)
+                .errors(errors)
+                .build();
+        continue;
+      }
+      acceptedIndexes.add(i);
+      accepted.add(toTransaction(transactionRequest));
+    }
+
+    try {
+      List<Transaction> saved = transactionBatchRepository.saveAll(accepted);
+
+      log.info("Saved batch of {} transactions", saved.size());
+      suspiciousTransactionCache.invalidateAfterCommit(
+          saved.stream().map(Transaction::getUserId).distinct().toList());
+
+      Map<Long, EnumSet<SuspiciousReason>> reasons = detect(saved);
+
+      for (int i = 0; i < saved.size(); i++) {
+        int index = acceptedIndexes.get(i);
+        results[index] =
+            TransactionBatchItemResult.builder()
+                .index(index)
+                .status(BatchItemStatus.ACCEPTED)
+                .transaction(toResponse(saved.get(i), reasons))
+                .build();
+      }
+
+      return TransactionBatchResponse.builder()
+          .accepted(saved.size())
+          .rejected(transactionRequests.size() - saved.size())
+          .results(Arrays.asList(results))
+          .build();
+
+    } catch (DataAccessException e) {
+      throw new RuntimeException("Error saving transactions: " + e.getMessage());
+    }
+  }
+
   public List<TransactionResponse> getSuspiciousTransactions(String userId) {
+    // A read pinned to the primary wants to see its own writes, which a list cached from a
+    // lagging replica may not have.
+    if (ReadRouting.isPrimaryPinned()) {
+      return suspiciousTransactionCache.refresh(userId, this::loadSuspiciousTransactions);
+    }
+    return suspiciousTransactionCache.get(userId, this::loadSuspiciousTransactions);
+  }
+
+  public CacheStatsResponse getSuspiciousCacheStats() {
+    return suspiciousTransactionCache.stats();
+  }
+
+  private List<TransactionResponse> loadSuspiciousTransactions(String userId) {
+    if (detectionProperties.isServeReadsFromFlags()) {
+      return suspiciousFlagRepository.findSuspiciousTransactionsByUserId(userId);
+    }
     return suspiciousTransactionFinder.getAllSuspiciousTransactionForUserId(userId);
   }
+
+  /**
+   * Hands every suspicious transaction of a user to {@code sink} as it is read from the database,
+   * newest first, and returns how many there were.
+   */
+  public long streamSuspiciousTransactions(String userId, Consumer<TransactionResponse> sink) {
+    return suspiciousTransactionFinder.streamSuspiciousTransactions(userId, sink);
+  }
+
+  /**
+   * Checks the range of a scan over every user. {@code to} defaults to now and {@code from} to
+   * {@code defaultRange} before {@code to}; the range may not be longer than {@code maxRange}.
+   */
+  public SuspiciousFleetScanner.Range fleetScanRange(LocalDateTime from, LocalDateTime to) {
+    LocalDateTime end = to != null ? to : LocalDateTime.now(clock);
+    LocalDateTime start = from != null ? from : end.minus(fleetScanProperties.getDefaultRange());
+    if (!start.isBefore(end)) {
+      throw new IllegalArgumentException("'from' must be before 'to'.");
+    }
+    if (start.plus(fleetScanProperties.getMaxRange()).isBefore(end)) {
+      throw new IllegalArgumentException(
+          "The range may not be longer than " + fleetScanProperties.getMaxRange() + ".");
+    }
+    return new SuspiciousFleetScanner.Range(Timestamp.valueOf(start), Timestamp.valueOf(end));
+  }
+
+  /**
+   * Hands the suspicious transactions of every user in {@code range} to {@code sink} as they are
+   * read, oldest first, and returns how many there were.
+   */
+  public long scanSuspiciousTransactions(
+      SuspiciousFleetScanner.Range range, Consumer<TransactionResponse> sink) {
+    return suspiciousFleetScanner.scan(range.from(), range.to(), sink);
+  }
+
+  /**
+   * Returns the feed offset a consumer resumes after: its last event id, or the end of the feed
+   * when it has none.
+   */
+  public FeedOffset suspiciousFeedOffset(String lastEventId) {
+    return suspiciousFeedService.offset(lastEventId);
+  }
+
+  /**
+   * Hands the suspicious feed events after {@code after} to {@code sink} as they are committed, on
+   * a feed thread, until the connection has been served for its maximum duration. Throws {@link
+   * java.util.concurrent.RejectedExecutionException} when every feed thread is busy.
+   */
+  public CompletableFuture<FeedOffset> streamSuspiciousFeed(
+      FeedOffset after, Consumer<List<SuspiciousFeedEvent>> sink, Runnable heartbeat) {
+    return suspiciousFeedService.follow(after, sink, heartbeat);
+  }
+
+  /**
+   * Returns suspicious transactions with a timestamp in {@code [from, to)}. Either bound may be
+   * null, in which case the range is open on that side.
+   */
+  public List<TransactionResponse> getSuspiciousTransactions(
+      String userId, LocalDateTime from, LocalDateTime to) {
+    Timestamp fromTs = Timestamp.valueOf(from != null ? from : RANGE_START);
+    Timestamp toTs = Timestamp.valueOf(to != null ? to : RANGE_END);
+    if (!fromTs.before(toTs)) {
+      throw new IllegalArgumentException("'from' must be before 'to'.");
+    }
+
+    if (detectionProperties.isServeReadsFromFlags()) {
+      return suspiciousFlagRepository.findSuspiciousTransactionsByUserIdInRange(
+          userId, fromTs, toTs);
+    }
+    return suspiciousTransactionFinder.findInTimeRange(userId, fromTs, toTs);
+  }
+
+  /**
+   * Returns one page of suspicious transactions, newest first. {@code cursor} is the {@code
+   * nextCursor} of the previous page, or null for the first page.
+   */
+  public SuspiciousTransactionPage getSuspiciousTransactionPage(
+      String userId, String cursor, Integer limit) {
+    int pageSize = limit != null ? limit : finderProperties.getDefaultPageSize();
+    if (pageSize < 1 || pageSize > finderProperties.getMaxPageSize()) {
+      throw new IllegalArgumentException(
+          "Limit must be between 1 and " + finderProperties.getMaxPageSize() + ".");
+    }
+    PageCursor after = cursor != null ? PageCursor.decode(cursor) : PageCursor.FIRST;
+
+    // One extra row tells us whether there is a next page without a count query.
+    List<TransactionResponse> rows =
+        suspiciousTransactionFinder.findPage(userId, after, pageSize + 1);
+    if (rows.size() <= pageSize) {
+      return SuspiciousTransactionPage.builder().transactions(rows).build();
+    }
+
+    List<TransactionResponse> page = rows.subList(0, pageSize);
+    TransactionResponse last = page.get(pageSize - 1);
+    return SuspiciousTransactionPage.builder()
+        .transactions(page)
+        .nextCursor(
+            new PageCursor(last.getTimestamp().toLocalDateTime(), last.getId()).encode())
+        .build();
+  }
+
+  // Runs the write-time rules over newly saved transactions, in order, and persists the flags in
+  // the caller's transaction. Returns the reasons raised per transaction id, or null when
+  // detection is disabled.
+  private Map<Long, EnumSet<SuspiciousReason>> detect(List<Transaction> saved) {
+    if (!detectionProperties.isEnabled()) {
+      return null;
+    }
+
+    List<SuspiciousFlag> flags = suspiciousActivityDetector.evaluateAll(saved);
+    suspiciousFlagRepository.saveAll(flags);
+    countHitsAfterCommit(flags);
+
+    Map<Long, EnumSet<SuspiciousReason>> reasons = new HashMap<>();
+    for (SuspiciousFlag flag : flags) {
+      reasons
+          .computeIfAbsent(
+              flag.getTransactionId(), id -> EnumSet.noneOf(SuspiciousReason.class))
+          .add(flag.getReason());
+    }
+    return reasons;
+  }
+
+  // Counted once the flags have committed, so a write that rolls back, such as a group commit that
+  // is retried item by item, counts nothing.
+  private void countHitsAfterCommit(List<SuspiciousFlag> flags) {
+    if (flags.isEmpty()) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      flags.forEach(flag -> metrics.suspiciousHit(flag.getReason()));
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            flags.forEach(flag -> metrics.suspiciousHit(flag.getReason()));
+          }
+        });
+  }
+
+  private Transaction toTransaction(TransactionRequest transactionRequest) {
+    return Transaction.builder()
+        .userId(transactionRequest.getUserId())
+        .amountCents(transactionRequest.getAmount())
+        .transactionType(transactionRequest.getTransactionType())
+        .timestamp(Timestamp.valueOf(LocalDateTime.now(clock)))
+        .build();
+  }
+
+  private TransactionResponse toResponse(
+      Transaction transaction, Map<Long, EnumSet<SuspiciousReason>> reasonsById) {
+    TransactionResponse response =
+        TransactionResponse.builder()
+            .id(transaction.getId())
+            .userId(transaction.getUserId())
+            .amountCents(transaction.getAmountCents())
+            .timestamp(transaction.getTimestamp())
+            .transactionType(transaction.getTransactionType())
+            .build();
+
+    if (reasonsById != null) {
+      EnumSet<SuspiciousReason> reasons =
+          reasonsById.getOrDefault(transaction.getId(), EnumSet.noneOf(SuspiciousReason.class));
+      response.setSuspicious(!reasons.isEmpty());
+      reasons.forEach(reason -> response.getSuspiciousReason().add(reason.getDescription()));
+    }
+    return response;
+  }
 }
@@ -0,0 +1,162 @@
+package com.remo.transaction_scanner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.StreamEventType;
+import com.remo.transaction_scanner.model.TransactionBatchItemResult;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
+import com.remo.transaction_scanner.model.TransactionRequest;
+import com.remo.transaction_scanner.model.TransactionStreamEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ingests a newline-delimited JSON stream of {@link TransactionRequest}s.
+ *
+ * <p>Records are parsed one line at a time and flushed in chunks of at most {@code
+ * transaction-scanner.ingest.stream-chunk-size} through the batch insert path, so memory use does
+ * not depend on the length of the stream. Lines longer than {@code
+ * transaction-scanner.ingest.stream-max-line-length} are rejected as malformed without being
+ * buffered, so it does not depend on the length of a line either. Rejections, progress after each
+ * flush and a final summary are reported to the given listener as they happen.
+ */
+@Service
+@Slf4j
+public class TransactionStreamIngestionService {
+
+  private final TransactionScannerService transactionScannerService;
+  private final ObjectMapper objectMapper;
+  private final IngestionProperties ingestionProperties;
+  private final TransactionScannerMetrics metrics;
+
+  @Autowired
+  public TransactionStreamIngestionService(
+      TransactionScannerService transactionScannerService,
+      ObjectMapper objectMapper,
+      IngestionProperties ingestionProperties,
+      TransactionScannerMetrics metrics) {
+    this.transactionScannerService = transactionScannerService;
+    this.objectMapper = objectMapper;
+    this.ingestionProperties = ingestionProperties;
+    this.metrics = metrics;
+  }
+
+  public TransactionStreamEvent ingest(
+      BufferedReader reader, Consumer<TransactionStreamEvent> listener) throws IOException {
+    int chunkSize =
+        Math.min(ingestionProperties.getStreamChunkSize(), ingestionProperties.getMaxBatchSize());
+    List<TransactionRequest> chunk = new ArrayList<>(chunkSize);
+    List<Long> chunkLines = new ArrayList<>(chunkSize);
+    long accepted = 0;
+    long rejected = 0;
+    long lineNumber = 0;
+
+    BoundedLineReader lines =
+        new BoundedLineReader(reader, ingestionProperties.getStreamMaxLineLength());
+    String line;
+    while ((line = lines.readLine()) != null) {
+      lineNumber++;
+      if (lines.tooLong()) {
+        rejected++;
+        metrics.rejected("malformed");
+        listener.accept(rejectedEvent(lineNumber, Map.of("transaction", "Line too long")));
+        continue;
+      }
+      if (line.isBlank()) {
+        continue;
+      }
+
+      try {
+        chunk.add(objectMapper.readValue(line, TransactionRequest.class));
+        chunkLines.add(lineNumber);
+      } catch (JsonProcessingException e) {
+        rejected++;
+        metrics.rejected("malformed");
+        listener.accept(rejectedEvent(lineNumber, Map.of("transaction", "Malformed JSON")));
+        continue;
+      }
+
+      if (chunk.size() >= chunkSize) {
+        try {
+          TransactionBatchResponse flushed = flush(chunk, chunkLines, listener);
+          accepted += flushed.getAccepted();
+          rejected += flushed.getRejected();
+        } catch (RuntimeException e) {
+          return fail(e, accepted, rejected, listener);
+        }
+        listener.accept(countEvent(StreamEventType.PROGRESS, accepted, rejected));
+      }
+    }
+
+    if (!chunk.isEmpty()) {
+      try {
+        TransactionBatchResponse flushed = flush(chunk, chunkLines, listener);
+        accepted += flushed.getAccepted();
+        rejected += flushed.getRejected();
+      } catch (RuntimeException e) {
+        return fail(e, accepted, rejected, listener);
+      }
+    }
+
+    log.info("Ingested transaction stream: {} accepted, {} rejected", accepted, rejected);
+
+    TransactionStreamEvent summary = countEvent(StreamEventType.SUMMARY, accepted, rejected);
+    listener.accept(summary);
+    return summary;
+  }
+
+  private TransactionBatchResponse flush(
+      List<TransactionRequest> chunk,
+      List<Long> chunkLines,
+      Consumer<TransactionStreamEvent> listener) {
+    TransactionBatchResponse batchResponse = transactionScannerService.saveTransactions(chunk);
+    for (TransactionBatchItemResult result : batchResponse.getResults()) {
+      if (result.getStatus() == BatchItemStatus.REJECTED) {
+        listener.accept(rejectedEvent(chunkLines.get(result.getIndex()), result.getErrors()));
+      }
+    }
+    chunk.clear();
+    chunkLines.clear();
+    return batchResponse;
+  }
+
+  private TransactionStreamEvent fail(
+      RuntimeException e, long accepted, long rejected, Consumer<TransactionStreamEvent> listener) {
+    log.error("Transaction stream ingestion stopped after {} accepted records", accepted, e);
+
+    TransactionStreamEvent error =
+        TransactionStreamEvent.builder()
+            .event(StreamEventType.ERROR)
+            .accepted(accepted)
+            .rejected(rejected)
+            .message("There was an error while processing the transactions.")
+            .build();
+    listener.accept(error);
+    return error;
+  }
+
+  private TransactionStreamEvent rejectedEvent(long line, Map<String, String> errors) {
+    return TransactionStreamEvent.builder()
+        .event(StreamEventType.REJECTED)
+        .line(line)
+        .errors(errors)
+        .build();
+  }
+
+  private TransactionStreamEvent countEvent(StreamEventType type, long accepted, long rejected) {
+    return TransactionStreamEvent.builder()
+        .event(type)
+        .accepted(accepted)
+        .rejected(rejected)
+        .build();
+  }
+}
@@ -0,0 +1,150 @@
+package com.remo.transaction_scanner.service;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import com.remo.transaction_scanner.repository.model.Transaction;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recent activity of a single user, updated in O(1) amortized time per transaction.
+ *
+ * <p>Holds the clock hour the user's small transactions are being counted in (matching {@code
+ * date_trunc('hour', timestamp)} in the frequent view) and the transactions that fall inside the
+ * trailing rapid window, both in primitive {@link ActivityRing}s so a retained event costs a few
+ * dozen bytes. Not thread safe on its own; callers synchronize on the instance.
+ */
+class UserActivityWindow {
+
+  private static final long HOUR_MICROS = 60 * 60 * 1_000_000L;
+  // Object header and fields of the window, its entry in the detector's map and the fixed part of
+  // the user id string; the rings and the id's characters are added on top.
+  private static final long FIXED_BYTES = 40 + 32 + 40;
+
+  private final String userId;
+
+  private long hourBucket = Long.MIN_VALUE;
+  private int smallTransactionsInHour;
+
+  // Small transactions of the current hour seen before the frequent threshold was reached. They
+  // are flagged retroactively once it is, so this never holds more than threshold - 1 entries.
+  private final ActivityRing pendingFrequent = new ActivityRing();
+
+  private final ActivityRing rapidWindow = new ActivityRing();
+
+  private long lastMicros = Long.MIN_VALUE;
+  private boolean evicted;
+
+  UserActivityWindow(String userId) {
+    this.userId = userId;
+  }
+
+  /** Adds the transaction to the window and returns every flag it causes. */
+  List<SuspiciousFlag> record(Transaction transaction, SuspiciousRuleConfiguration rules) {
+    List<SuspiciousFlag> flags = new ArrayList<>();
+    long micros = epochMicros(transaction.getTimestamp());
+    long amountCents = transaction.getAmountCents();
+    lastMicros = Math.max(lastMicros, micros);
+
+    if (amountCents >= rules.getHighVolumeCents()) {
+      flags.add(flag(transaction, SuspiciousReason.HIGH_VOLUME_TRANSACTION));
+    }
+
+    if (amountCents <= rules.getSmallTransactionCents()) {
+      long hour = Math.floorDiv(micros, HOUR_MICROS);
+      if (hour != hourBucket) {
+        hourBucket = hour;
+        smallTransactionsInHour = 0;
+        pendingFrequent.clear();
+      }
+
+      smallTransactionsInHour++;
+      if (smallTransactionsInHour < rules.getFrequentThreshold()) {
+        pendingFrequent.add(
+            transaction.getId(), micros, amountCents, transaction.getTransactionType());
+      } else {
+        for (int i = 0; i < pendingFrequent.size(); i++) {
+          flags.add(
+              flag(
+                  pendingFrequent.idAt(i),
+                  timestamp(pendingFrequent.microsAt(i)),
+                  SuspiciousReason.FREQUENT_SMALL_TRANSACTION));
+        }
+        pendingFrequent.clear();
+        flags.add(flag(transaction, SuspiciousReason.FREQUENT_SMALL_TRANSACTION));
+      }
+    }
+
+    rapidWindow.removeBefore(micros - rules.getRapidWindow().toNanos() / 1000);
+    rapidWindow.add(transaction.getId(), micros, amountCents, transaction.getTransactionType());
+    if (rapidWindow.size() >= rules.getRapidThreshold()) {
+      flags.add(flag(transaction, SuspiciousReason.RAPID_TRANSFER));
+    }
+
+    return flags;
+  }
+
+  /**
+   * True if nothing was recorded in the last {@code windowMicros} before {@code nowMicros}, so no
+   * rule window still holds any of the user's transactions and the window can be seeded again.
+   */
+  boolean isIdle(long nowMicros, long windowMicros) {
+    return lastMicros < nowMicros - windowMicros;
+  }
+
+  /** Marks the window as removed from the detector; writers that still hold it must reload. */
+  void evict() {
+    evicted = true;
+  }
+
+  boolean isEvicted() {
+    return evicted;
+  }
+
+  /** Releases ring capacity left over from a burst. */
+  void trim() {
+    pendingFrequent.trim();
+    rapidWindow.trim();
+  }
+
+  /** Approximate heap held by this window, its user id included. */
+  long footprintBytes() {
+    return FIXED_BYTES
+        + userId.length()
+        + pendingFrequent.footprintBytes()
+        + rapidWindow.footprintBytes();
+  }
+
+  // Timestamps are stored without a zone and generated from a UTC clock, so they are read back
+  // as UTC to line up with the hour buckets Postgres computes. Rounded to the microsecond like a
+  // Postgres TIMESTAMP.
+  static long epochMicros(Timestamp timestamp) {
+    LocalDateTime time = timestamp.toLocalDateTime();
+    return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + (time.getNano() + 500) / 1000;
+  }
+
+  private static Timestamp timestamp(long epochMicros) {
+    return Timestamp.valueOf(
+        LocalDateTime.ofEpochSecond(
+            Math.floorDiv(epochMicros, 1_000_000),
+            (int) Math.floorMod(epochMicros, 1_000_000) * 1000,
+            ZoneOffset.UTC));
+  }
+
+  private SuspiciousFlag flag(long transactionId, Timestamp timestamp, SuspiciousReason reason) {
+    return SuspiciousFlag.builder()
+        .transactionId(transactionId)
+        .userId(userId)
+        .timestamp(timestamp)
+        .reason(reason)
+        .build();
+  }
+
+  private SuspiciousFlag flag(Transaction transaction, SuspiciousReason reason) {
+    return flag(transaction.getId(), transaction.getTimestamp(), reason);
+  }
+}
@@ -0,0 +1,6 @@
+-- V10__transactions_timestamp_index.sql
+
+-- Fleet-wide scans read every user's transactions in a time range, oldest first. Without a
+-- timestamp-leading index each shard would scan and sort the whole monthly partitions instead.
+CREATE INDEX IF NOT EXISTS transactions_timestamp_id_idx
+    ON transaction_scanner.transactions (timestamp, id);
@@ -0,0 +1,21 @@
+-- V11__scanner_watermarks.sql
+
+-- Progress of the incremental scanner that writes suspicious_flags. Every transaction with an id up
+-- to watermark has been scanned. pending_id is the sequence head recorded on an earlier run and
+-- pending_xmax the snapshot xmax taken a run after it: once every transaction older than
+-- pending_xmax has ended, no transaction can still commit an id below pending_id, so the scanner
+-- may read up to it.
+CREATE TABLE IF NOT EXISTS transaction_scanner.scanner_watermarks (
+    scanner VARCHAR(64) PRIMARY KEY,
+    watermark BIGINT NOT NULL,
+    pending_id BIGINT,
+    pending_xmax BIGINT,
+    pending_since TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Start after the existing rows; only transactions inserted from now on are scanned.
+INSERT INTO transaction_scanner.scanner_watermarks (scanner, watermark)
+SELECT 'suspicious_flags', COALESCE(max(id), 0)
+FROM transaction_scanner.transactions
+ON CONFLICT (scanner) DO NOTHING;
@@ -0,0 +1,50 @@
+-- V12__suspicious_outbox.sql
+
+-- Every new suspicious flag, appended in the transaction that wrote the flag, for the suspicious
+-- feed. A flag that already existed is not inserted again, so each hit is appended once whether
+-- write-time detection or the incremental scanner found it.
+--
+-- Feed offsets are (tx_id, id). id alone would not do: ids are handed out before commit, so a
+-- lower id can become visible after a consumer has read past it. A row is only served once its
+-- tx_id is below the xmin of the reader's snapshot, so every transaction that could still append
+-- before it has ended, and (tx_id, id) then only ever grows.
+CREATE TABLE IF NOT EXISTS transaction_scanner.suspicious_outbox (
+    id BIGSERIAL NOT NULL,
+    tx_id XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    transaction_id BIGINT NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    reason VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (tx_id, id)
+);
+
+-- Retention deletes by age.
+CREATE INDEX IF NOT EXISTS suspicious_outbox_created_at_idx
+    ON transaction_scanner.suspicious_outbox (created_at);
+
+-- Appends the inserted flags and wakes the feed listeners. Notifications are only delivered on
+-- commit, and repeated ones in a transaction are folded into one.
+CREATE OR REPLACE FUNCTION transaction_scanner.append_suspicious_outbox()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO transaction_scanner.suspicious_outbox (transaction_id, user_id, timestamp, reason)
+    SELECT transaction_id, user_id, timestamp, reason
+    FROM inserted_flags
+    ORDER BY transaction_id, reason;
+
+    IF FOUND THEN
+        PERFORM pg_notify('suspicious_outbox', '');
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER suspicious_flags_outbox_on_insert
+    AFTER INSERT ON transaction_scanner.suspicious_flags
+    REFERENCING NEW TABLE AS inserted_flags
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION transaction_scanner.append_suspicious_outbox();
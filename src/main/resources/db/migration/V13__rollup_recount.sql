@@ -0,0 +1,27 @@
+-- V13__rollup_recount.sql
+
+-- Recounting every hourly rollup inside the configuration UPDATE held new inserts back for as long
+-- as the GROUP BY over all transactions took. RollupRecounter now recounts in bounded batches, each
+-- in its own transaction, once the new amount has committed.
+DROP TRIGGER IF EXISTS suspicious_transaction_configuration_recount_small
+    ON transaction_scanner.suspicious_transaction_configuration;
+DROP FUNCTION IF EXISTS transaction_scanner.recount_small_transactions();
+
+-- Progress of the recount. small_transaction_amount is the amount the small counts are brought to;
+-- every hour up to (after_user_id, after_hour_bucket) has been recounted, or all of them once
+-- completed. wait_xmax is the snapshot xmax when the recount started: inserts running then may
+-- have counted against the old amount, so batches start once every transaction below it has ended.
+CREATE TABLE IF NOT EXISTS transaction_scanner.rollup_recounts (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    small_transaction_amount NUMERIC(12, 2) NOT NULL,
+    after_user_id VARCHAR(255),
+    after_hour_bucket TIMESTAMP,
+    wait_xmax BIGINT,
+    completed BOOLEAN NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- The counts are exact for the current amount: V9 counted them with it.
+INSERT INTO transaction_scanner.rollup_recounts (id, small_transaction_amount, completed)
+VALUES (1, transaction_scanner.small_transaction_amount(), TRUE)
+ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,57 @@
+-- V14__partitions_from_default_rows.sql
+
+-- Rows outside every monthly partition land in transactions_default, where time range reads can
+-- never prune them, and creating their month afterwards fails because the default partition holds
+-- rows for it. Creating a month now moves its rows out of the default partition first. They are
+-- deleted and inserted again through the parent table, so the rollup triggers see both sides and
+-- the counters do not change; ids are kept, so flags and scanner watermarks still match.
+CREATE OR REPLACE FUNCTION transaction_scanner.create_transaction_partitions(from_date DATE, to_date DATE)
+RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_date)::date;
+    month_end DATE;
+    partition_name TEXT;
+    moved BIGINT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= to_date LOOP
+        month_end := (month_start + INTERVAL '1 month')::date;
+        partition_name := 'transactions_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM');
+        IF to_regclass('transaction_scanner.' || partition_name) IS NULL THEN
+            CREATE TEMP TABLE IF NOT EXISTS transactions_leaving_default ON COMMIT DROP AS
+                SELECT id, user_id, amount, transaction_type, timestamp
+                FROM transaction_scanner.transactions
+                WITH NO DATA;
+
+            -- No partition covers the month yet, so these rows can only be in the default one.
+            WITH leaving AS (
+                DELETE FROM transaction_scanner.transactions
+                WHERE timestamp >= month_start AND timestamp < month_end
+                RETURNING id, user_id, amount, transaction_type, timestamp
+            )
+            INSERT INTO transactions_leaving_default SELECT * FROM leaving;
+            GET DIAGNOSTICS moved = ROW_COUNT;
+
+            EXECUTE format(
+                'CREATE TABLE transaction_scanner.%I PARTITION OF transaction_scanner.transactions FOR VALUES FROM (%L) TO (%L)',
+                partition_name,
+                month_start,
+                month_end
+            );
+            created := created + 1;
+
+            IF moved > 0 THEN
+                INSERT INTO transaction_scanner.transactions (id, user_id, amount, transaction_type, timestamp)
+                SELECT id, user_id, amount, transaction_type, timestamp
+                FROM transactions_leaving_default;
+                TRUNCATE transactions_leaving_default;
+                RAISE NOTICE 'Moved % rows from transactions_default to %', moved, partition_name;
+            END IF;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$;
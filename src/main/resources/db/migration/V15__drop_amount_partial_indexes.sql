@@ -0,0 +1,9 @@
+-- V15__drop_amount_partial_indexes.sql
+
+-- The small and high volume amounts are configurable and the queries bind them as parameters, so
+-- Postgres cannot prove a query matches the fixed amount <= 100 / amount >= 10000 predicates and
+-- never picks these indexes; they only slowed every insert down. The frequent rule bounds its join
+-- by the hour's timestamp range instead, which (user_id, timestamp, id) serves.
+DROP INDEX IF EXISTS transaction_scanner.transactions_small_user_id_hour_bucket_idx;
+
+DROP INDEX IF EXISTS transaction_scanner.transactions_high_volume_user_id_timestamp_idx;
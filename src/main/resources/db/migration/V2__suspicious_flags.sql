@@ -0,0 +1,14 @@
+-- V2__suspicious_flags.sql
+
+-- Flags written by the write-time detection engine, one row per transaction and reason.
+-- user_id and timestamp are copied from the transaction so per-user reads are a single index range scan.
+CREATE TABLE IF NOT EXISTS transaction_scanner.suspicious_flags (
+    transaction_id BIGINT NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    reason VARCHAR(64) NOT NULL,
+    PRIMARY KEY (transaction_id, reason)
+);
+
+CREATE INDEX IF NOT EXISTS suspicious_flags_user_id_timestamp_idx
+    ON transaction_scanner.suspicious_flags (user_id, timestamp DESC);
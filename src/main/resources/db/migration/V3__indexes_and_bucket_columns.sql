@@ -0,0 +1,70 @@
+-- V3__indexes_and_bucket_columns.sql
+
+-- Per-user reads used to scan the whole table. Every rule partitions by user_id and a time bucket,
+-- so the buckets are stored and indexed next to user_id.
+-- Adding stored columns rewrites the table; run during a quiet period on large installs.
+
+ALTER TABLE transaction_scanner.transactions
+    ADD COLUMN IF NOT EXISTS hour_bucket TIMESTAMP
+        GENERATED ALWAYS AS (date_trunc('hour', timestamp)) STORED,
+    ADD COLUMN IF NOT EXISTS minute_bucket SMALLINT
+        GENERATED ALWAYS AS (floor(date_part('minute', timestamp) / 5)) STORED;
+
+CREATE INDEX IF NOT EXISTS transactions_user_id_timestamp_idx
+    ON transaction_scanner.transactions (user_id, timestamp);
+
+CREATE INDEX IF NOT EXISTS transactions_small_user_id_hour_bucket_idx
+    ON transaction_scanner.transactions (user_id, hour_bucket)
+    WHERE amount <= 100;
+
+CREATE INDEX IF NOT EXISTS transactions_high_volume_user_id_timestamp_idx
+    ON transaction_scanner.transactions (user_id, timestamp)
+    WHERE amount >= 10000;
+
+CREATE INDEX IF NOT EXISTS transactions_user_id_minute_bucket_idx
+    ON transaction_scanner.transactions (user_id, minute_bucket);
+
+
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_frequent_transactions AS
+WITH cfg AS (
+    SELECT frequent_suspicious_transaction_threshold AS n
+    FROM transaction_scanner.suspicious_transaction_configuration
+    LIMIT 1
+),
+txns_with_count AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.hour_bucket) AS cnt
+    FROM transaction_scanner.transactions t
+    WHERE t.amount <= 100
+)
+SELECT t.id, t.user_id, t.cnt, t.amount, t.timestamp, t.transaction_type
+FROM txns_with_count t
+CROSS JOIN cfg
+WHERE t.cnt >= cfg.n
+ORDER BY t.cnt DESC;
+
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_rapid_transactions AS
+WITH RapidCounts AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.minute_bucket) as five_min_count
+    FROM transaction_scanner.transactions t
+)
+SELECT
+    id,
+    user_id,
+    amount,
+    timestamp,
+    five_min_count,
+    transaction_type
+FROM RapidCounts
+WHERE five_min_count >= 3;
@@ -0,0 +1,131 @@
+-- V4__partition_transactions.sql
+
+-- Range partitions transactions by month on timestamp so time-bounded reads only touch the
+-- partitions they need. Partitions are created ahead of time by create_transaction_partitions,
+-- which the application calls on startup and on a schedule.
+
+DROP VIEW IF EXISTS transaction_scanner.suspicious_frequent_transactions;
+DROP VIEW IF EXISTS transaction_scanner.suspicious_high_volume_transactions;
+DROP VIEW IF EXISTS transaction_scanner.suspicious_rapid_transactions;
+
+ALTER TABLE transaction_scanner.transactions RENAME TO transactions_unpartitioned;
+ALTER INDEX transaction_scanner.transactions_pkey RENAME TO transactions_unpartitioned_pkey;
+
+CREATE TABLE transaction_scanner.transactions (
+    id BIGINT NOT NULL DEFAULT nextval('transaction_scanner.transactions_id_seq'),
+    user_id VARCHAR(255) NOT NULL,
+    amount NUMERIC(12, 2) NOT NULL,
+    transaction_type VARCHAR(255) NOT NULL REFERENCES transaction_scanner.transaction_type(transaction_type),
+    timestamp TIMESTAMP NOT NULL,
+    hour_bucket TIMESTAMP GENERATED ALWAYS AS (date_trunc('hour', timestamp)) STORED,
+    minute_bucket SMALLINT GENERATED ALWAYS AS (floor(date_part('minute', timestamp) / 5)) STORED,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE transaction_scanner.transactions_id_seq OWNED BY transaction_scanner.transactions.id;
+
+-- Catches rows outside every monthly partition (e.g. far future timestamps) instead of failing the insert.
+CREATE TABLE transaction_scanner.transactions_default
+    PARTITION OF transaction_scanner.transactions DEFAULT;
+
+CREATE OR REPLACE FUNCTION transaction_scanner.create_transaction_partitions(from_date DATE, to_date DATE)
+RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_date)::date;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= to_date LOOP
+        partition_name := 'transactions_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM');
+        IF to_regclass('transaction_scanner.' || partition_name) IS NULL THEN
+            EXECUTE format(
+                'CREATE TABLE transaction_scanner.%I PARTITION OF transaction_scanner.transactions FOR VALUES FROM (%L) TO (%L)',
+                partition_name,
+                month_start,
+                (month_start + INTERVAL '1 month')::date
+            );
+            created := created + 1;
+        END IF;
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+SELECT transaction_scanner.create_transaction_partitions(
+    COALESCE((SELECT min(timestamp) FROM transaction_scanner.transactions_unpartitioned), now())::date,
+    (now() + INTERVAL '3 months')::date
+);
+
+INSERT INTO transaction_scanner.transactions (id, user_id, amount, transaction_type, timestamp)
+SELECT id, user_id, amount, transaction_type, timestamp
+FROM transaction_scanner.transactions_unpartitioned;
+
+DROP TABLE transaction_scanner.transactions_unpartitioned;
+
+
+CREATE INDEX IF NOT EXISTS transactions_user_id_timestamp_idx
+    ON transaction_scanner.transactions (user_id, timestamp);
+
+CREATE INDEX IF NOT EXISTS transactions_small_user_id_hour_bucket_idx
+    ON transaction_scanner.transactions (user_id, hour_bucket)
+    WHERE amount <= 100;
+
+CREATE INDEX IF NOT EXISTS transactions_high_volume_user_id_timestamp_idx
+    ON transaction_scanner.transactions (user_id, timestamp)
+    WHERE amount >= 10000;
+
+CREATE INDEX IF NOT EXISTS transactions_user_id_minute_bucket_idx
+    ON transaction_scanner.transactions (user_id, minute_bucket);
+
+
+CREATE VIEW transaction_scanner.suspicious_frequent_transactions AS
+WITH cfg AS (
+    SELECT frequent_suspicious_transaction_threshold AS n
+    FROM transaction_scanner.suspicious_transaction_configuration
+    LIMIT 1
+),
+txns_with_count AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.hour_bucket) AS cnt
+    FROM transaction_scanner.transactions t
+    WHERE t.amount <= 100
+)
+SELECT t.id, t.user_id, t.cnt, t.amount, t.timestamp, t.transaction_type
+FROM txns_with_count t
+CROSS JOIN cfg
+WHERE t.cnt >= cfg.n
+ORDER BY t.cnt DESC;
+
+CREATE VIEW transaction_scanner.suspicious_high_volume_transactions AS
+SELECT id, user_id, amount, transaction_type, timestamp
+FROM transaction_scanner.transactions
+WHERE amount >= 10000;
+
+CREATE VIEW transaction_scanner.suspicious_rapid_transactions AS
+WITH RapidCounts AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.minute_bucket) as five_min_count
+    FROM transaction_scanner.transactions t
+)
+SELECT
+    id,
+    user_id,
+    amount,
+    timestamp,
+    five_min_count,
+    transaction_type
+FROM RapidCounts
+WHERE five_min_count >= 3;
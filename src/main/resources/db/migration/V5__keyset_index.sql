@@ -0,0 +1,8 @@
+-- V5__keyset_index.sql
+
+-- Paginated reads walk a user's transactions in (timestamp desc, id desc) order. Adding id to the
+-- per-user index lets them start at the cursor and stop after one page.
+CREATE INDEX IF NOT EXISTS transactions_user_id_timestamp_id_idx
+    ON transaction_scanner.transactions (user_id, timestamp, id);
+
+DROP INDEX IF EXISTS transaction_scanner.transactions_user_id_timestamp_idx;
@@ -0,0 +1,73 @@
+-- V6__rule_configuration.sql
+
+-- Every rule threshold lives in the configuration row so the application can load them once and
+-- bind them into its queries. The defaults are the values previously hard-coded in the views.
+ALTER TABLE transaction_scanner.suspicious_transaction_configuration
+    ADD COLUMN small_transaction_amount NUMERIC(12, 2) NOT NULL DEFAULT 100,
+    ADD COLUMN high_volume_amount NUMERIC(12, 2) NOT NULL DEFAULT 10000,
+    ADD COLUMN rapid_window_seconds INTEGER NOT NULL DEFAULT 300,
+    ADD COLUMN rapid_transaction_threshold INTEGER NOT NULL DEFAULT 3;
+
+-- The views stay for the RULE_QUERIES finder strategy; read the thresholds from the same row so
+-- both strategies agree. The rapid view keeps its stored 5 minute bucket, so only its count
+-- threshold is configurable.
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_frequent_transactions AS
+WITH cfg AS (
+    SELECT frequent_suspicious_transaction_threshold AS n, small_transaction_amount
+    FROM transaction_scanner.suspicious_transaction_configuration
+    ORDER BY id
+    LIMIT 1
+),
+txns_with_count AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.hour_bucket) AS cnt
+    FROM transaction_scanner.transactions t
+    CROSS JOIN cfg
+    WHERE t.amount <= cfg.small_transaction_amount
+)
+SELECT t.id, t.user_id, t.cnt, t.amount, t.timestamp, t.transaction_type
+FROM txns_with_count t
+CROSS JOIN cfg
+WHERE t.cnt >= cfg.n
+ORDER BY t.cnt DESC;
+
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_high_volume_transactions AS
+SELECT t.id, t.user_id, t.amount, t.transaction_type, t.timestamp
+FROM transaction_scanner.transactions t
+WHERE t.amount >= (
+    SELECT high_volume_amount
+    FROM transaction_scanner.suspicious_transaction_configuration
+    ORDER BY id
+    LIMIT 1
+);
+
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_rapid_transactions AS
+WITH RapidCounts AS (
+    SELECT
+        t.id,
+        t.user_id,
+        t.amount,
+        t.timestamp,
+        t.transaction_type,
+        COUNT(*) OVER (PARTITION BY t.user_id, t.minute_bucket) as five_min_count
+    FROM transaction_scanner.transactions t
+)
+SELECT
+    id,
+    user_id,
+    amount,
+    timestamp,
+    five_min_count,
+    transaction_type
+FROM RapidCounts
+WHERE five_min_count >= (
+    SELECT rapid_transaction_threshold
+    FROM transaction_scanner.suspicious_transaction_configuration
+    ORDER BY id
+    LIMIT 1
+);
@@ -0,0 +1,15 @@
+-- V7__backfill_checkpoints.sql
+
+-- Progress of bulk imports, committed together with each COPY chunk so an interrupted import
+-- resumes after the last committed line.
+CREATE TABLE IF NOT EXISTS transaction_scanner.backfill_checkpoints (
+    import_id VARCHAR(255) PRIMARY KEY,
+    file VARCHAR(1024) NOT NULL,
+    format VARCHAR(16) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    lines_read BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    message TEXT,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
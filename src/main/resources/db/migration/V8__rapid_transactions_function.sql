@@ -0,0 +1,45 @@
+-- V8__rapid_transactions_function.sql
+
+-- The rapid view counted transactions per (user_id, minute_bucket), a 5 minute slot of the hour
+-- shared by every hour and day, and computed the window over every user before the caller's
+-- user_id filter. This function counts a true trailing window over one user's rows instead, read
+-- in (user_id, timestamp) index order. It is a single STABLE SQL statement, so Postgres inlines it
+-- into the calling query and the user and window are planned as ordinary parameters.
+CREATE OR REPLACE FUNCTION transaction_scanner.suspicious_rapid_transactions_for_user(
+    p_user_id VARCHAR,
+    p_window_seconds BIGINT,
+    p_threshold INTEGER
+)
+RETURNS TABLE (
+    id BIGINT,
+    user_id VARCHAR,
+    amount NUMERIC(12, 2),
+    "timestamp" TIMESTAMP,
+    five_min_count BIGINT,
+    transaction_type VARCHAR
+)
+LANGUAGE sql
+STABLE
+AS $$
+    SELECT r.id, r.user_id, r.amount, r.timestamp, r.five_min_count, r.transaction_type
+    FROM (
+        SELECT
+            t.id,
+            t.user_id,
+            t.amount,
+            t.timestamp,
+            t.transaction_type,
+            COUNT(*) OVER (
+                ORDER BY t.timestamp
+                RANGE BETWEEN p_window_seconds * INTERVAL '1 second' PRECEDING AND CURRENT ROW
+            ) AS five_min_count
+        FROM transaction_scanner.transactions t
+        WHERE t.user_id = p_user_id
+    ) r
+    WHERE r.five_min_count >= p_threshold
+$$;
+
+DROP VIEW IF EXISTS transaction_scanner.suspicious_rapid_transactions;
+
+-- Only the view read the bucket; dropping the column also drops its index.
+ALTER TABLE transaction_scanner.transactions DROP COLUMN IF EXISTS minute_bucket;
@@ -0,0 +1,155 @@
+-- V9__transaction_rollups.sql
+
+-- Per-user counters of transactions by clock hour and by 5 minute bucket, so the frequent rule
+-- reads one counter row per hour instead of counting every small transaction of the user, and
+-- the per-row rapid check can skip windows that cannot reach the threshold. They are maintained
+-- by statement triggers on transactions, in the inserting transaction, so every write path (JPA,
+-- JDBC batches and COPY) keeps them exact.
+CREATE TABLE IF NOT EXISTS transaction_scanner.user_hourly_rollups (
+    user_id VARCHAR(255) NOT NULL,
+    hour_bucket TIMESTAMP NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    small_transaction_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, hour_bucket)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_scanner.user_five_minute_rollups (
+    user_id VARCHAR(255) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, bucket_start)
+);
+
+-- The amount below which the frequent rule counts a transaction, from the configuration row.
+CREATE OR REPLACE FUNCTION transaction_scanner.small_transaction_amount()
+RETURNS NUMERIC(12, 2)
+LANGUAGE sql
+STABLE
+AS $$
+    SELECT small_transaction_amount
+    FROM transaction_scanner.suspicious_transaction_configuration
+    ORDER BY id
+    LIMIT 1
+$$;
+
+-- Adds the inserted rows to the counters, or subtracts the deleted ones, one upsert per bucket
+-- touched by the statement. Keys are upserted in order so concurrent statements lock the counter
+-- rows they share in the same order.
+CREATE OR REPLACE FUNCTION transaction_scanner.maintain_transaction_rollups()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    changed_rows TEXT := CASE TG_OP WHEN 'INSERT' THEN 'inserted_rows' ELSE 'deleted_rows' END;
+    direction INTEGER := CASE TG_OP WHEN 'INSERT' THEN 1 ELSE -1 END;
+BEGIN
+    EXECUTE format(
+        $sql$
+        INSERT INTO transaction_scanner.user_hourly_rollups AS r
+            (user_id, hour_bucket, transaction_count, small_transaction_count)
+        SELECT user_id, hour_bucket, %2$s * count(*), %2$s * count(*) FILTER (WHERE amount <= $1)
+        FROM %1$I
+        GROUP BY user_id, hour_bucket
+        ORDER BY user_id, hour_bucket
+        ON CONFLICT (user_id, hour_bucket) DO UPDATE SET
+            transaction_count = r.transaction_count + EXCLUDED.transaction_count,
+            small_transaction_count = r.small_transaction_count + EXCLUDED.small_transaction_count
+        $sql$,
+        changed_rows,
+        direction
+    ) USING transaction_scanner.small_transaction_amount();
+
+    EXECUTE format(
+        $sql$
+        INSERT INTO transaction_scanner.user_five_minute_rollups AS r
+            (user_id, bucket_start, transaction_count)
+        SELECT user_id, date_bin(INTERVAL '5 minutes', timestamp, TIMESTAMP '2000-01-01') AS b,
+               %2$s * count(*)
+        FROM %1$I
+        GROUP BY user_id, b
+        ORDER BY user_id, b
+        ON CONFLICT (user_id, bucket_start) DO UPDATE SET
+            transaction_count = r.transaction_count + EXCLUDED.transaction_count
+        $sql$,
+        changed_rows,
+        direction
+    );
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER transactions_rollups_on_insert
+    AFTER INSERT ON transaction_scanner.transactions
+    REFERENCING NEW TABLE AS inserted_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION transaction_scanner.maintain_transaction_rollups();
+
+CREATE TRIGGER transactions_rollups_on_delete
+    AFTER DELETE ON transaction_scanner.transactions
+    REFERENCING OLD TABLE AS deleted_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION transaction_scanner.maintain_transaction_rollups();
+
+-- The small counts depend on small_transaction_amount, so changing it recounts them. The lock
+-- waits for in-flight inserts to commit and holds new ones back until the new amount is
+-- committed, so no insert is counted against the old amount after the recount.
+CREATE OR REPLACE FUNCTION transaction_scanner.recount_small_transactions()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    LOCK TABLE transaction_scanner.user_hourly_rollups IN SHARE ROW EXCLUSIVE MODE;
+
+    UPDATE transaction_scanner.user_hourly_rollups r
+    SET small_transaction_count = s.small_transaction_count
+    FROM (
+        SELECT t.user_id, t.hour_bucket, count(*) FILTER (WHERE t.amount <= cfg.amount) AS small_transaction_count
+        FROM transaction_scanner.transactions t
+        CROSS JOIN (SELECT transaction_scanner.small_transaction_amount() AS amount) cfg
+        GROUP BY t.user_id, t.hour_bucket
+    ) s
+    WHERE r.user_id = s.user_id
+      AND r.hour_bucket = s.hour_bucket
+      AND r.small_transaction_count <> s.small_transaction_count;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER suspicious_transaction_configuration_recount_small
+    AFTER UPDATE OF small_transaction_amount ON transaction_scanner.suspicious_transaction_configuration
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION transaction_scanner.recount_small_transactions();
+
+INSERT INTO transaction_scanner.user_hourly_rollups
+    (user_id, hour_bucket, transaction_count, small_transaction_count)
+SELECT user_id,
+       hour_bucket,
+       count(*),
+       count(*) FILTER (WHERE amount <= transaction_scanner.small_transaction_amount())
+FROM transaction_scanner.transactions
+GROUP BY user_id, hour_bucket;
+
+INSERT INTO transaction_scanner.user_five_minute_rollups (user_id, bucket_start, transaction_count)
+SELECT user_id, date_bin(INTERVAL '5 minutes', timestamp, TIMESTAMP '2000-01-01') AS b, count(*)
+FROM transaction_scanner.transactions
+GROUP BY user_id, b;
+
+-- The RULE_QUERIES strategy reads the frequent view; probe the counters for it too.
+CREATE OR REPLACE VIEW transaction_scanner.suspicious_frequent_transactions AS
+WITH cfg AS (
+    SELECT frequent_suspicious_transaction_threshold AS n, small_transaction_amount
+    FROM transaction_scanner.suspicious_transaction_configuration
+    ORDER BY id
+    LIMIT 1
+)
+SELECT t.id, t.user_id, h.small_transaction_count AS cnt, t.amount, t.timestamp, t.transaction_type
+FROM transaction_scanner.user_hourly_rollups h
+CROSS JOIN cfg
+JOIN transaction_scanner.transactions t
+    ON t.user_id = h.user_id
+    AND t.hour_bucket = h.hour_bucket
+WHERE h.small_transaction_count >= cfg.n
+  AND t.amount <= cfg.small_transaction_amount
+ORDER BY h.small_transaction_count DESC;
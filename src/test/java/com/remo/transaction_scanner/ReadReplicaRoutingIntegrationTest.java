@@ -0,0 +1,148 @@
+package com.remo.transaction_scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.controller.ReadConsistencyFilter;
+import com.remo.transaction_scanner.model.TransactionRequest;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the app against two unrelated Postgres containers, one as primary and one as replica, so
+ * where a read went shows in which rows it returns.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReadReplicaRoutingIntegrationTest {
+
+  @Container
+  static PostgreSQLContainer<?> primary =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  @Container
+  static PostgreSQLContainer<?> replica =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    primary.start();
+    replica.start();
+    // Flyway only migrates the primary; give the replica the same schema.
+    Flyway.configure()
+        .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+        .schemas("transaction_scanner")
+        .locations("classpath:db/migration")
+        .load()
+        .migrate();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", primary::getJdbcUrl);
+    registry.add("spring.datasource.username", primary::getUsername);
+    registry.add("spring.datasource.password", primary::getPassword);
+    registry.add("transaction-scanner.read-replicas.urls", replica::getJdbcUrl);
+  }
+
+  @LocalServerPort private int port;
+
+  @Autowired private TestRestTemplate restTemplate;
+
+  @Autowired private JdbcTemplate jdbc;
+
+  private final JdbcTemplate replicaJdbc =
+      new JdbcTemplate(
+          new DriverManagerDataSource(
+              replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+
+  private ResponseEntity<TransactionResponse[]> getSuspicious(String userId, boolean primary) {
+    HttpHeaders headers = new HttpHeaders();
+    if (primary) {
+      headers.add(ReadConsistencyFilter.HEADER, ReadConsistencyFilter.PRIMARY);
+    }
+    return restTemplate.exchange(
+        "http://localhost:" + port + "/api/v1/users/" + userId + "/transactions/suspicious",
+        HttpMethod.GET,
+        new HttpEntity<>(headers),
+        TransactionResponse[].class);
+  }
+
+  @Test
+  void suspiciousReadsGoToTheReplicaUnlessPinnedToThePrimary() {
+    String user = "replicaOnlyUser";
+    replicaJdbc.update(
+        "INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp) VALUES (?, ?, ?, ?)",
+        user,
+        new BigDecimal("20000.00"),
+        "DEPOSIT",
+        Timestamp.valueOf(LocalDateTime.now()));
+
+    ResponseEntity<TransactionResponse[]> fromReplica = getSuspicious(user, false);
+    assertThat(fromReplica.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(fromReplica.getBody()).hasSize(1);
+
+    assertThat(getSuspicious(user, true).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+  }
+
+  @Test
+  void writesGoToThePrimaryAndArePinnedReadable() {
+    String user = "writerUser";
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+    ResponseEntity<TransactionResponse> posted =
+        restTemplate.postForEntity(
+            "http://localhost:" + port + "/api/v1/transactions",
+            new HttpEntity<>(
+                TransactionRequest.builder()
+                    .userId(user)
+                    .amount(1_500_000L)
+                    .transactionType(TransactionType.DEPOSIT)
+                    .build(),
+                headers),
+            TransactionResponse.class);
+    assertThat(posted.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+    String countSql = "SELECT count(*) FROM transaction_scanner.transactions WHERE user_id = ?";
+    assertThat(jdbc.queryForObject(countSql, Integer.class, user)).isEqualTo(1);
+    assertThat(replicaJdbc.queryForObject(countSql, Integer.class, user)).isZero();
+
+    // The replica never receives the write; only a pinned read sees it.
+    assertThat(getSuspicious(user, false).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    ResponseEntity<TransactionResponse[]> pinned = getSuspicious(user, true);
+    assertThat(pinned.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(pinned.getBody())
+        .extracting(TransactionResponse::getId)
+        .containsExactly(posted.getBody().getId());
+
+    // The replica's empty list was not cached; the primary's list now is.
+    assertThat(getSuspicious(user, false).getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+}
@@ -2,11 +2,21 @@ package com.remo.transaction_scanner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
 import com.remo.transaction_scanner.model.TransactionRequest;
 import com.remo.transaction_scanner.model.TransactionResponse;
 import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.repository.SuspiciousOutboxRepository;
+import com.remo.transaction_scanner.service.SuspiciousTransactionFinder;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeAll;
@@ -56,6 +66,10 @@ public class TransactionScannerIntegrationTest {
 
   @Autowired private JdbcTemplate jdbc;
 
+  @Autowired private SuspiciousTransactionFinder finder;
+
+  @Autowired private SuspiciousOutboxRepository outboxRepository;
+
   private String baseUrl;
 
   @BeforeAll
@@ -67,7 +81,7 @@ public class TransactionScannerIntegrationTest {
       String userId, BigDecimal amount, TransactionType transactionType) {
     return TransactionRequest.builder()
         .userId(userId)
-        .amount(amount)
+        .amount(amount == null ? null : Cents.of(amount))
         .transactionType(transactionType)
         .build();
   }
@@ -142,4 +156,139 @@ public class TransactionScannerIntegrationTest {
         .extracting(TransactionResponse::getSuspiciousReason)
         .anySatisfy(reasons -> assertThat(reasons).contains("Rapid transaction"));
   }
+
+  @Test
+  void testBatchTransactions() {
+    String user = "batchUser";
+    List<TransactionRequest> batch =
+        List.of(
+            makeRequest(user, BigDecimal.valueOf(10), TransactionType.DEPOSIT),
+            makeRequest(user, null, TransactionType.DEPOSIT),
+            makeRequest(user, new BigDecimal("20000"), TransactionType.TRANSFER));
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+    ResponseEntity<TransactionBatchResponse> resp =
+        restTemplate.postForEntity(
+            baseUrl + "/transactions/batch",
+            new HttpEntity<>(batch, headers),
+            TransactionBatchResponse.class);
+
+    assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(resp.getBody().getAccepted()).isEqualTo(2);
+    assertThat(resp.getBody().getRejected()).isEqualTo(1);
+    assertThat(resp.getBody().getResults().get(1).getStatus())
+        .isEqualTo(BatchItemStatus.REJECTED);
+
+    Integer saved =
+        jdbc.queryForObject(
+            "SELECT count(*) FROM transaction_scanner.transactions WHERE user_id = ?",
+            Integer.class,
+            user);
+    assertThat(saved).isEqualTo(2);
+  }
+
+  @Test
+  void testPostReturnsWriteTimeDetection() {
+    String user = "writeTimeUser";
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+
+    ResponseEntity<TransactionResponse> resp =
+        restTemplate.postForEntity(
+            baseUrl + "/transactions",
+            new HttpEntity<>(
+                makeRequest(user, new BigDecimal("25000"), TransactionType.TRANSFER), headers),
+            TransactionResponse.class);
+
+    assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    assertThat(resp.getBody().getSuspicious()).isTrue();
+    assertThat(resp.getBody().getSuspiciousReason()).containsExactly("High volume transaction");
+
+    Integer flags =
+        jdbc.queryForObject(
+            "SELECT count(*) FROM transaction_scanner.suspicious_flags WHERE user_id = ?",
+            Integer.class,
+            user);
+    assertThat(flags).isEqualTo(1);
+  }
+
+  @Test
+  void testSuspiciousFeedDeliversEachNewFlagOnce() throws InterruptedException {
+    String user = "feedUser";
+    FeedOffset start = outboxRepository.head();
+
+    postTxn(makeRequest(user, new BigDecimal("25000"), TransactionType.TRANSFER));
+    // Flagging the transaction again, as the incremental scanner does, appends nothing.
+    jdbc.update(
+        "INSERT INTO transaction_scanner.suspicious_flags SELECT * FROM transaction_scanner.suspicious_flags WHERE user_id = ? ON CONFLICT DO NOTHING",
+        user);
+
+    List<SuspiciousFeedEvent> events = feedEventsOf(user, start);
+    assertThat(events)
+        .extracting(SuspiciousFeedEvent::getReason)
+        .containsExactly(SuspiciousReason.HIGH_VOLUME_TRANSACTION);
+    assertThat(outboxRepository.findAfter(events.get(0).getOffset(), 1000))
+        .noneMatch(event -> user.equals(event.getUserId()));
+  }
+
+  // Events are served once every older transaction has ended, so other tests' writes can hold
+  // them back for a moment.
+  private List<SuspiciousFeedEvent> feedEventsOf(String user, FeedOffset after)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (true) {
+      List<SuspiciousFeedEvent> events =
+          outboxRepository.findAfter(after, 1000).stream()
+              .filter(event -> user.equals(event.getUserId()))
+              .toList();
+      if (!events.isEmpty() || System.nanoTime() - deadline > 0) {
+        return events;
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  @Test
+  void testSingleQueryMatchesRuleQueries() {
+    String user = "compareUser";
+    IntStream.range(0, 6)
+        .forEach(i -> postTxn(makeRequest(user, BigDecimal.valueOf(10), TransactionType.DEPOSIT)));
+    postTxn(makeRequest(user, new BigDecimal("15000"), TransactionType.TRANSFER));
+
+    List<TransactionResponse> single = finder.findWithSingleQuery(user);
+    List<TransactionResponse> ruleQueries = finder.findWithRuleQueries(user);
+
+    assertThat(single).isNotEmpty();
+    assertThat(single).containsExactlyInAnyOrderElementsOf(ruleQueries);
+    assertThat(single)
+        .isSortedAccordingTo((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+  }
+
+  @Test
+  void testStreamedExportMatchesFullRangeRead() {
+    String user = "exportUser";
+    IntStream.range(0, 6)
+        .forEach(i -> postTxn(makeRequest(user, BigDecimal.valueOf(10), TransactionType.DEPOSIT)));
+    postTxn(makeRequest(user, new BigDecimal("15000"), TransactionType.TRANSFER));
+
+    List<TransactionResponse> streamed = new ArrayList<>();
+    long count = finder.streamSuspiciousTransactions(user, streamed::add);
+    List<TransactionResponse> ranged =
+        finder.findInTimeRange(
+            user,
+            Timestamp.valueOf("1970-01-01 00:00:00"),
+            Timestamp.valueOf("9999-12-31 00:00:00"));
+
+    assertThat(count).isEqualTo(streamed.size());
+    assertThat(streamed).isNotEmpty();
+    assertThat(streamed).containsExactlyElementsOf(ranged);
+
+    ResponseEntity<TransactionResponse[]> resp =
+        restTemplate.getForEntity(
+            baseUrl + "/users/" + user + "/transactions/suspicious/export",
+            TransactionResponse[].class);
+    assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(resp.getBody()).containsExactlyElementsOf(streamed);
+  }
 }
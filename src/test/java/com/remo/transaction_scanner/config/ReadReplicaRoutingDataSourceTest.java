@@ -0,0 +1,57 @@
+package com.remo.transaction_scanner.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReadReplicaRoutingDataSourceTest {
+
+  private final DataSource primary = mock(DataSource.class);
+  private final DataSource replica1 = mock(DataSource.class);
+  private final DataSource replica2 = mock(DataSource.class);
+  private final Connection primaryConnection = mock(Connection.class);
+  private final Connection replica1Connection = mock(Connection.class);
+  private final Connection replica2Connection = mock(Connection.class);
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(replica1.getConnection()).thenReturn(replica1Connection);
+    when(replica2.getConnection()).thenReturn(replica2Connection);
+  }
+
+  @Test
+  void readsAlternateBetweenReplicas() throws Exception {
+    ReadReplicaRoutingDataSource routing =
+        new ReadReplicaRoutingDataSource(primary, List.of(replica1, replica2));
+
+    assertThat(routing.getConnection()).isSameAs(replica1Connection);
+    assertThat(routing.getConnection()).isSameAs(replica2Connection);
+    assertThat(routing.getConnection()).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void pinnedReadsGoToThePrimary() throws Exception {
+    ReadReplicaRoutingDataSource routing =
+        new ReadReplicaRoutingDataSource(primary, List.of(replica1, replica2));
+
+    try (ReadRouting.Scope scope = ReadRouting.pinToPrimary()) {
+      assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+    assertThat(ReadRouting.isPrimaryPinned()).isFalse();
+    assertThat(routing.getConnection()).isSameAs(replica1Connection);
+  }
+
+  @Test
+  void withoutReplicasReadsGoToThePrimary() throws Exception {
+    ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of());
+
+    assertThat(routing.getConnection()).isSameAs(primaryConnection);
+  }
+}
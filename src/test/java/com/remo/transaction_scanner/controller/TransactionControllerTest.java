@@ -1,22 +1,42 @@
 package com.remo.transaction_scanner.controller;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.remo.transaction_scanner.exception.RestErrorResponse;
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.CacheStatsResponse;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.StreamEventType;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousTransactionPage;
+import com.remo.transaction_scanner.model.TransactionBatchItemResult;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
 import com.remo.transaction_scanner.model.TransactionRequest;
 import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionStreamEvent;
+import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.service.SuspiciousFleetScanner;
+import com.remo.transaction_scanner.service.TransactionScannerMetrics;
 import com.remo.transaction_scanner.service.TransactionScannerService;
+import com.remo.transaction_scanner.service.TransactionStreamIngestionService;
 import jakarta.persistence.PersistenceException;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -26,6 +46,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(TransactionController.class)
 class TransactionControllerTest {
@@ -34,6 +55,10 @@ class TransactionControllerTest {
 
   @MockitoBean private TransactionScannerService service;
 
+  @MockitoBean private TransactionStreamIngestionService streamIngestionService;
+
+  @MockitoBean private TransactionScannerMetrics metrics;
+
   @Autowired private ObjectMapper objectMapper;
 
   private TransactionRequest req;
@@ -43,12 +68,13 @@ class TransactionControllerTest {
   void setUp() {
     req = new TransactionRequest();
     req.setUserId("user1");
-    req.setAmount(new BigDecimal("42.00"));
+    req.setAmount(4_200L);
+    req.setTransactionType(TransactionType.DEPOSIT);
 
     res =
         TransactionResponse.builder()
             .userId("user1")
-            .amount(new BigDecimal("42.00"))
+            .amountCents(4_200)
             .timestamp(Timestamp.valueOf(LocalDateTime.of(2025, 4, 24, 12, 0)))
             .suspicious(false)
             .suspiciousReason(null)
@@ -65,7 +91,24 @@ class TransactionControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(req)))
         .andExpect(status().isCreated())
-        .andExpect(content().json(objectMapper.writeValueAsString(res)));
+        .andExpect(content().json(objectMapper.writeValueAsString(res)))
+        .andExpect(content().string(containsString("\"amount\":42.00")));
+  }
+
+  @Test
+  void postTransaction_readsTheDecimalAmountAsCents() throws Exception {
+    Mockito.when(service.saveTransaction(any(TransactionRequest.class))).thenReturn(res);
+
+    mockMvc
+        .perform(
+            post("/api/v1/transactions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    "{\"userId\":\"user1\",\"amount\":0.005,\"transactionType\":\"DEPOSIT\"}"))
+        .andExpect(status().isCreated());
+
+    Mockito.verify(service)
+        .saveTransaction(Mockito.argThat(request -> request.getAmount() == 1L));
   }
 
   @Test
@@ -122,6 +165,75 @@ class TransactionControllerTest {
         .andExpect(content().json(objectMapper.writeValueAsString(err)));
   }
 
+  @Test
+  void postTransactions_success() throws Exception {
+    TransactionBatchResponse batch =
+        TransactionBatchResponse.builder()
+            .accepted(1)
+            .rejected(0)
+            .results(
+                List.of(
+                    TransactionBatchItemResult.builder()
+                        .index(0)
+                        .status(BatchItemStatus.ACCEPTED)
+                        .transaction(res)
+                        .build()))
+            .build();
+    Mockito.when(service.saveTransactions(anyList())).thenReturn(batch);
+
+    mockMvc
+        .perform(
+            post("/api/v1/transactions/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(req))))
+        .andExpect(status().isCreated())
+        .andExpect(content().json(objectMapper.writeValueAsString(batch)));
+  }
+
+  @Test
+  void postTransactions_oversizedBatch() throws Exception {
+    Mockito.when(service.saveTransactions(anyList()))
+        .thenThrow(
+            new IllegalArgumentException("A batch must contain between 1 and 1 transactions."));
+
+    RestErrorResponse err =
+        new RestErrorResponse(
+            400, "INVALID_REQUEST", "A batch must contain between 1 and 1 transactions.");
+
+    mockMvc
+        .perform(
+            post("/api/v1/transactions/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(req, req))))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().json(objectMapper.writeValueAsString(err)));
+  }
+
+  @Test
+  void streamTransactions_writesEventsAsNdjson() throws Exception {
+    TransactionStreamEvent summary =
+        TransactionStreamEvent.builder()
+            .event(StreamEventType.SUMMARY)
+            .accepted(1L)
+            .rejected(0L)
+            .build();
+    Mockito.when(streamIngestionService.ingest(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<TransactionStreamEvent> listener = invocation.getArgument(1);
+              listener.accept(summary);
+              return summary;
+            });
+
+    mockMvc
+        .perform(
+            post("/api/v1/transactions/stream")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(objectMapper.writeValueAsString(req) + "\n"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(objectMapper.writeValueAsString(summary) + "\n"));
+  }
+
   @Test
   void getSuspiciousTransactions_noContent() throws Exception {
     Mockito.when(service.getSuspiciousTransactions("user1")).thenReturn(Collections.emptyList());
@@ -142,6 +254,209 @@ class TransactionControllerTest {
         .andExpect(content().json(objectMapper.writeValueAsString(list)));
   }
 
+  @Test
+  void getSuspiciousTransactions_timeRange() throws Exception {
+    List<TransactionResponse> list = List.of(res);
+    Mockito.when(
+            service.getSuspiciousTransactions(
+                "user1",
+                LocalDateTime.of(2025, 4, 24, 0, 0),
+                LocalDateTime.of(2025, 4, 25, 0, 0)))
+        .thenReturn(list);
+
+    mockMvc
+        .perform(
+            get("/api/v1/users/user1/transactions/suspicious")
+                .param("from", "2025-04-24T00:00:00")
+                .param("to", "2025-04-25T00:00:00"))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(list)));
+  }
+
+  @Test
+  void getSuspiciousTransactions_invalidTimeRange() throws Exception {
+    Mockito.when(service.getSuspiciousTransactions(any(), any(), any()))
+        .thenThrow(new IllegalArgumentException("'from' must be before 'to'."));
+
+    RestErrorResponse err =
+        new RestErrorResponse(400, "INVALID_REQUEST", "'from' must be before 'to'.");
+
+    mockMvc
+        .perform(
+            get("/api/v1/users/user1/transactions/suspicious")
+                .param("from", "2025-04-25T00:00:00")
+                .param("to", "2025-04-24T00:00:00"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().json(objectMapper.writeValueAsString(err)));
+  }
+
+  @Test
+  void getSuspiciousTransactionPage_success() throws Exception {
+    SuspiciousTransactionPage page =
+        SuspiciousTransactionPage.builder().transactions(List.of(res)).nextCursor("abc").build();
+    Mockito.when(service.getSuspiciousTransactionPage("user1", null, 1)).thenReturn(page);
+
+    mockMvc
+        .perform(get("/api/v1/users/user1/transactions/suspicious/page").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(page)));
+  }
+
+  @Test
+  void getSuspiciousTransactionPage_invalidCursor() throws Exception {
+    Mockito.when(service.getSuspiciousTransactionPage("user1", "bogus", null))
+        .thenThrow(new IllegalArgumentException("Invalid page cursor."));
+
+    RestErrorResponse err = new RestErrorResponse(400, "INVALID_REQUEST", "Invalid page cursor.");
+
+    mockMvc
+        .perform(get("/api/v1/users/user1/transactions/suspicious/page").param("cursor", "bogus"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().json(objectMapper.writeValueAsString(err)));
+  }
+
+  @Test
+  void exportSuspiciousTransactions_streamsJsonArray() throws Exception {
+    Mockito.when(service.streamSuspiciousTransactions(Mockito.eq("user1"), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<TransactionResponse> sink = invocation.getArgument(1);
+              sink.accept(res);
+              sink.accept(res);
+              return 2L;
+            });
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/v1/users/user1/transactions/suspicious/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json(objectMapper.writeValueAsString(List.of(res, res))));
+  }
+
+  @Test
+  void exportAllSuspiciousTransactions_streamsJsonArray() throws Exception {
+    SuspiciousFleetScanner.Range range =
+        new SuspiciousFleetScanner.Range(
+            Timestamp.valueOf("2025-04-24 12:00:00"), Timestamp.valueOf("2025-04-25 12:00:00"));
+    Mockito.when(service.fleetScanRange(null, null)).thenReturn(range);
+    Mockito.when(service.scanSuspiciousTransactions(Mockito.eq(range), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<TransactionResponse> sink = invocation.getArgument(1);
+              sink.accept(res);
+              return 1L;
+            });
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/api/v1/transactions/suspicious/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json(objectMapper.writeValueAsString(List.of(res))));
+  }
+
+  @Test
+  void exportAllSuspiciousTransactions_invalidRange() throws Exception {
+    Mockito.when(service.fleetScanRange(any(), any()))
+        .thenThrow(new IllegalArgumentException("'from' must be before 'to'."));
+
+    mockMvc
+        .perform(
+            get("/api/v1/transactions/suspicious/export")
+                .param("from", "2025-04-25T12:00:00")
+                .param("to", "2025-04-24T12:00:00"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("INVALID_REQUEST")));
+  }
+
+  @Test
+  void followSuspiciousTransactions_streamsServerSentEvents() throws Exception {
+    FeedOffset resumeAfter = new FeedOffset(101, 7);
+    SuspiciousFeedEvent event =
+        SuspiciousFeedEvent.builder()
+            .offset(new FeedOffset(101, 8))
+            .transactionId(42)
+            .userId("user1")
+            .timestamp(Timestamp.valueOf(LocalDateTime.of(2025, 4, 24, 12, 0)))
+            .reason(SuspiciousReason.HIGH_VOLUME_TRANSACTION)
+            .build();
+    Mockito.when(service.suspiciousFeedOffset("101-7")).thenReturn(resumeAfter);
+    Mockito.when(service.streamSuspiciousFeed(Mockito.eq(resumeAfter), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<List<SuspiciousFeedEvent>> sink = invocation.getArgument(1);
+              sink.accept(List.of(event));
+              return CompletableFuture.completedFuture(event.getOffset());
+            });
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                get("/api/v1/transactions/suspicious/feed")
+                    .param("after", "1-1")
+                    .header("Last-Event-ID", "101-7"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(
+            content()
+                .string(
+                    "retry:1000\n\nid:101-8\nevent:suspicious\ndata:"
+                        + objectMapper.writeValueAsString(event)
+                        + "\n\n"));
+  }
+
+  @Test
+  void followSuspiciousTransactions_invalidOffset() throws Exception {
+    Mockito.when(service.suspiciousFeedOffset("nope"))
+        .thenThrow(new IllegalArgumentException("Invalid feed offset."));
+
+    mockMvc
+        .perform(get("/api/v1/transactions/suspicious/feed").param("after", "nope"))
+        .andExpect(status().isBadRequest())
+        .andExpect(content().string(containsString("Invalid feed offset.")));
+  }
+
+  @Test
+  void followSuspiciousTransactions_everyFeedThreadBusy() throws Exception {
+    FeedOffset head = new FeedOffset(120, 0);
+    Mockito.when(service.suspiciousFeedOffset(null)).thenReturn(head);
+    Mockito.when(service.streamSuspiciousFeed(Mockito.eq(head), any(), any()))
+        .thenThrow(new RejectedExecutionException());
+
+    mockMvc
+        .perform(get("/api/v1/transactions/suspicious/feed"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(content().string(containsString("FEED_BUSY")));
+  }
+
+  @Test
+  void getSuspiciousCacheStats_success() throws Exception {
+    CacheStatsResponse stats =
+        CacheStatsResponse.builder().hits(3).misses(1).hitRatio(0.75).missRatio(0.25).build();
+    Mockito.when(service.getSuspiciousCacheStats()).thenReturn(stats);
+
+    mockMvc
+        .perform(get("/api/v1/stats/suspicious-cache"))
+        .andExpect(status().isOk())
+        .andExpect(content().json(objectMapper.writeValueAsString(stats)));
+  }
+
   @Test
   void getSuspiciousTransactions_validationError() throws Exception {
     Mockito.when(service.getSuspiciousTransactions("user1"))
@@ -0,0 +1,58 @@
+package com.remo.transaction_scanner.loadtest;
+
+import java.util.Arrays;
+
+/** Collects latencies of one endpoint and reports percentiles and throughput. */
+final class LatencyRecorder {
+
+  private final String name;
+  private long[] nanos = new long[1024];
+  private int count;
+  private int errors;
+
+  LatencyRecorder(String name) {
+    this.name = name;
+  }
+
+  synchronized void record(long latencyNanos, boolean success) {
+    if (count == nanos.length) {
+      nanos = Arrays.copyOf(nanos, count * 2);
+    }
+    nanos[count++] = latencyNanos;
+    if (!success) {
+      errors++;
+    }
+  }
+
+  synchronized int count() {
+    return count;
+  }
+
+  synchronized String report(double seconds) {
+    long[] sorted = Arrays.copyOf(nanos, count);
+    Arrays.sort(sorted);
+    return String.format(
+        "%-28s %9d %7d %10.1f %9.2f %9.2f %9.2f",
+        name,
+        count,
+        errors,
+        count / seconds,
+        percentile(sorted, 0.50),
+        percentile(sorted, 0.99),
+        percentile(sorted, 0.999));
+  }
+
+  static String header() {
+    return String.format(
+        "%-28s %9s %7s %10s %9s %9s %9s",
+        "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+  }
+
+  private static double percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return Double.NaN;
+    }
+    int index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+    return sorted[Math.max(index, 0)] / 1e6;
+  }
+}
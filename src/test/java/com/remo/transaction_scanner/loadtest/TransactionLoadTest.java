@@ -0,0 +1,202 @@
+package com.remo.transaction_scanner.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Drives mixed POST and suspicious GET traffic at a fixed rate against the running app and a
+ * Testcontainers Postgres seeded with millions of transactions, then reports latency percentiles
+ * and achieved throughput per endpoint.
+ *
+ * <p>Load is open loop: requests are scheduled at the target rate whatever the response times,
+ * and latency is measured from the scheduled start, so a stalled server shows up in the tail
+ * instead of silently lowering the request rate. Not part of {@code test}; run with {@code
+ * ./gradlew loadTest} and tune with {@code -Dloadtest.<name>=<value>}.
+ */
+@Tag("loadtest")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionLoadTest {
+
+  private static final int ROWS = Integer.getInteger("loadtest.rows", 2_000_000);
+  private static final int USERS = Integer.getInteger("loadtest.users", 100_000);
+  private static final double ZIPF_EXPONENT =
+      Double.parseDouble(System.getProperty("loadtest.zipf", "1.0"));
+  private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+  private static final double READ_RATIO =
+      Double.parseDouble(System.getProperty("loadtest.readRatio", "0.8"));
+  private static final Duration WARM_UP =
+      Duration.ofSeconds(Integer.getInteger("loadtest.warmUpSeconds", 10));
+  private static final Duration RUN_TIME =
+      Duration.ofSeconds(Integer.getInteger("loadtest.seconds", 60));
+  private static final int SEED_CHUNK = 500_000;
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    postgres.start();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+    registry.add("spring.jpa.show-sql", () -> "false");
+  }
+
+  @LocalServerPort private int port;
+
+  @Autowired private JdbcTemplate jdbc;
+
+  private final HttpClient client =
+      HttpClient.newBuilder()
+          .executor(Executors.newVirtualThreadPerTaskExecutor())
+          .connectTimeout(Duration.ofSeconds(5))
+          .build();
+
+  private final ZipfianGenerator users = new ZipfianGenerator(USERS, ZIPF_EXPONENT);
+
+  @BeforeAll
+  void seed() {
+    // Rows are spread over the last 90 days, so the partitions must cover that range first.
+    LocalDate today = LocalDate.now();
+    jdbc.queryForObject(
+        "SELECT transaction_scanner.create_transaction_partitions(?, ?)",
+        Integer.class,
+        today.minusDays(100),
+        today.plusMonths(1));
+
+    String userRank = ZipfianGenerator.sqlRank(USERS, ZIPF_EXPONENT);
+    for (int offset = 0; offset < ROWS; offset += SEED_CHUNK) {
+      jdbc.update(
+          """
+          INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp)
+          SELECT 'user' || %s,
+                 round((random() * random() * 15000)::numeric, 2),
+                 (ARRAY['WITHDRAWAL', 'DEPOSIT', 'TRANSFER'])[1 + floor(random() * 3)::int],
+                 now()::timestamp - random() * interval '90 days'
+          FROM generate_series(1, ?)
+          """
+              .formatted(userRank),
+          Math.min(SEED_CHUNK, ROWS - offset));
+    }
+    jdbc.execute("ANALYZE transaction_scanner.transactions");
+  }
+
+  @Test
+  void mixedReadWriteLoad() {
+    run(WARM_UP, new LatencyRecorder("warm-up POST"), new LatencyRecorder("warm-up GET"));
+
+    LatencyRecorder writes = new LatencyRecorder("POST /transactions");
+    LatencyRecorder reads = new LatencyRecorder("GET .../suspicious");
+    run(RUN_TIME, writes, reads);
+
+    double seconds = RUN_TIME.toMillis() / 1000.0;
+    System.out.printf(
+        "%nLoad test: %,d rows, %,d users (zipf %.2f), %d req/s target, %.0f%% reads, %ss"
+            + "%n%s%n%s%n%s%n",
+        ROWS,
+        USERS,
+        ZIPF_EXPONENT,
+        RATE,
+        READ_RATIO * 100,
+        RUN_TIME.toSeconds(),
+        LatencyRecorder.header(),
+        writes.report(seconds),
+        reads.report(seconds));
+
+    assertThat(writes.count() + reads.count()).isPositive();
+  }
+
+  private void run(Duration duration, LatencyRecorder writes, LatencyRecorder reads) {
+    long interval = 1_000_000_000L / RATE;
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+
+    // Closing the executor waits for the requests still in flight.
+    try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long scheduled = start; scheduled < end; scheduled += interval) {
+        long wait = scheduled - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        long scheduledAt = scheduled;
+        String userId = "user" + users.next();
+        if (ThreadLocalRandom.current().nextDouble() < READ_RATIO) {
+          requests.submit(() -> send(getSuspicious(userId), scheduledAt, reads));
+        } else {
+          requests.submit(() -> send(postTransaction(userId), scheduledAt, writes));
+        }
+      }
+    }
+  }
+
+  private void send(HttpRequest request, long scheduledAt, LatencyRecorder recorder) {
+    boolean success;
+    try {
+      int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+      success = status >= 200 && status < 300;
+    } catch (Exception e) {
+      success = false;
+    }
+    recorder.record(System.nanoTime() - scheduledAt, success);
+  }
+
+  private HttpRequest getSuspicious(String userId) {
+    return HttpRequest.newBuilder(
+            URI.create(
+                "http://localhost:%d/api/v1/users/%s/transactions/suspicious"
+                    .formatted(port, userId)))
+        .timeout(Duration.ofSeconds(30))
+        .GET()
+        .build();
+  }
+
+  private HttpRequest postTransaction(String userId) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    // Mostly small amounts so the frequent rule fires for busy users, with some high-volume ones.
+    String amount =
+        random.nextDouble() < 0.7 ? "%d.00".formatted(random.nextInt(1, 101)) : "12000.00";
+    String body =
+        """
+        {"userId": "%s", "amount": %s, "transactionType": "DEPOSIT"}
+        """
+            .formatted(userId, amount);
+    return HttpRequest.newBuilder(
+            URI.create("http://localhost:%d/api/v1/transactions".formatted(port)))
+        .timeout(Duration.ofSeconds(30))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+}
@@ -0,0 +1,49 @@
+package com.remo.transaction_scanner.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks in {@code [0, n)} with probability proportional to {@code 1 / (rank + 1)^s}, so a
+ * few users get most of the traffic. Uses a precomputed CDF and a binary search per sample.
+ */
+final class ZipfianGenerator {
+
+  private final double[] cdf;
+
+  ZipfianGenerator(int n, double exponent) {
+    cdf = new double[n];
+    double sum = 0;
+    for (int rank = 0; rank < n; rank++) {
+      sum += 1 / Math.pow(rank + 1, exponent);
+      cdf[rank] = sum;
+    }
+    for (int rank = 0; rank < n; rank++) {
+      cdf[rank] /= sum;
+    }
+  }
+
+  int next() {
+    int index = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+    return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+  }
+
+  /**
+   * A Postgres expression drawing a rank from the continuous approximation of the same
+   * distribution by inverting its CDF, for seeding in SQL.
+   */
+  static String sqlRank(int n, double exponent) {
+    if (Math.abs(exponent - 1) < 1e-9) {
+      return "LEAST(%d, floor(exp(random() * ln(%d + 1))) - 1)::int".formatted(n - 1, n);
+    }
+    double oneMinusS = 1 - exponent;
+    return String.format(
+        Locale.ROOT,
+        "LEAST(%d, floor(power((power(%d + 1, %f) - 1) * random() + 1, 1 / %f)) - 1)::int",
+        n - 1,
+        n,
+        oneMinusS,
+        oneMinusS);
+  }
+}
@@ -0,0 +1,61 @@
+package com.remo.transaction_scanner.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import org.junit.jupiter.api.Test;
+
+class CentsTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void parseRoundsHalfUpLikeNumeric12_2() {
+    assertThat(Cents.parse("12")).isEqualTo(1200);
+    assertThat(Cents.parse("0.5")).isEqualTo(50);
+    assertThat(Cents.parse("1.004")).isEqualTo(100);
+    assertThat(Cents.parse("1.005")).isEqualTo(101);
+    assertThat(Cents.parse("-1.005")).isEqualTo(-101);
+    assertThat(Cents.parse(".99")).isEqualTo(99);
+    assertThat(Cents.parse("1.5e2")).isEqualTo(15_000);
+    assertThat(Cents.parse("9999999999.99")).isEqualTo(Cents.MAX_NUMERIC_12_2);
+    assertThatThrownBy(() -> Cents.parse("12abc")).isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void formatsWithTwoFractionDigits() {
+    assertThat(Cents.toString(0)).isEqualTo("0.00");
+    assertThat(Cents.toString(5)).isEqualTo("0.05");
+    assertThat(Cents.toString(1234)).isEqualTo("12.34");
+    assertThat(Cents.toString(-1234)).isEqualTo("-12.34");
+    assertThat(Cents.append(new StringBuilder("x="), Cents.MAX_NUMERIC_12_2).toString())
+        .isEqualTo("x=9999999999.99");
+  }
+
+  @Test
+  void convertsThresholdsWithTheRequestedRounding() {
+    assertThat(Cents.of(new BigDecimal("100.009"), RoundingMode.FLOOR)).isEqualTo(10_000);
+    assertThat(Cents.of(new BigDecimal("100.001"), RoundingMode.CEILING)).isEqualTo(10_001);
+    assertThat(Cents.toDecimal(10_001)).isEqualByComparingTo("100.01");
+  }
+
+  @Test
+  void jsonAmountsRoundTripThroughCents() throws Exception {
+    TransactionRequest request =
+        objectMapper.readValue(
+            "{\"userId\":\"u\",\"amount\":42.125,\"transactionType\":\"DEPOSIT\"}",
+            TransactionRequest.class);
+    assertThat(request.getAmount()).isEqualTo(4213);
+
+    TransactionResponse response = TransactionResponse.builder().amountCents(4213).build();
+    assertThat(objectMapper.writeValueAsString(response)).contains("\"amount\":42.13");
+
+    assertThatThrownBy(
+            () -> objectMapper.readValue("{\"amount\":\"lots\"}", TransactionRequest.class))
+        .isInstanceOf(InvalidFormatException.class);
+  }
+}
@@ -0,0 +1,48 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+class ActivityRingTest {
+
+  @Test
+  void keepsEventsInOrderAcrossWrapAroundAndGrowth() {
+    ActivityRing ring = new ActivityRing();
+    for (long i = 1; i <= 3; i++) {
+      ring.add(i, i * 10, i * 100, TransactionType.DEPOSIT);
+    }
+    ring.removeBefore(25);
+    for (long i = 4; i <= 8; i++) {
+      ring.add(i, i * 10, i * 100, TransactionType.TRANSFER);
+    }
+
+    assertThat(ring.size()).isEqualTo(6);
+    for (int i = 0; i < ring.size(); i++) {
+      assertThat(ring.idAt(i)).isEqualTo(i + 3);
+      assertThat(ring.microsAt(i)).isEqualTo((i + 3) * 10L);
+      assertThat(ring.centsAt(i)).isEqualTo((i + 3) * 100L);
+    }
+    assertThat(ring.typeAt(0)).isEqualTo(TransactionType.DEPOSIT);
+    assertThat(ring.typeAt(1)).isEqualTo(TransactionType.TRANSFER);
+  }
+
+  @Test
+  void trimReleasesCapacityAfterABurst() {
+    ActivityRing ring = new ActivityRing();
+    long empty = ring.footprintBytes();
+    for (long i = 0; i < 1000; i++) {
+      ring.add(i, i, 1, TransactionType.DEPOSIT);
+    }
+    long burst = ring.footprintBytes();
+
+    ring.removeBefore(998);
+    ring.trim();
+
+    assertThat(burst).isGreaterThan(1000 * 25L);
+    assertThat(ring.footprintBytes()).isEqualTo(empty);
+    assertThat(ring.idAt(0)).isEqualTo(998);
+    assertThat(ring.idAt(1)).isEqualTo(999);
+  }
+}
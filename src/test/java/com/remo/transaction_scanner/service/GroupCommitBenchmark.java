@@ -0,0 +1,164 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.config.IngestionProperties.IngestionMode;
+import com.remo.transaction_scanner.model.TransactionRequest;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares posting transactions with one commit each ({@code DIRECT}) against the group-commit
+ * queue ({@code GROUP_COMMIT}) under many concurrent callers: saves and Postgres commits per
+ * second and per-save latency. Not part of {@code test}; run with {@code ./gradlew benchmark},
+ * sized with {@code -Dbenchmark.concurrency} and {@code -Dbenchmark.seconds}.
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class GroupCommitBenchmark {
+
+  private static final int USERS = 1000;
+  private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 64);
+  private static final Duration RUN_TIME =
+      Duration.ofSeconds(Integer.getInteger("benchmark.seconds", 10));
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    postgres.start();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+    registry.add("spring.jpa.show-sql", () -> "false");
+  }
+
+  @Autowired private JdbcTemplate jdbc;
+
+  @Autowired private TransactionScannerService service;
+
+  @Autowired private IngestionProperties ingestionProperties;
+
+  @AfterAll
+  void restoreMode() {
+    ingestionProperties.setMode(IngestionMode.DIRECT);
+  }
+
+  @Test
+  void directVersusGroupCommit() throws Exception {
+    List<String> report = new ArrayList<>();
+    report.add(run(IngestionMode.DIRECT));
+    report.add(run(IngestionMode.GROUP_COMMIT));
+
+    System.out.printf(
+        "%nGroup commit (%d callers for %ss)%n%-14s %12s %12s %10s %10s%n",
+        CONCURRENCY,
+        RUN_TIME.toSeconds(),
+        "mode",
+        "saves/s",
+        "commits/s",
+        "p50 ms",
+        "p99 ms");
+    report.forEach(System.out::println);
+  }
+
+  private String run(IngestionMode mode) throws InterruptedException {
+    ingestionProperties.setMode(mode);
+    // Warm up the path (and, in GROUP_COMMIT, start the writer) before measuring.
+    for (int i = 0; i < 200; i++) {
+      assertThat(service.saveTransaction(randomRequest()).getId()).isPositive();
+    }
+
+    long commitsBefore = commits();
+    LongAdder saves = new LongAdder();
+    List<long[]> latencies = new ArrayList<>();
+    long deadline = System.nanoTime() + RUN_TIME.toNanos();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < CONCURRENCY; i++) {
+        long[] nanos = new long[1 << 16];
+        latencies.add(nanos);
+        callers.submit(
+            () -> {
+              int n = 0;
+              while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                service.saveTransaction(randomRequest());
+                if (n < nanos.length) {
+                  nanos[n++] = System.nanoTime() - start;
+                }
+                saves.increment();
+              }
+              return n;
+            });
+      }
+    }
+    long commits = commits() - commitsBefore;
+
+    long[] sorted =
+        latencies.stream().flatMapToLong(Arrays::stream).filter(nanos -> nanos > 0).toArray();
+    Arrays.sort(sorted);
+    double seconds = RUN_TIME.toMillis() / 1000.0;
+    return String.format(
+        "%-14s %12.1f %12.1f %10.2f %10.2f",
+        mode,
+        saves.sum() / seconds,
+        commits / seconds,
+        percentile(sorted, 0.50) / 1e6,
+        percentile(sorted, 0.99) / 1e6);
+  }
+
+  // Commits counted by Postgres for the whole database. The counter is published with a short
+  // delay, so wait for it to settle first.
+  private long commits() throws InterruptedException {
+    Thread.sleep(1000);
+    jdbc.execute("SELECT pg_stat_clear_snapshot()");
+    return jdbc.queryForObject(
+        "SELECT xact_commit FROM pg_stat_database WHERE datname = current_database()", Long.class);
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  private static TransactionRequest randomRequest() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return TransactionRequest.builder()
+        .userId("user" + random.nextInt(USERS))
+        .amount(random.nextInt(1, 20_000) * 100L)
+        .transactionType(TransactionType.DEPOSIT)
+        .build();
+  }
+}
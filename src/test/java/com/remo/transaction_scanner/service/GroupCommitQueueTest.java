@@ -0,0 +1,170 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+class GroupCommitQueueTest {
+
+  private final List<List<Integer>> flushes = new CopyOnWriteArrayList<>();
+  private GroupCommitQueue<Integer, String> queue;
+
+  @AfterEach
+  void tearDown() {
+    queue.close();
+  }
+
+  private List<String> flush(List<Integer> batch) {
+    flushes.add(batch);
+    return batch.stream().map(item -> "saved-" + item).toList();
+  }
+
+  @Test
+  void concurrentSubmitsShareOneFlush() throws Exception {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            4,
+            Duration.ofSeconds(5),
+            this::flush,
+            e -> false);
+
+    List<Future<String>> results = new ArrayList<>();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 4; i++) {
+        int item = i;
+        results.add(callers.submit(() -> queue.submit(item)));
+      }
+    }
+
+    for (int i = 0; i < 4; i++) {
+      assertThat(results.get(i).get()).isEqualTo("saved-" + i);
+    }
+    // Reaching the batch size flushes without waiting out maxWait.
+    assertThat(flushes).hasSize(1);
+    assertThat(flushes.get(0)).containsExactlyInAnyOrder(0, 1, 2, 3);
+  }
+
+  @Test
+  void partialBatchIsFlushedAfterMaxWait() {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            100,
+            Duration.ofMillis(5),
+            this::flush,
+            e -> false);
+
+    assertThat(queue.submit(7)).isEqualTo("saved-7");
+    assertThat(flushes).containsExactly(List.of(7));
+  }
+
+  @Test
+  void failedFlushIsRethrownToTheCaller() {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            4,
+            Duration.ofMillis(5),
+            batch -> {
+              throw new QueryTimeoutException("commit timed out");
+            },
+            DataIntegrityViolationException.class::isInstance);
+
+    QueryTimeoutException e = assertThrows(QueryTimeoutException.class, () -> queue.submit(1));
+    assertThat(e).hasMessage("commit timed out");
+  }
+
+  @Test
+  void failedBatchIsRetriedItemByItem() throws Exception {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            3,
+            Duration.ofSeconds(5),
+            batch -> {
+              if (batch.contains(1)) {
+                flushes.add(batch);
+                throw new DataIntegrityViolationException("bad row");
+              }
+              return flush(batch);
+            },
+            DataIntegrityViolationException.class::isInstance);
+
+    List<Future<String>> results = new ArrayList<>();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 3; i++) {
+        int item = i;
+        results.add(callers.submit(() -> queue.submit(item)));
+      }
+    }
+
+    assertThat(results.get(0).get()).isEqualTo("saved-0");
+    ExecutionException failed = assertThrows(ExecutionException.class, results.get(1)::get);
+    assertThat(failed).hasCauseInstanceOf(DataIntegrityViolationException.class);
+    assertThat(results.get(2).get()).isEqualTo("saved-2");
+    // The batch, then each item on its own.
+    assertThat(flushes).hasSize(4);
+    assertThat(flushes.subList(1, 4)).containsExactlyInAnyOrder(List.of(0), List.of(1), List.of(2));
+  }
+
+  @Test
+  void batchThatMayHaveCommittedIsNotRetried() throws Exception {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            2,
+            Duration.ofSeconds(5),
+            batch -> {
+              flushes.add(batch);
+              throw new QueryTimeoutException("commit timed out");
+            },
+            DataIntegrityViolationException.class::isInstance);
+
+    List<Future<String>> results = new ArrayList<>();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 2; i++) {
+        int item = i;
+        results.add(callers.submit(() -> queue.submit(item)));
+      }
+    }
+
+    for (Future<String> result : results) {
+      ExecutionException failed = assertThrows(ExecutionException.class, result::get);
+      assertThat(failed).hasCauseInstanceOf(QueryTimeoutException.class);
+    }
+    assertThat(flushes).hasSize(1);
+  }
+
+  @Test
+  void closedQueueRejectsSubmits() {
+    queue =
+        new GroupCommitQueue<>(
+            "test-group-commit",
+            16,
+            4,
+            Duration.ofMillis(5),
+            this::flush,
+            e -> false);
+    queue.close();
+
+    assertThrows(IllegalStateException.class, () -> queue.submit(1));
+  }
+}
@@ -0,0 +1,184 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares the latency of the rapid rule function with the {@code minute_bucket} view it replaced,
+ * recreated here as it was before V8, on a large seeded table. Not part of {@code test}; run with
+ * {@code ./gradlew benchmark}. Sizes can be changed with {@code -Dbenchmark.rows}, {@code
+ * -Dbenchmark.users} and {@code -Dbenchmark.iterations}.
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RapidRuleBenchmark {
+
+  private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+  private static final int USERS = Integer.getInteger("benchmark.users", 10_000);
+  private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200);
+
+  private static final String BUCKET_VIEW_SQL =
+      "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions WHERE user_id = ?";
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    postgres.start();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+  }
+
+  @Autowired private JdbcTemplate jdbc;
+
+  @Autowired private SuspiciousRuleEvaluator ruleEvaluator;
+
+  @BeforeAll
+  void seed() {
+    // The bucket column, its index and the view as V6 left them.
+    jdbc.execute(
+        """
+        ALTER TABLE transaction_scanner.transactions
+            ADD COLUMN minute_bucket SMALLINT
+            GENERATED ALWAYS AS (floor(date_part('minute', timestamp) / 5)) STORED
+        """);
+    jdbc.execute(
+        "CREATE INDEX transactions_user_id_minute_bucket_idx ON transaction_scanner.transactions (user_id, minute_bucket)");
+    jdbc.execute(
+        """
+        CREATE VIEW transaction_scanner.suspicious_rapid_transactions AS
+        WITH RapidCounts AS (
+            SELECT
+                t.id,
+                t.user_id,
+                t.amount,
+                t.timestamp,
+                t.transaction_type,
+                COUNT(*) OVER (PARTITION BY t.user_id, t.minute_bucket) as five_min_count
+            FROM transaction_scanner.transactions t
+        )
+        SELECT id, user_id, amount, timestamp, five_min_count, transaction_type
+        FROM RapidCounts
+        WHERE five_min_count >= (
+            SELECT rapid_transaction_threshold
+            FROM transaction_scanner.suspicious_transaction_configuration
+            ORDER BY id
+            LIMIT 1
+        )
+        """);
+
+    // One transaction every 10 seconds from January 2025, in runs of four per user so that
+    // every user has rapid transactions.
+    jdbc.queryForObject(
+        "SELECT transaction_scanner.create_transaction_partitions(DATE '2025-01-01', DATE '2026-01-01')",
+        Integer.class);
+    jdbc.update(
+        """
+        INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp)
+        SELECT 'user' || ((g / 4) % ?),
+               (g % 300) * 50 + 1,
+               'DEPOSIT',
+               timestamp '2025-01-01' + g * interval '10 seconds'
+        FROM generate_series(1, ?) g
+        """,
+        USERS,
+        ROWS);
+    jdbc.execute("ANALYZE transaction_scanner.transactions");
+  }
+
+  @Test
+  void functionVersusBucketView() {
+    for (int i = 0; i < 20; i++) {
+      String user = "user" + i;
+      List<Long> inJava = new ArrayList<>();
+      ruleEvaluator.evaluate(
+          user,
+          (transaction, reasons) -> {
+            if (reasons.contains(SuspiciousReason.RAPID_TRANSFER)) {
+              inJava.add(transaction.getId());
+            }
+          });
+      assertThat(function(user))
+          .extracting(TransactionResponse::getId)
+          .containsExactlyInAnyOrderElementsOf(inJava);
+    }
+
+    List<String> report = new ArrayList<>();
+    report.add(run("bucket view", this::bucketView));
+    report.add(run("function", this::function));
+
+    System.out.printf(
+        "%nRapid rule (%d rows, %d users, %d iterations)%n%-12s %10s %10s%n",
+        ROWS, USERS, ITERATIONS, "query", "p50 ms", "p99 ms");
+    report.forEach(System.out::println);
+  }
+
+  private List<TransactionResponse> bucketView(String user) {
+    return jdbc.query(BUCKET_VIEW_SQL, SuspiciousTransactionFinder.suspiciousViewRowMapper, user);
+  }
+
+  private List<TransactionResponse> function(String user) {
+    return jdbc.query(
+        SuspiciousTransactionFinder.RAPID_VIEW_SQL,
+        SuspiciousTransactionFinder.suspiciousViewRowMapper,
+        user,
+        300L,
+        3);
+  }
+
+  private String run(String name, Function<String, List<TransactionResponse>> read) {
+    for (int i = 0; i < ITERATIONS / 5; i++) {
+      read.apply(randomUser());
+    }
+
+    long[] nanos = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      read.apply(randomUser());
+      nanos[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(nanos);
+
+    return String.format(
+        "%-12s %10.2f %10.2f",
+        name, percentile(nanos, 0.50) / 1e6, percentile(nanos, 0.99) / 1e6);
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  private static String randomUser() {
+    return "user" + ThreadLocalRandom.current().nextInt(USERS);
+  }
+}
@@ -0,0 +1,112 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.remo.transaction_scanner.config.RollupProperties;
+import com.remo.transaction_scanner.repository.RollupRecountRepository;
+import com.remo.transaction_scanner.repository.RollupRecountRepository.Hour;
+import com.remo.transaction_scanner.repository.model.RollupRecount;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class RollupRecounterTest {
+
+  private static final BigDecimal OLD_AMOUNT = new BigDecimal("100.00");
+  private static final BigDecimal NEW_AMOUNT = new BigDecimal("500.00");
+
+  private static final Hour FIRST = new Hour("user1", Timestamp.valueOf("2025-04-25 09:00:00"));
+  private static final Hour SECOND = new Hour("user1", Timestamp.valueOf("2025-04-25 10:00:00"));
+  private static final Hour THIRD = new Hour("user2", Timestamp.valueOf("2025-04-25 09:00:00"));
+
+  private final RollupRecountRepository repository = mock(RollupRecountRepository.class);
+  private final RollupProperties properties = new RollupProperties();
+
+  private RollupRecounter recounter;
+
+  @BeforeEach
+  void setUp() {
+    properties.setRecountBatchSize(2);
+    recounter = new RollupRecounter(repository, properties, mock(PlatformTransactionManager.class));
+  }
+
+  private RollupRecount locked(
+      BigDecimal amount, BigDecimal configured, Hour after, Long waitXmax, boolean completed) {
+    RollupRecount recount =
+        RollupRecount.builder()
+            .smallTransactionAmount(amount)
+            .configuredAmount(configured)
+            .afterUserId(after != null ? after.userId() : null)
+            .afterHourBucket(after != null ? after.hourBucket() : null)
+            .waitXmax(waitXmax)
+            .completed(completed)
+            .build();
+    given(repository.lock()).willReturn(Optional.of(recount));
+    return recount;
+  }
+
+  @Test
+  void newAmountRestartsTheRecountAfterTheRunningInserts() {
+    RollupRecount recount = locked(OLD_AMOUNT, NEW_AMOUNT, null, null, true);
+    given(repository.snapshotBounds()).willReturn(new long[] {90, 120});
+
+    assertThat(recounter.step()).isFalse();
+
+    assertThat(recount.getSmallTransactionAmount()).isEqualTo(NEW_AMOUNT);
+    assertThat(recount.getWaitXmax()).isEqualTo(120);
+    assertThat(recount.isCompleted()).isFalse();
+    verify(repository).save(recount);
+    verify(repository, never()).lockHours(any(), anyInt());
+  }
+
+  @Test
+  void waitsForTransactionsOlderThanTheRestart() {
+    locked(NEW_AMOUNT, NEW_AMOUNT, null, 120L, false);
+    given(repository.snapshotBounds()).willReturn(new long[] {110, 130});
+
+    assertThat(recounter.step()).isFalse();
+
+    verify(repository, never()).lockHours(any(), anyInt());
+    verify(repository, never()).save(any());
+  }
+
+  @Test
+  void recountsBatchesInKeyOrderUntilCompleted() {
+    RollupRecount recount = locked(NEW_AMOUNT, NEW_AMOUNT, null, 120L, false);
+    given(repository.snapshotBounds()).willReturn(new long[] {125, 130});
+    given(repository.lockHours(null, 2)).willReturn(List.of(FIRST, SECOND));
+    given(repository.lockHours(SECOND, 2)).willReturn(List.of(THIRD));
+
+    assertThat(recounter.step()).isTrue();
+    verify(repository).recount(FIRST, SECOND, NEW_AMOUNT);
+    assertThat(recount.getAfterUserId()).isEqualTo(SECOND.userId());
+    assertThat(recount.getAfterHourBucket()).isEqualTo(SECOND.hourBucket());
+
+    assertThat(recounter.step()).isFalse();
+    verify(repository).recount(THIRD, THIRD, NEW_AMOUNT);
+    assertThat(recount.isCompleted()).isTrue();
+    assertThat(recount.getWaitXmax()).isNull();
+  }
+
+  @Test
+  void runStopsAfterTheBatchCap() {
+    properties.setRecountMaxBatchesPerRun(1);
+    locked(NEW_AMOUNT, NEW_AMOUNT, null, null, false);
+    given(repository.snapshotBounds()).willReturn(new long[] {125, 130});
+    given(repository.lockHours(any(), anyInt())).willReturn(List.of(FIRST, SECOND));
+
+    recounter.recount();
+
+    verify(repository).recount(FIRST, SECOND, NEW_AMOUNT);
+  }
+}
@@ -0,0 +1,85 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.remo.transaction_scanner.model.RuleConfigurationChangedEvent;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.SuspiciousTransactionConfigurationRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousTransactionConfiguration;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+
+@ExtendWith(MockitoExtension.class)
+class RuleConfigurationServiceTest {
+
+  @Mock private SuspiciousTransactionConfigurationRepository configurationRepository;
+
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  @InjectMocks private RuleConfigurationService service;
+
+  private SuspiciousTransactionConfiguration row(int frequentThreshold) {
+    return new SuspiciousTransactionConfiguration(
+        1, frequentThreshold, new BigDecimal("100.00"), new BigDecimal("10000.00"), 300, 3);
+  }
+
+  @Test
+  void loadsEveryThresholdOnFirstUse() {
+    given(configurationRepository.findFirstByOrderByIdAsc()).willReturn(Optional.of(row(5)));
+
+    SuspiciousRuleConfiguration rules = service.current();
+    service.current();
+
+    assertThat(rules.getFrequentThreshold()).isEqualTo(5);
+    assertThat(rules.getSmallTransactionAmount()).isEqualByComparingTo("100");
+    assertThat(rules.getHighVolumeAmount()).isEqualByComparingTo("10000");
+    assertThat(rules.getRapidWindow()).isEqualTo(Duration.ofMinutes(5));
+    assertThat(rules.getRapidThreshold()).isEqualTo(3);
+    verify(configurationRepository).findFirstByOrderByIdAsc();
+  }
+
+  @Test
+  void reloadPublishesEventOnlyWhenSomethingChanged() {
+    given(configurationRepository.findFirstByOrderByIdAsc())
+        .willReturn(Optional.of(row(5)), Optional.of(row(5)), Optional.of(row(8)));
+
+    service.current();
+    service.reload();
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+    service.reload();
+
+    ArgumentCaptor<RuleConfigurationChangedEvent> event =
+        ArgumentCaptor.forClass(RuleConfigurationChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().getPrevious().getFrequentThreshold()).isEqualTo(5);
+    assertThat(event.getValue().getCurrent().getFrequentThreshold()).isEqualTo(8);
+    assertThat(service.current().getFrequentThreshold()).isEqualTo(8);
+  }
+
+  @Test
+  void failedReloadKeepsCurrentThresholds() {
+    given(configurationRepository.findFirstByOrderByIdAsc())
+        .willReturn(Optional.of(row(5)))
+        .willThrow(new QueryTimeoutException("timeout"));
+
+    service.current();
+    service.reload();
+
+    assertThat(service.current().getFrequentThreshold()).isEqualTo(5);
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+}
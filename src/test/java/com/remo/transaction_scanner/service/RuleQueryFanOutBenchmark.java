@@ -0,0 +1,155 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares the sequential rule queries with the parallel fan-out on a seeded Postgres: latency
+ * percentiles of single callers, then throughput with many concurrent callers. Not part of {@code
+ * test}; run with {@code ./gradlew benchmark}. Sizes can be changed with {@code
+ * -Dbenchmark.iterations}, {@code -Dbenchmark.concurrency} and {@code -Dbenchmark.seconds}.
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RuleQueryFanOutBenchmark {
+
+  private static final int USERS = 1000;
+  private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 500);
+  private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 32);
+  private static final Duration RUN_TIME =
+      Duration.ofSeconds(Integer.getInteger("benchmark.seconds", 10));
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    postgres.start();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+    // Every parallel read holds three connections.
+    registry.add("spring.datasource.hikari.maximum-pool-size", () -> CONCURRENCY * 3);
+  }
+
+  @Autowired private JdbcTemplate jdbc;
+
+  @Autowired private SuspiciousTransactionFinder finder;
+
+  @BeforeAll
+  void seed() {
+    jdbc.queryForObject(
+        "SELECT transaction_scanner.create_transaction_partitions(DATE '2025-01-01', DATE '2025-06-01')",
+        Integer.class);
+    jdbc.execute(
+        """
+        INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp)
+        SELECT 'user' || (g % 1000),
+               (g % 300) * 50 + 1,
+               'DEPOSIT',
+               timestamp '2025-01-01' + g * interval '1 minute'
+        FROM generate_series(1, 200000) g
+        """);
+    jdbc.execute("ANALYZE transaction_scanner.transactions");
+  }
+
+  @Test
+  void sequentialVersusParallelRuleQueries() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      String user = "user" + i;
+      assertThat(finder.findWithParallelRuleQueries(user))
+          .containsExactlyInAnyOrderElementsOf(finder.findWithRuleQueries(user));
+    }
+
+    List<String> report = new ArrayList<>();
+    report.add(run("sequential", finder::findWithRuleQueries));
+    report.add(run("parallel", finder::findWithParallelRuleQueries));
+
+    System.out.printf(
+        "%nRule query fan-out (%d users, %d iterations, %d callers for %ss)%n%-12s %10s %10s %12s%n",
+        USERS,
+        ITERATIONS,
+        CONCURRENCY,
+        RUN_TIME.toSeconds(),
+        "strategy",
+        "p50 ms",
+        "p99 ms",
+        "ops/s");
+    report.forEach(System.out::println);
+  }
+
+  private String run(String name, Function<String, List<TransactionResponse>> read)
+      throws InterruptedException {
+    for (int i = 0; i < ITERATIONS / 5; i++) {
+      read.apply(randomUser());
+    }
+
+    long[] nanos = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      read.apply(randomUser());
+      nanos[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(nanos);
+
+    LongAdder operations = new LongAdder();
+    long deadline = System.nanoTime() + RUN_TIME.toNanos();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < CONCURRENCY; i++) {
+        callers.submit(
+            () -> {
+              while (System.nanoTime() < deadline) {
+                read.apply(randomUser());
+                operations.increment();
+              }
+            });
+      }
+    }
+
+    return String.format(
+        "%-12s %10.2f %10.2f %12.1f",
+        name,
+        percentile(nanos, 0.50) / 1e6,
+        percentile(nanos, 0.99) / 1e6,
+        operations.sum() / (double) RUN_TIME.toSeconds());
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  private static String randomUser() {
+    return "user" + ThreadLocalRandom.current().nextInt(USERS);
+  }
+}
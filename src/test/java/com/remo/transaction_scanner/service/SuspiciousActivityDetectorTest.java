@@ -0,0 +1,244 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.RuleConfigurationChangedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.repository.TransactionRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import com.remo.transaction_scanner.repository.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+@ExtendWith(MockitoExtension.class)
+class SuspiciousActivityDetectorTest {
+
+  @Mock private TransactionRepository transactionRepository;
+
+  @Mock private RuleConfigurationService ruleConfigurationService;
+
+  private final MutableClock clock = new MutableClock(Instant.parse("2025-04-25T10:00:00Z"));
+
+  private SuspiciousActivityDetector detector;
+
+  private final String USER_ID = "user123";
+
+  @BeforeEach
+  void setUp() {
+    detector =
+        new SuspiciousActivityDetector(transactionRepository, ruleConfigurationService, clock);
+    given(ruleConfigurationService.current())
+        .willReturn(
+            SuspiciousRuleConfiguration.builder()
+                .frequentThreshold(3)
+                .smallTransactionAmount(new BigDecimal("100.00"))
+                .highVolumeAmount(new BigDecimal("10000.00"))
+                .rapidWindow(Duration.ofMinutes(5))
+                .rapidThreshold(3)
+                .build());
+  }
+
+  private Transaction transaction(long id, String amount, String timestamp) {
+    Transaction transaction =
+        Transaction.builder()
+            .userId(USER_ID)
+            .amountCents(Cents.parse(amount))
+            .timestamp(Timestamp.valueOf(timestamp))
+            .transactionType(TransactionType.DEPOSIT)
+            .build();
+    transaction.setId(id);
+    return transaction;
+  }
+
+  @Test
+  @DisplayName("Should flag high volume transactions")
+  void highVolume() {
+    List<SuspiciousFlag> flags =
+        detector.evaluate(transaction(1, "10000.00", "2025-04-25 10:00:00"));
+
+    assertThat(flags)
+        .extracting(SuspiciousFlag::getReason)
+        .containsExactly(SuspiciousReason.HIGH_VOLUME_TRANSACTION);
+  }
+
+  @Test
+  @DisplayName("Should flag every small transaction of the hour once the threshold is reached")
+  void frequentFlagsWholeHour() {
+    assertThat(detector.evaluate(transaction(1, "10.00", "2025-04-25 10:00:00"))).isEmpty();
+    assertThat(detector.evaluate(transaction(2, "10.00", "2025-04-25 10:20:00"))).isEmpty();
+
+    List<SuspiciousFlag> flags = detector.evaluate(transaction(3, "10.00", "2025-04-25 10:40:00"));
+
+    assertThat(flags)
+        .allMatch(flag -> flag.getReason() == SuspiciousReason.FREQUENT_SMALL_TRANSACTION)
+        .extracting(SuspiciousFlag::getTransactionId)
+        .containsExactly(1L, 2L, 3L);
+    assertThat(detector.evaluate(transaction(4, "10.00", "2025-04-25 11:00:00"))).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should flag the third transaction within five minutes as rapid")
+  void rapidSlidingWindow() {
+    assertThat(detector.evaluate(transaction(1, "500.00", "2025-04-25 10:00:00"))).isEmpty();
+    assertThat(detector.evaluate(transaction(2, "500.00", "2025-04-25 10:02:00"))).isEmpty();
+
+    assertThat(detector.evaluate(transaction(3, "500.00", "2025-04-25 10:04:00")))
+        .extracting(SuspiciousFlag::getReason)
+        .containsExactly(SuspiciousReason.RAPID_TRANSFER);
+    assertThat(detector.evaluate(transaction(4, "500.00", "2025-04-25 10:10:00"))).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should seed a new user's window from recent history")
+  void warmUpFromHistory() {
+    given(
+            transactionRepository.findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+                eq(USER_ID), any(Timestamp.class)))
+        .willReturn(
+            List.of(
+                transaction(1, "500.00", "2025-04-25 10:00:00"),
+                transaction(2, "500.00", "2025-04-25 10:01:00"),
+                transaction(3, "500.00", "2025-04-25 10:02:00")));
+
+    List<SuspiciousFlag> flags = detector.evaluate(transaction(3, "500.00", "2025-04-25 10:02:00"));
+
+    assertThat(flags)
+        .extracting(SuspiciousFlag::getReason)
+        .containsExactly(SuspiciousReason.RAPID_TRANSFER);
+  }
+
+  @Test
+  @DisplayName("Should count a new user's batch once when seeding the window")
+  void warmUpSkipsTheCurrentBatch() {
+    Transaction first = transaction(1, "10.00", "2025-04-25 10:00:00");
+    Transaction second = transaction(2, "10.00", "2025-04-25 10:01:00");
+    given(
+            transactionRepository.findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+                eq(USER_ID), any(Timestamp.class)))
+        .willReturn(List.of(first, second));
+
+    assertThat(detector.evaluateAll(List.of(first, second))).isEmpty();
+
+    assertThat(detector.evaluate(transaction(3, "10.00", "2025-04-25 10:02:00")))
+        .extracting(SuspiciousFlag::getTransactionId, SuspiciousFlag::getReason)
+        .containsExactlyInAnyOrder(
+            tuple(1L, SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+            tuple(2L, SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+            tuple(3L, SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+            tuple(3L, SuspiciousReason.RAPID_TRANSFER));
+  }
+
+  @Test
+  @DisplayName("Should evict windows idle past every rule window and seed them again")
+  void evictsIdleWindows() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    detector.bindTo(registry);
+    detector.evaluate(transaction(1, "10.00", "2025-04-25 10:00:00"));
+    detector.evaluate(transaction(2, "10.00", "2025-04-25 10:50:00"));
+
+    clock.set(Instant.parse("2025-04-25T11:30:00Z"));
+    detector.evictIdleWindows();
+    assertThat(registry.get("transaction_scanner.detector.windows").gauge().value()).isEqualTo(1);
+    assertThat(registry.get("transaction_scanner.detector.windows.heap").gauge().value())
+        .isPositive();
+
+    clock.set(Instant.parse("2025-04-25T11:51:00Z"));
+    detector.evictIdleWindows();
+    assertThat(registry.get("transaction_scanner.detector.windows").gauge().value()).isZero();
+    assertThat(
+            registry.get("transaction_scanner.detector.windows.evicted").functionCounter().count())
+        .isEqualTo(1);
+
+    detector.evaluate(transaction(3, "10.00", "2025-04-25 11:52:00"));
+    verify(transactionRepository, times(2))
+        .findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+            eq(USER_ID), any(Timestamp.class));
+  }
+
+  @Test
+  @DisplayName("Should drop every window when the rules change and seed them again")
+  void dropsWindowsWhenTheRulesChange() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    detector.bindTo(registry);
+    detector.evaluate(transaction(1, "10.00", "2025-04-25 10:00:00"));
+
+    detector.onRuleConfigurationChanged(new RuleConfigurationChangedEvent(null, null));
+    assertThat(registry.get("transaction_scanner.detector.windows").gauge().value()).isZero();
+
+    detector.evaluate(transaction(2, "10.00", "2025-04-25 10:01:00"));
+    verify(transactionRepository, times(2))
+        .findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+            eq(USER_ID), any(Timestamp.class));
+  }
+
+  @Test
+  @DisplayName("Should drop the windows of a write that rolls back and seed them again")
+  void dropsWindowsOfARolledBackWrite() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      detector.evaluateAll(List.of(transaction(1, "10.00", "2025-04-25 10:00:00")));
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_ROLLED_BACK);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    detector.evaluate(transaction(2, "10.00", "2025-04-25 10:01:00"));
+    verify(transactionRepository, times(2))
+        .findByUserIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+            eq(USER_ID), any(Timestamp.class));
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void set(Instant now) {
+      this.now = now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.remo.transaction_scanner.config.FeedProperties;
+import com.remo.transaction_scanner.model.FeedOffset;
+import com.remo.transaction_scanner.model.SuspiciousFeedEvent;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.repository.SuspiciousOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SuspiciousFeedServiceTest {
+
+  private static final FeedOffset START = new FeedOffset(100, 0);
+
+  private final SuspiciousOutboxRepository outbox = mock(SuspiciousOutboxRepository.class);
+  private final FeedProperties properties = new FeedProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private SuspiciousFeedService feed;
+
+  @BeforeEach
+  void setUp() {
+    properties.setListen(false);
+    properties.setBatchSize(2);
+    properties.setPollInterval(Duration.ofMillis(10));
+    properties.setHeartbeatInterval(Duration.ofSeconds(10));
+    properties.setMaxConnectionDuration(Duration.ofMillis(200));
+    feed =
+        new SuspiciousFeedService(
+            outbox,
+            new SuspiciousFeedNotifier(null, properties),
+            properties,
+            new TransactionScannerMetrics(registry),
+            Clock.systemUTC());
+  }
+
+  private static SuspiciousFeedEvent event(long txId, long id) {
+    return SuspiciousFeedEvent.builder()
+        .offset(new FeedOffset(txId, id))
+        .transactionId(id)
+        .userId("user" + id)
+        .reason(SuspiciousReason.HIGH_VOLUME_TRANSACTION)
+        .build();
+  }
+
+  @Test
+  void handsOverEveryEventAndResumesAfterTheLast() {
+    SuspiciousFeedEvent first = event(101, 7);
+    SuspiciousFeedEvent second = event(101, 8);
+    SuspiciousFeedEvent third = event(103, 5);
+    given(outbox.findAfter(any(), anyInt())).willReturn(List.of());
+    given(outbox.findAfter(START, 2)).willReturn(List.of(first, second));
+    given(outbox.findAfter(second.getOffset(), 2)).willReturn(List.of(third));
+    List<List<SuspiciousFeedEvent>> batches = new ArrayList<>();
+
+    FeedOffset last = feed.stream(START, batches::add, () -> {});
+
+    assertThat(batches).containsExactly(List.of(first, second), List.of(third));
+    assertThat(last).isEqualTo(third.getOffset());
+    verify(outbox, atLeastOnce()).findAfter(third.getOffset(), 2);
+    assertThat(registry.get("transaction_scanner.feed.events").counter().count()).isEqualTo(3);
+    assertThat(registry.get("transaction_scanner.feed.consumers").gauge().value()).isZero();
+  }
+
+  @Test
+  void sendsHeartbeatsWhileIdle() {
+    properties.setHeartbeatInterval(Duration.ofMillis(20));
+    given(outbox.findAfter(any(), anyInt())).willReturn(List.of());
+    AtomicInteger heartbeats = new AtomicInteger();
+
+    FeedOffset last = feed.stream(START, batch -> {}, heartbeats::incrementAndGet);
+
+    assertThat(last).isEqualTo(START);
+    assertThat(heartbeats.get()).isGreaterThan(1);
+  }
+
+  @Test
+  void refusesConsumersWhileEveryFeedThreadIsBusy() {
+    properties.setMaxConsumers(1);
+    SuspiciousFeedService limited =
+        new SuspiciousFeedService(
+            outbox,
+            new SuspiciousFeedNotifier(null, properties),
+            properties,
+            new TransactionScannerMetrics(new SimpleMeterRegistry()),
+            Clock.systemUTC());
+    given(outbox.findAfter(any(), anyInt())).willReturn(List.of());
+
+    CompletableFuture<FeedOffset> first = limited.follow(START, batch -> {}, () -> {});
+
+    assertThatThrownBy(() -> limited.follow(START, batch -> {}, () -> {}))
+        .isInstanceOf(RejectedExecutionException.class);
+    assertThat(first.join()).isEqualTo(START);
+    limited.stop();
+  }
+
+  @Test
+  void wakesAsSoonAsNotified() throws InterruptedException {
+    SuspiciousFeedNotifier notifier = new SuspiciousFeedNotifier(null, properties);
+    long seen = notifier.generation();
+    Thread.ofVirtual().start(notifier::signal);
+
+    long start = System.nanoTime();
+    notifier.awaitChange(seen, Duration.ofSeconds(10));
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void startsNewConsumersAtTheEndOfTheFeed() {
+    given(outbox.head()).willReturn(new FeedOffset(120, 0));
+
+    assertThat(feed.offset(null)).isEqualTo(new FeedOffset(120, 0));
+    assertThat(feed.offset("101-8")).isEqualTo(new FeedOffset(101, 8));
+    assertThatThrownBy(() -> feed.offset("101"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid feed offset.");
+  }
+}
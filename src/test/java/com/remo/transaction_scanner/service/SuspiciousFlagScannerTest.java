@@ -0,0 +1,237 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.remo.transaction_scanner.config.ScannerProperties;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.repository.ScannerWatermarkRepository;
+import com.remo.transaction_scanner.repository.SuspiciousFlagRepository;
+import com.remo.transaction_scanner.repository.model.ScannerWatermark;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class SuspiciousFlagScannerTest {
+
+  private static final SuspiciousRuleConfiguration RULES =
+      SuspiciousRuleConfiguration.builder()
+          .frequentThreshold(5)
+          .smallTransactionAmount(new BigDecimal("100.00"))
+          .highVolumeAmount(new BigDecimal("10000.00"))
+          .rapidWindow(Duration.ofMinutes(5))
+          .rapidThreshold(3)
+          .build();
+
+  private static final Timestamp HOUR = Timestamp.valueOf("2025-04-25 09:00:00");
+
+  private final NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+  private final ScannerWatermarkRepository watermarks = mock(ScannerWatermarkRepository.class);
+  private final SuspiciousFlagRepository flags = mock(SuspiciousFlagRepository.class);
+  private final RuleConfigurationService ruleConfigurationService =
+      mock(RuleConfigurationService.class);
+  private final ScannerProperties properties = new ScannerProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private SuspiciousFlagScanner scanner;
+
+  @BeforeEach
+  void setUp() {
+    when(ruleConfigurationService.current()).thenReturn(RULES);
+    scanner =
+        new SuspiciousFlagScanner(
+            jdbc,
+            watermarks,
+            flags,
+            ruleConfigurationService,
+            properties,
+            new TransactionScannerMetrics(registry),
+            mock(PlatformTransactionManager.class),
+            Clock.fixed(Instant.parse("2025-04-25T10:00:00Z"), ZoneOffset.UTC));
+  }
+
+  private ScannerWatermark locked(long watermark, Long pendingId, Long pendingXmax) {
+    ScannerWatermark position =
+        ScannerWatermark.builder()
+            .scanner(SuspiciousFlagScanner.SCANNER)
+            .watermark(watermark)
+            .pendingId(pendingId)
+            .pendingXmax(pendingXmax)
+            .pendingSince(pendingId != null ? Timestamp.valueOf("2025-04-25 09:59:50") : null)
+            .build();
+    given(watermarks.lock(SuspiciousFlagScanner.SCANNER)).willReturn(Optional.of(position));
+    return position;
+  }
+
+  private void rows(long... ids) {
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler handler = invocation.getArgument(2);
+              for (long id : ids) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(id);
+                when(rs.getString("user_id")).thenReturn("user" + id);
+                when(rs.getTimestamp("timestamp")).thenReturn(HOUR);
+                when(rs.getTimestamp("hour_bucket")).thenReturn(HOUR);
+                // Every other row is frequent and high volume.
+                when(rs.getInt("reasons"))
+                    .thenReturn(
+                        id % 2 == 0
+                            ? SuspiciousTransactionFinder.reasonBit(
+                                    SuspiciousReason.FREQUENT_SMALL_TRANSACTION)
+                                | SuspiciousTransactionFinder.reasonBit(
+                                    SuspiciousReason.HIGH_VOLUME_TRANSACTION)
+                            : 0);
+                handler.processRow(rs);
+              }
+              return null;
+            })
+        .when(jdbc)
+        .query(
+            eq(SuspiciousFlagScanner.CHUNK_SQL),
+            any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void recordsTheSequenceHeadThenTheSnapshotXmaxBeforeScanning() {
+    ScannerWatermark position = locked(10, null, null);
+    given(watermarks.sequenceHead()).willReturn(20L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {100, 105});
+
+    assertThat(scanner.step()).isFalse();
+    assertThat(position.getPendingId()).isEqualTo(20);
+    assertThat(position.getPendingXmax()).isNull();
+
+    given(watermarks.snapshotBounds()).willReturn(new long[] {102, 110});
+
+    assertThat(scanner.step()).isFalse();
+    assertThat(position.getPendingId()).isEqualTo(20);
+    assertThat(position.getPendingXmax()).isEqualTo(110);
+    assertThat(position.getWatermark()).isEqualTo(10);
+    verify(jdbc, never())
+        .query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    assertThat(registry.get("transaction_scanner.scanner.lag.transactions").gauge().value())
+        .isEqualTo(10);
+  }
+
+  @Test
+  void waitsForTransactionsOlderThanTheXmax() {
+    ScannerWatermark position = locked(10, 20L, 110L);
+    given(watermarks.sequenceHead()).willReturn(25L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {109, 115});
+
+    assertThat(scanner.step()).isFalse();
+
+    assertThat(position.getWatermark()).isEqualTo(10);
+    assertThat(position.getPendingId()).isEqualTo(20);
+    verify(jdbc, never())
+        .query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void scansUpToThePendingIdAndFlagsTheFrequentHours() {
+    ScannerWatermark position = locked(10, 20L, 110L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {110, 115});
+    rows(11, 12, 14);
+
+    assertThat(scanner.step()).isTrue();
+
+    // A short chunk read everything the pending id covers.
+    assertThat(position.getWatermark()).isEqualTo(20);
+    verify(watermarks).save(position);
+    ArgumentCaptor<List<SuspiciousFlag>> saved = ArgumentCaptor.forClass(List.class);
+    verify(flags).saveAll(saved.capture());
+    assertThat(saved.getValue())
+        .extracting(SuspiciousFlag::getTransactionId, SuspiciousFlag::getReason)
+        .containsExactly(
+            tuple(12L, SuspiciousReason.HIGH_VOLUME_TRANSACTION),
+            tuple(12L, SuspiciousReason.FREQUENT_SMALL_TRANSACTION),
+            tuple(14L, SuspiciousReason.HIGH_VOLUME_TRANSACTION),
+            tuple(14L, SuspiciousReason.FREQUENT_SMALL_TRANSACTION));
+    ArgumentCaptor<SqlParameterSource[]> hours =
+        ArgumentCaptor.forClass(SqlParameterSource[].class);
+    verify(jdbc).batchUpdate(eq(SuspiciousFlagScanner.FLAG_FREQUENT_HOUR_SQL), hours.capture());
+    assertThat(hours.getValue()).hasSize(2);
+    assertThat(registry.get("transaction_scanner.scanner.transactions").counter().count())
+        .isEqualTo(3);
+    assertThat(registry.get("transaction_scanner.scanner.flags").counter().count()).isEqualTo(4);
+  }
+
+  @Test
+  void stopsAtTheLastRowOfAFullChunk() {
+    properties.setChunkSize(2);
+    ScannerWatermark position = locked(10, 20L, 110L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {110, 115});
+    rows(11, 13);
+
+    assertThat(scanner.step()).isTrue();
+
+    assertThat(position.getWatermark()).isEqualTo(13);
+    assertThat(position.getPendingId()).isEqualTo(20);
+  }
+
+  @Test
+  void runStopsAfterTheChunkCap() {
+    properties.setEnabled(true);
+    properties.setChunkSize(2);
+    properties.setMaxChunksPerRun(3);
+    ScannerWatermark position = locked(10, 20L, 110L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {110, 115});
+    // Every chunk comes back full, as while a backlog is being read.
+    rows(11, 13);
+
+    scanner.scan();
+
+    verify(watermarks, times(3)).save(position);
+  }
+
+  @Test
+  void clearsThePendingIdOnceCaughtUp() {
+    ScannerWatermark position = locked(20, 20L, 110L);
+    given(watermarks.sequenceHead()).willReturn(20L);
+    given(watermarks.snapshotBounds()).willReturn(new long[] {110, 115});
+
+    assertThat(scanner.step()).isFalse();
+
+    assertThat(position.getPendingId()).isNull();
+    assertThat(position.getPendingXmax()).isNull();
+    assertThat(position.getPendingSince()).isNull();
+  }
+
+  @Test
+  void skipsWhileAnotherInstanceHoldsTheWatermark() {
+    given(watermarks.lock(SuspiciousFlagScanner.SCANNER)).willReturn(Optional.empty());
+
+    assertThat(scanner.step()).isFalse();
+
+    verify(watermarks, never()).save(any());
+  }
+}
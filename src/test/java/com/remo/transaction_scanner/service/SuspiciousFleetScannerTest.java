@@ -0,0 +1,137 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.remo.transaction_scanner.config.FleetScanProperties;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+class SuspiciousFleetScannerTest {
+
+  private static final Timestamp FROM = Timestamp.valueOf("2025-04-24 12:00:00");
+  private static final Timestamp TO = Timestamp.valueOf("2025-04-25 12:00:00");
+
+  private final SuspiciousTransactionFinder finder = mock(SuspiciousTransactionFinder.class);
+  private final FleetScanProperties properties = new FleetScanProperties();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private SuspiciousFleetScanner scanner;
+
+  @BeforeEach
+  void setUp() {
+    properties.setShards(3);
+    // Smaller than every shard, so shards block until the merge catches up.
+    properties.setQueueCapacity(2);
+    scanner =
+        new SuspiciousFleetScanner(finder, properties, new TransactionScannerMetrics(registry));
+  }
+
+  private static TransactionResponse transaction(long id, String timestamp) {
+    return TransactionResponse.builder()
+        .id(id)
+        .userId("user" + id)
+        .timestamp(Timestamp.valueOf(timestamp))
+        .build();
+  }
+
+  // Answers each slice query with the rows of the slice, oldest first, and records the slice.
+  @SuppressWarnings("unchecked")
+  private List<Timestamp[]> slicesOf(List<TransactionResponse> rows) {
+    List<Timestamp[]> slices = new CopyOnWriteArrayList<>();
+    doAnswer(
+            invocation -> {
+              Timestamp from = invocation.getArgument(0);
+              Timestamp to = invocation.getArgument(1);
+              slices.add(new Timestamp[] {from, to});
+              Consumer<TransactionResponse> sink = invocation.getArgument(3);
+              List<TransactionResponse> slice =
+                  rows.stream()
+                      .filter(row -> !row.getTimestamp().before(from))
+                      .filter(row -> row.getTimestamp().before(to))
+                      .toList();
+              slice.forEach(sink);
+              return (long) slice.size();
+            })
+        .when(finder)
+        .streamFleetSlice(any(Timestamp.class), any(Timestamp.class), any(Consumer.class), any());
+    return slices;
+  }
+
+  @Test
+  void streamsTheSlicesOldestFirst() {
+    List<Timestamp[]> slices =
+        slicesOf(
+            List.of(
+                transaction(1, "2025-04-24 12:00:00"),
+                transaction(2, "2025-04-24 13:59:59"),
+                transaction(3, "2025-04-24 14:00:00"),
+                transaction(4, "2025-04-24 14:00:00"),
+                transaction(5, "2025-04-24 14:30:00"),
+                transaction(6, "2025-04-25 11:59:59"),
+                transaction(7, "2025-04-25 12:00:00")));
+    List<TransactionResponse> streamed = new ArrayList<>();
+
+    long rows = scanner.scan(FROM, TO, streamed::add);
+
+    assertThat(rows).isEqualTo(6);
+    assertThat(streamed)
+        .extracting(TransactionResponse::getId)
+        .containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    assertThat(registry.get("transaction_scanner.suspicious.fleet_scan.rows").counter().count())
+        .isEqualTo(6);
+    // One query per hour, together covering the range once.
+    assertThat(slices).hasSize(24);
+    List<Timestamp[]> ordered =
+        slices.stream().sorted(Comparator.comparing((Timestamp[] slice) -> slice[0])).toList();
+    assertThat(ordered.get(0)[0]).isEqualTo(FROM);
+    assertThat(ordered.get(23)[1]).isEqualTo(TO);
+    for (int i = 1; i < ordered.size(); i++) {
+      assertThat(ordered.get(i)[0]).isEqualTo(ordered.get(i - 1)[1]);
+    }
+  }
+
+  @Test
+  void shortRangesStillUseEveryShard() {
+    Timestamp to = Timestamp.valueOf("2025-04-24 12:00:00.000001");
+    List<Timestamp[]> slices = slicesOf(List.of(transaction(1, "2025-04-24 12:00:00")));
+
+    assertThat(scanner.scan(FROM, to, row -> {})).isEqualTo(1);
+    assertThat(slices).hasSize(3);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void rethrowsTheFailureOfAShard() {
+    List<TransactionResponse> many = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      many.add(transaction(i, "2025-04-24 12:30:00"));
+    }
+    doAnswer(
+            invocation -> {
+              if (invocation.<Timestamp>getArgument(0).after(FROM)) {
+                throw new QueryTimeoutException("canceling statement due to statement timeout");
+              }
+              Consumer<TransactionResponse> sink = invocation.getArgument(3);
+              many.forEach(sink);
+              return (long) many.size();
+            })
+        .when(finder)
+        .streamFleetSlice(any(Timestamp.class), any(Timestamp.class), any(Consumer.class), any());
+
+    assertThatThrownBy(() -> scanner.scan(FROM, TO, row -> {}))
+        .isInstanceOf(QueryTimeoutException.class);
+  }
+}
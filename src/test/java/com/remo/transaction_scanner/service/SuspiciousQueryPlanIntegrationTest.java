@@ -0,0 +1,281 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Plan regression tests for the suspicious transaction queries. Plans are taken with the planner
+ * defaults over a few months of analyzed rows, so a sequential scan of a {@code transactions}
+ * partition means the planner prefers it to every index at realistic selectivity, which fails the
+ * test. Time range reads must also prune every partition outside the requested range. The rollup
+ * counters the queries read are checked against the seeded rows, and creating a month that the
+ * default partition holds rows for must move them into it.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SuspiciousQueryPlanIntegrationTest {
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15")
+          .withDatabaseName("testdb")
+          .withUsername("test")
+          .withPassword("test");
+
+  static {
+    postgres.start();
+  }
+
+  @DynamicPropertySource
+  static void overrideProps(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+  }
+
+  private static final String USER_ID = "user42";
+
+  @Autowired private JdbcTemplate jdbc;
+
+  @Autowired private NamedParameterJdbcTemplate namedJdbc;
+
+  @Autowired private RollupRecounter rollupRecounter;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @BeforeAll
+  void seed() {
+    // 200k rows over 1000 users, one minute apart from January 2025, with amounts spread across
+    // both thresholds.
+    jdbc.queryForObject(
+        "SELECT transaction_scanner.create_transaction_partitions(DATE '2025-01-01', DATE '2025-06-01')",
+        Integer.class);
+    jdbc.execute(
+        """
+        INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp)
+        SELECT 'user' || (g % 1000),
+               (g % 300) * 50 + 1,
+               'DEPOSIT',
+               timestamp '2025-01-01' + g * interval '1 minute'
+        FROM generate_series(1, 200000) g
+        """);
+    jdbc.execute("ANALYZE transaction_scanner.transactions");
+  }
+
+  @Test
+  void frequentQueryUsesIndex() {
+    assertNoSequentialScan(
+        "SELECT id, user_id, amount, timestamp, cnt, transaction_type FROM transaction_scanner.suspicious_frequent_transactions WHERE user_id = ?",
+        USER_ID);
+  }
+
+  @Test
+  void highVolumeQueryUsesIndex() {
+    assertNoSequentialScan(
+        "SELECT id, user_id, amount, timestamp, transaction_type FROM transaction_scanner.suspicious_high_volume_transactions WHERE user_id = ?",
+        USER_ID);
+  }
+
+  @Test
+  void rapidQueryUsesIndex() {
+    assertNoSequentialScan(SuspiciousTransactionFinder.RAPID_VIEW_SQL, USER_ID, 300L, 3);
+  }
+
+  @Test
+  void singleQueryUsesIndex() {
+    MapSqlParameterSource params = ruleParams();
+    String plan = explain(SuspiciousTransactionFinder.SINGLE_QUERY_SQL, params);
+
+    assertThat(transactionScans(plan))
+        .as("Sequential scans in plan:%n%s", plan)
+        .noneMatch(scan -> "Seq Scan".equals(scan.path("Node Type").asText()));
+  }
+
+  @Test
+  void timeRangeQueryUsesIndexAndPrunesPartitions() {
+    MapSqlParameterSource params =
+        ruleParams()
+            .addValue("from", Timestamp.valueOf("2025-03-10 00:00:00"))
+            .addValue("to", Timestamp.valueOf("2025-03-11 00:00:00"));
+    String plan = explain(SuspiciousTransactionFinder.TIME_RANGE_SQL, params);
+
+    List<JsonNode> scans = transactionScans(plan);
+    assertThat(scans)
+        .as("Partitions scanned in plan:%n%s", plan)
+        .isNotEmpty()
+        .allMatch(scan -> "transactions_y2025m03".equals(scan.path("Relation Name").asText()))
+        .noneMatch(scan -> "Seq Scan".equals(scan.path("Node Type").asText()));
+  }
+
+  @Test
+  void fleetSliceQueryUsesIndex() {
+    MapSqlParameterSource params =
+        ruleParams()
+            .addValue("from", Timestamp.valueOf("2025-03-10 00:00:00"))
+            .addValue("to", Timestamp.valueOf("2025-03-11 00:00:00"));
+    String plan = explain(SuspiciousTransactionFinder.FLEET_SLICE_SQL, params);
+
+    assertThat(transactionScans(plan))
+        .as("Sequential scans in plan:%n%s", plan)
+        .noneMatch(scan -> "Seq Scan".equals(scan.path("Node Type").asText()));
+  }
+
+  @Test
+  void rollupsMatchTheTransactions() {
+    assertThat(
+            jdbc.queryForObject(
+                """
+                SELECT count(*) FROM (
+                    (SELECT user_id, hour_bucket, count(*), count(*) FILTER (WHERE amount <= 100)
+                     FROM transaction_scanner.transactions GROUP BY user_id, hour_bucket
+                     EXCEPT
+                     SELECT user_id, hour_bucket, transaction_count, small_transaction_count
+                     FROM transaction_scanner.user_hourly_rollups)
+                    UNION ALL
+                    (SELECT user_id,
+                            date_bin(INTERVAL '5 minutes', timestamp, TIMESTAMP '2000-01-01'),
+                            count(*)
+                     FROM transaction_scanner.transactions GROUP BY 1, 2
+                     EXCEPT
+                     SELECT user_id, bucket_start, transaction_count
+                     FROM transaction_scanner.user_five_minute_rollups)
+                ) mismatched
+                """,
+                Long.class))
+        .isZero();
+  }
+
+  @Test
+  void changingTheSmallAmountRecountsTheHourlyRollups() throws InterruptedException {
+    try {
+      setSmallAmountAndRecount(500);
+
+      assertThat(
+              jdbc.queryForObject(
+                  """
+                  SELECT count(*) FROM (
+                      SELECT user_id, hour_bucket, count(*) FILTER (WHERE amount <= 500)
+                      FROM transaction_scanner.transactions GROUP BY user_id, hour_bucket
+                      EXCEPT
+                      SELECT user_id, hour_bucket, small_transaction_count
+                      FROM transaction_scanner.user_hourly_rollups
+                  ) mismatched
+                  """,
+                  Long.class))
+          .isZero();
+    } finally {
+      setSmallAmountAndRecount(100);
+    }
+  }
+
+  @Test
+  void creatingAMonthMovesItsRowsOutOfTheDefaultPartition() {
+    String user = "defaultPartitionUser";
+    jdbc.update(
+        "INSERT INTO transaction_scanner.transactions (user_id, amount, transaction_type, timestamp) VALUES (?, 20, 'DEPOSIT', TIMESTAMP '2024-06-15 10:00:00'), (?, 30, 'DEPOSIT', TIMESTAMP '2024-06-15 10:30:00')",
+        user,
+        user);
+    String partitionSql =
+        "SELECT c.relname FROM transaction_scanner.transactions t JOIN pg_class c ON c.oid = t.tableoid WHERE t.user_id = ?";
+    assertThat(jdbc.queryForList(partitionSql, String.class, user))
+        .containsOnly("transactions_default");
+
+    Integer created =
+        jdbc.queryForObject(
+            "SELECT transaction_scanner.create_transaction_partitions(DATE '2024-06-01', DATE '2024-06-01')",
+            Integer.class);
+
+    assertThat(created).isEqualTo(1);
+    assertThat(jdbc.queryForList(partitionSql, String.class, user))
+        .containsExactly("transactions_y2024m06", "transactions_y2024m06");
+    assertThat(
+            jdbc.queryForObject(
+                "SELECT transaction_count FROM transaction_scanner.user_hourly_rollups WHERE user_id = ?",
+                Long.class,
+                user))
+        .isEqualTo(2);
+  }
+
+  // Commits the amount, then runs the recount until it has caught up with it.
+  private void setSmallAmountAndRecount(int amount) throws InterruptedException {
+    jdbc.update(
+        "UPDATE transaction_scanner.suspicious_transaction_configuration SET small_transaction_amount = ?",
+        amount);
+    for (int attempt = 0; attempt < 50; attempt++) {
+      rollupRecounter.recount();
+      Boolean completed =
+          jdbc.queryForObject(
+              "SELECT completed AND small_transaction_amount = ? FROM transaction_scanner.rollup_recounts",
+              Boolean.class,
+              amount);
+      if (Boolean.TRUE.equals(completed)) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    throw new AssertionError("Rollup recount did not complete");
+  }
+
+  // The default thresholds, bound the way SuspiciousTransactionFinder binds them.
+  private MapSqlParameterSource ruleParams() {
+    return new MapSqlParameterSource()
+        .addValue("userId", USER_ID)
+        .addValue("frequentThreshold", 5)
+        .addValue("smallTransactionAmount", new BigDecimal("100.00"))
+        .addValue("highVolumeAmount", new BigDecimal("10000.00"))
+        .addValue("rapidWindowSeconds", 300L)
+        .addValue("rapidThreshold", 3);
+  }
+
+  private void assertNoSequentialScan(String sql, Object... args) {
+    String plan = jdbc.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+
+    assertThat(transactionScans(plan))
+        .as("Sequential scans in plan:%n%s", plan)
+        .noneMatch(scan -> "Seq Scan".equals(scan.path("Node Type").asText()));
+  }
+
+  private String explain(String namedSql, MapSqlParameterSource params) {
+    return namedJdbc.queryForObject("EXPLAIN (FORMAT JSON) " + namedSql, params, String.class);
+  }
+
+  // Every scan node over the transactions table or one of its partitions.
+  private List<JsonNode> transactionScans(String plan) {
+    List<JsonNode> scans = new ArrayList<>();
+    try {
+      collectTransactionScans(objectMapper.readTree(plan).get(0).get("Plan"), scans);
+    } catch (Exception e) {
+      throw new IllegalStateException("Could not parse plan: " + plan, e);
+    }
+    return scans;
+  }
+
+  private void collectTransactionScans(JsonNode node, List<JsonNode> scans) {
+    if (node.path("Relation Name").asText().startsWith("transactions")) {
+      scans.add(node);
+    }
+    for (JsonNode child : node.path("Plans")) {
+      collectTransactionScans(child, scans);
+    }
+  }
+}
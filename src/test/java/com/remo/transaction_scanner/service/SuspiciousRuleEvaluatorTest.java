@@ -0,0 +1,237 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionType;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+class SuspiciousRuleEvaluatorTest {
+
+  private static final SuspiciousRuleConfiguration RULES =
+      SuspiciousRuleConfiguration.builder()
+          .frequentThreshold(3)
+          .smallTransactionAmount(new BigDecimal("100.00"))
+          .highVolumeAmount(new BigDecimal("10000.00"))
+          .rapidWindow(Duration.ofMinutes(5))
+          .rapidThreshold(3)
+          .build();
+
+  private static final List<SuspiciousRule> BUILT_IN_RULES =
+      List.of(
+          new FrequentSmallTransactionRule(),
+          new HighVolumeTransactionRule(),
+          new RapidTransferRule());
+
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate =
+      mock(NamedParameterJdbcTemplate.class);
+  private final RuleConfigurationService ruleConfigurationService =
+      mock(RuleConfigurationService.class);
+
+  private final Map<Long, EnumSet<SuspiciousReason>> emitted = new LinkedHashMap<>();
+
+  private SuspiciousRuleEvaluator evaluator(List<SuspiciousRule> rules) {
+    return new SuspiciousRuleEvaluator(
+        namedParameterJdbcTemplate, ruleConfigurationService, rules);
+  }
+
+  private SuspiciousRuleEvaluator.ReasonSink sink() {
+    return (transaction, reasons) -> emitted.put(transaction.getId(), reasons);
+  }
+
+  private static TransactionResponse transaction(long id, String timestamp, String amount) {
+    return TransactionResponse.builder()
+        .id(id)
+        .userId("user1")
+        .amountCents(Cents.parse(amount))
+        .timestamp(Timestamp.valueOf(timestamp))
+        .transactionType(TransactionType.DEPOSIT)
+        .build();
+  }
+
+  private static SuspiciousRule rule(Duration lookahead, SuspiciousRule.Evaluation evaluation) {
+    return new SuspiciousRule() {
+      @Override
+      public SuspiciousReason reason() {
+        return SuspiciousReason.RAPID_TRANSFER;
+      }
+
+      @Override
+      public Duration lookback(SuspiciousRuleConfiguration rules) {
+        return Duration.ZERO;
+      }
+
+      @Override
+      public Duration lookahead(SuspiciousRuleConfiguration rules) {
+        return lookahead;
+      }
+
+      @Override
+      public Evaluation begin(SuspiciousRuleConfiguration rules) {
+        return evaluation;
+      }
+    };
+  }
+
+  @Test
+  void evaluatesEveryRuleInOnePass() {
+    SuspiciousRuleEvaluator.Pass pass = evaluator(BUILT_IN_RULES).begin(RULES, sink());
+
+    pass.accept(transaction(1, "2025-04-25 10:00:00", "10.00"));
+    pass.accept(transaction(2, "2025-04-25 10:20:00", "20.00"));
+    pass.accept(transaction(3, "2025-04-25 10:59:00", "15000.00"));
+    pass.accept(transaction(4, "2025-04-25 10:59:30", "5.00"));
+    pass.accept(transaction(5, "2025-04-25 11:01:00", "20000.00"));
+    pass.accept(transaction(6, "2025-04-25 13:00:00", "50.00"));
+    pass.finish();
+
+    assertThat(emitted)
+        .containsExactly(
+            Map.entry(1L, EnumSet.of(SuspiciousReason.FREQUENT_SMALL_TRANSACTION)),
+            Map.entry(2L, EnumSet.of(SuspiciousReason.FREQUENT_SMALL_TRANSACTION)),
+            Map.entry(3L, EnumSet.of(SuspiciousReason.HIGH_VOLUME_TRANSACTION)),
+            Map.entry(4L, EnumSet.of(SuspiciousReason.FREQUENT_SMALL_TRANSACTION)),
+            Map.entry(
+                5L,
+                EnumSet.of(
+                    SuspiciousReason.HIGH_VOLUME_TRANSACTION, SuspiciousReason.RAPID_TRANSFER)));
+  }
+
+  @Test
+  void emitsATransactionOnlyOnceNoRuleCanFlagItAnyMore() {
+    SuspiciousRuleEvaluator.Pass pass = evaluator(BUILT_IN_RULES).begin(RULES, sink());
+
+    pass.accept(transaction(1, "2025-04-25 10:00:00", "20000.00"));
+    pass.accept(transaction(2, "2025-04-25 10:30:00", "20000.00"));
+    assertThat(emitted).isEmpty();
+
+    pass.accept(transaction(3, "2025-04-25 11:00:01", "20000.00"));
+    assertThat(emitted).containsOnlyKeys(1L);
+
+    pass.finish();
+    assertThat(emitted).containsOnlyKeys(1L, 2L, 3L);
+  }
+
+  @Test
+  void rapidRuleCountsTransactionsWithTheSameTimestampForEachOther() {
+    SuspiciousRuleEvaluator.Pass pass = evaluator(BUILT_IN_RULES).begin(RULES, sink());
+
+    pass.accept(transaction(1, "2025-04-25 10:00:00", "500.00"));
+    pass.accept(transaction(2, "2025-04-25 10:00:00", "500.00"));
+    pass.accept(transaction(3, "2025-04-25 10:00:00", "500.00"));
+    pass.accept(transaction(4, "2025-04-25 10:05:01", "500.00"));
+    pass.finish();
+
+    assertThat(emitted)
+        .containsOnlyKeys(1L, 2L, 3L)
+        .allSatisfy(
+            (id, reasons) -> assertThat(reasons).containsExactly(SuspiciousReason.RAPID_TRANSFER));
+  }
+
+  @Test
+  void runsPlugInRulesInTheSamePass() {
+    // Flags the transaction before every withdrawal.
+    SuspiciousRule beforeWithdrawal =
+        rule(
+            Duration.ofMinutes(1),
+            (sequence, epochMicros, amountCents, type, flags) -> {
+              if (type == TransactionType.WITHDRAWAL) {
+                flags.flag(sequence - 1);
+              }
+            });
+    SuspiciousRuleEvaluator.Pass pass =
+        evaluator(List.of(beforeWithdrawal, new HighVolumeTransactionRule())).begin(RULES, sink());
+
+    pass.accept(transaction(1, "2025-04-25 10:00:00", "20000.00"));
+    TransactionResponse withdrawal = transaction(2, "2025-04-25 10:00:30", "50.00");
+    withdrawal.setTransactionType(TransactionType.WITHDRAWAL);
+    pass.accept(withdrawal);
+    pass.accept(transaction(3, "2025-04-25 10:05:00", "50.00"));
+    assertThat(emitted)
+        .containsExactly(
+            Map.entry(
+                1L,
+                EnumSet.of(
+                    SuspiciousReason.HIGH_VOLUME_TRANSACTION, SuspiciousReason.RAPID_TRANSFER)));
+  }
+
+  @Test
+  void rejectsFlagsBeyondTheRulesLookahead() {
+    SuspiciousRule flagsTheFirst =
+        rule(Duration.ZERO, (sequence, epochMicros, amountCents, type, flags) -> flags.flag(0));
+    SuspiciousRuleEvaluator.Pass pass = evaluator(List.of(flagsTheFirst)).begin(RULES, sink());
+
+    pass.accept(transaction(1, "2025-04-25 10:00:00", "50.00"));
+    pass.accept(transaction(2, "2025-04-25 10:01:00", "50.00"));
+
+    assertThatThrownBy(() -> pass.accept(transaction(3, "2025-04-25 10:02:00", "50.00")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void rangeReadsTheRulesMarginsAndEmitsOnlyTheRange() throws Exception {
+    when(ruleConfigurationService.current()).thenReturn(RULES);
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn(1L, 2L);
+    when(rs.getString("user_id")).thenReturn("user1");
+    when(rs.getBigDecimal("amount"))
+        .thenReturn(new BigDecimal("20000.00"), new BigDecimal("20000.00"));
+    when(rs.getTimestamp("timestamp"))
+        .thenReturn(
+            Timestamp.valueOf("2025-04-25 10:55:00"), Timestamp.valueOf("2025-04-25 11:05:00"));
+    when(rs.getString("transaction_type")).thenReturn("DEPOSIT");
+    ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler handler = invocation.getArgument(2);
+              handler.processRow(rs);
+              handler.processRow(rs);
+              return null;
+            })
+        .when(namedParameterJdbcTemplate)
+        .query(
+            eq(SuspiciousRuleEvaluator.HISTORY_RANGE_SQL),
+            params.capture(),
+            any(RowCallbackHandler.class));
+
+    evaluator(BUILT_IN_RULES)
+        .evaluate(
+            "user1",
+            Timestamp.valueOf("2025-04-25 11:00:00"),
+            Timestamp.valueOf("2025-04-25 12:00:00"),
+            sink());
+
+    verify(namedParameterJdbcTemplate)
+        .query(
+            eq(SuspiciousRuleEvaluator.HISTORY_RANGE_SQL),
+            any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+    assertThat(params.getValue().getValue("from"))
+        .isEqualTo(Timestamp.valueOf("2025-04-25 10:00:00"));
+    assertThat(params.getValue().getValue("to"))
+        .isEqualTo(Timestamp.valueOf("2025-04-25 13:00:00"));
+    assertThat(emitted).containsOnlyKeys(2L);
+  }
+}
@@ -0,0 +1,121 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.remo.transaction_scanner.config.ReadRouting;
+import com.remo.transaction_scanner.config.SuspiciousCacheProperties;
+import com.remo.transaction_scanner.model.CacheStatsResponse;
+import com.remo.transaction_scanner.model.TransactionResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SuspiciousTransactionCacheTest {
+
+  private SuspiciousCacheProperties properties;
+  private SuspiciousTransactionCache cache;
+  private AtomicInteger loads;
+  private List<TransactionResponse> result;
+
+  @BeforeEach
+  void setUp() {
+    properties = new SuspiciousCacheProperties();
+    cache = new SuspiciousTransactionCache(properties);
+    loads = new AtomicInteger();
+    result = List.of(TransactionResponse.builder().id(1).userId("user1").build());
+  }
+
+  private List<TransactionResponse> load(String userId) {
+    loads.incrementAndGet();
+    return result;
+  }
+
+  @Test
+  void secondReadIsServedFromCache() {
+    assertThat(cache.get("user1", this::load)).isEqualTo(result);
+    assertThat(cache.get("user1", this::load)).isEqualTo(result);
+
+    assertThat(loads).hasValue(1);
+    CacheStatsResponse stats = cache.stats();
+    assertThat(stats.getHits()).isEqualTo(1);
+    assertThat(stats.getMisses()).isEqualTo(1);
+    assertThat(stats.getHitRatio()).isEqualTo(0.5);
+    assertThat(stats.getMissRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  void invalidationOnlyDropsTheWrittenUser() {
+    cache.get("user1", this::load);
+    cache.get("user2", this::load);
+
+    cache.invalidateAfterCommit(List.of("user1"));
+    cache.get("user1", this::load);
+    cache.get("user2", this::load);
+
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  void loadRacingAnInvalidationIsNotKept() {
+    cache.get(
+        "user1",
+        userId -> {
+          // A write for the user commits while its list is being read.
+          cache.invalidateAfterCommit(List.of(userId));
+          return load(userId);
+        });
+    cache.get("user1", this::load);
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void loadRacingAnotherUsersInvalidationIsKept() {
+    cache.get(
+        "user1",
+        userId -> {
+          cache.invalidateAfterCommit(List.of("user2"));
+          return load(userId);
+        });
+    cache.get("user1", this::load);
+
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void replicaLoadWithinTheLagOfAWriteIsNotKept() {
+    cache.invalidateAfterCommit(List.of("user1"));
+
+    cache.get("user1", this::load);
+    cache.get("user1", this::load);
+    assertThat(loads).hasValue(2);
+
+    try (ReadRouting.Scope ignored = ReadRouting.pinToPrimary()) {
+      cache.refresh("user1", this::load);
+    }
+    cache.get("user1", this::load);
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  void refreshReloadsAndReplacesTheCachedList() {
+    cache.get("user1", this::load);
+    List<TransactionResponse> fresh =
+        List.of(TransactionResponse.builder().id(2).userId("user1").build());
+
+    assertThat(cache.refresh("user1", userId -> fresh)).isEqualTo(fresh);
+    assertThat(cache.get("user1", this::load)).isEqualTo(fresh);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void disabledCacheAlwaysLoads() {
+    properties.setEnabled(false);
+
+    cache.get("user1", this::load);
+    cache.get("user1", this::load);
+
+    assertThat(loads).hasValue(2);
+  }
+}
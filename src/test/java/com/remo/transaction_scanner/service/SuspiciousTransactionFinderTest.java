@@ -1,36 +1,99 @@
 package com.remo.transaction_scanner.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import com.remo.transaction_scanner.config.FinderProperties;
+import com.remo.transaction_scanner.model.Cents;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousRuleConfiguration;
 import com.remo.transaction_scanner.model.TransactionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 @ExtendWith(MockitoExtension.class)
 class SuspiciousTransactionFinderTest {
 
   @Mock private JdbcTemplate jdbcTemplate;
 
+  @Mock private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  @Spy private FinderProperties finderProperties = new FinderProperties();
+
+  @Mock private RuleConfigurationService ruleConfigurationService;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Spy private TransactionScannerMetrics metrics = new TransactionScannerMetrics(registry);
+
+  @Mock private SuspiciousRuleEvaluator ruleEvaluator;
+
   @InjectMocks private SuspiciousTransactionFinder finder;
 
   private final String USER_ID = "user123";
 
+  private static final SuspiciousRuleConfiguration RULES =
+      SuspiciousRuleConfiguration.builder()
+          .frequentThreshold(5)
+          .smallTransactionAmount(new BigDecimal("100.00"))
+          .highVolumeAmount(new BigDecimal("10000.00"))
+          .rapidWindow(Duration.ofMinutes(5))
+          .rapidThreshold(3)
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    finderProperties.setStrategy(FinderProperties.FinderStrategy.RULE_QUERIES);
+    lenient().when(ruleConfigurationService.current()).thenReturn(RULES);
+  }
+
   private TransactionResponse buildResponse(
       long id, String userId, BigDecimal amount, Timestamp ts) {
-    return TransactionResponse.builder().id(id).userId(userId).amount(amount).timestamp(ts).build();
+    return TransactionResponse.builder()
+        .id(id)
+        .userId(userId)
+        .amountCents(Cents.of(amount))
+        .timestamp(ts)
+        .build();
   }
 
   @Test
@@ -38,6 +101,14 @@ class SuspiciousTransactionFinderTest {
   void noSuspiciousTransactions() {
     given(jdbcTemplate.query(any(String.class), any(RowMapper.class), eq(USER_ID)))
         .willReturn(Collections.emptyList());
+    given(
+            jdbcTemplate.query(
+                eq(SuspiciousTransactionFinder.RAPID_VIEW_SQL),
+                any(RowMapper.class),
+                eq(USER_ID),
+                eq(300L),
+                eq(3)))
+        .willReturn(Collections.emptyList());
 
     List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
 
@@ -67,9 +138,11 @@ class SuspiciousTransactionFinderTest {
     given(
             jdbcTemplate.query(
                 eq(
-                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions WHERE user_id = ?"),
+                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions_for_user(?, ?, ?)"),
                 any(RowMapper.class),
-                eq(USER_ID)))
+                eq(USER_ID),
+                eq(300L),
+                eq(3)))
         .willReturn(Collections.emptyList());
 
     List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
@@ -80,6 +153,57 @@ class SuspiciousTransactionFinderTest {
     assertThat(result.getSuspiciousReason()).containsExactly("Frequent transaction");
   }
 
+  @Test
+  @DisplayName("Should time each rule query and the merge, and count rows per rule")
+  void ruleQueryMetrics() {
+    TransactionResponse tr1 =
+        buildResponse(
+            1L, USER_ID, new BigDecimal("10.00"), Timestamp.valueOf("2025-04-25 10:00:00"));
+    given(
+            jdbcTemplate.query(
+                eq(SuspiciousTransactionFinder.FREQUENT_VIEW_SQL),
+                any(RowMapper.class),
+                eq(USER_ID)))
+        .willReturn(List.of(tr1));
+    given(
+            jdbcTemplate.query(
+                eq(SuspiciousTransactionFinder.HIGH_VOLUME_VIEW_SQL),
+                any(RowMapper.class),
+                eq(USER_ID)))
+        .willReturn(Collections.emptyList());
+    given(
+            jdbcTemplate.query(
+                eq(SuspiciousTransactionFinder.RAPID_VIEW_SQL),
+                any(RowMapper.class),
+                eq(USER_ID),
+                eq(300L),
+                eq(3)))
+        .willReturn(Collections.emptyList());
+
+    finder.getAllSuspiciousTransactionForUserId(USER_ID);
+
+    assertThat(
+            registry
+                .get("transaction_scanner.suspicious.rule.query")
+                .tag("query", "RULE_QUERIES")
+                .timers())
+        .hasSize(3);
+    assertThat(
+            registry
+                .get("transaction_scanner.suspicious.rule.rows")
+                .tag("rule", "FREQUENT_SMALL_TRANSACTION")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry
+                .get("transaction_scanner.suspicious.merge")
+                .tag("query", "RULE_QUERIES")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
   @Test
   @DisplayName("Should merge reasons for overlapping frequent and high volume transactions")
   void frequentAndHighVolumeMerge() {
@@ -107,9 +231,11 @@ class SuspiciousTransactionFinderTest {
     given(
             jdbcTemplate.query(
                 eq(
-                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions WHERE user_id = ?"),
+                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions_for_user(?, ?, ?)"),
                 any(RowMapper.class),
-                eq(USER_ID)))
+                eq(USER_ID),
+                eq(300L),
+                eq(3)))
         .willReturn(Collections.emptyList());
 
     List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
@@ -151,9 +277,11 @@ class SuspiciousTransactionFinderTest {
     given(
             jdbcTemplate.query(
                 eq(
-                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions WHERE user_id = ?"),
+                    "SELECT id, user_id, amount, timestamp, five_min_count, transaction_type FROM transaction_scanner.suspicious_rapid_transactions_for_user(?, ?, ?)"),
                 any(RowMapper.class),
-                eq(USER_ID)))
+                eq(USER_ID),
+                eq(300L),
+                eq(3)))
         .willReturn(List.of(r));
 
     List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
@@ -168,4 +296,163 @@ class SuspiciousTransactionFinderTest {
         .containsExactlyInAnyOrder("Frequent transaction", "Rapid transaction");
     assertThat(tx2.getSuspiciousReason()).containsExactly("High volume transaction");
   }
+
+  @Test
+  @DisplayName("Should fetch all rules in one query when the single query strategy is used")
+  @SuppressWarnings("unchecked")
+  void singleQueryStrategy() throws Exception {
+    finderProperties.setStrategy(FinderProperties.FinderStrategy.SINGLE_QUERY);
+    given(ruleConfigurationService.current()).willReturn(RULES);
+    ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+    ArgumentCaptor<RowMapper<TransactionResponse>> mapper =
+        ArgumentCaptor.forClass(RowMapper.class);
+    given(
+            namedParameterJdbcTemplate.query(
+                eq(SuspiciousTransactionFinder.SINGLE_QUERY_SQL),
+                params.capture(),
+                mapper.capture()))
+        .willReturn(Collections.emptyList());
+
+    List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
+
+    assertThat(results).isEmpty();
+    verify(namedParameterJdbcTemplate, times(1))
+        .query(
+            eq(SuspiciousTransactionFinder.SINGLE_QUERY_SQL),
+            any(SqlParameterSource.class),
+            any(RowMapper.class));
+    assertThat(params.getValue().getValue("userId")).isEqualTo(USER_ID);
+    assertThat(params.getValue().getValue("frequentThreshold")).isEqualTo(5);
+    assertThat(params.getValue().getValue("highVolumeAmount"))
+        .isEqualTo(RULES.getHighVolumeAmount());
+    assertThat(params.getValue().getValue("rapidWindowSeconds")).isEqualTo(300L);
+
+    // bits: HIGH_VOLUME_TRANSACTION = 1, FREQUENT_SMALL_TRANSACTION = 2, RAPID_TRANSFER = 4
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn(1L);
+    when(rs.getString("user_id")).thenReturn(USER_ID);
+    when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal("10.00"));
+    when(rs.getTimestamp("timestamp")).thenReturn(Timestamp.valueOf("2025-04-25 09:00:00"));
+    when(rs.getString("transaction_type")).thenReturn("DEPOSIT");
+    when(rs.getInt("reasons")).thenReturn(6);
+
+    TransactionResponse mapped = mapper.getValue().mapRow(rs, 0);
+
+    assertThat(mapped.getSuspiciousReason())
+        .containsExactly("Frequent transaction", "Rapid transaction");
+  }
+
+  @Test
+  @DisplayName("Streaming reads through a forward-only cursor with the configured fetch size")
+  void streamSuspiciousTransactions() throws Exception {
+    ArgumentCaptor<PreparedStatementCreator> statement =
+        ArgumentCaptor.forClass(PreparedStatementCreator.class);
+    ArgumentCaptor<RowCallbackHandler> handler = ArgumentCaptor.forClass(RowCallbackHandler.class);
+    List<TransactionResponse> streamed = new ArrayList<>();
+    given(ruleConfigurationService.current()).willReturn(RULES);
+
+    finder.streamSuspiciousTransactions(USER_ID, streamed::add);
+
+    verify(jdbcTemplate).query(statement.capture(), handler.capture());
+
+    Connection con = mock(Connection.class);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    when(con.prepareStatement(
+            anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+        .thenReturn(ps);
+    statement.getValue().createPreparedStatement(con);
+    verify(ps).setFetchSize(finderProperties.getStreamFetchSize());
+    verify(ps).setString(anyInt(), eq(USER_ID));
+
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn(1L);
+    when(rs.getString("user_id")).thenReturn(USER_ID);
+    when(rs.getTimestamp("timestamp")).thenReturn(Timestamp.valueOf("2025-04-25 09:00:00"));
+    when(rs.getString("transaction_type")).thenReturn("DEPOSIT");
+    when(rs.getInt("reasons")).thenReturn(1);
+    handler.getValue().processRow(rs);
+
+    assertThat(streamed).hasSize(1);
+    assertThat(streamed.get(0).getSuspiciousReason()).containsExactly("High volume transaction");
+  }
+
+  @Test
+  @DisplayName("Parallel rule queries merge in rule order whatever finishes first")
+  @SuppressWarnings("unchecked")
+  void parallelRuleQueriesMergeDeterministically() throws Exception {
+    Timestamp ts = Timestamp.valueOf("2025-04-25 09:00:00");
+    Map<String, List<TransactionResponse>> rows =
+        Map.of(
+            SuspiciousTransactionFinder.FREQUENT_VIEW_SQL,
+            List.of(buildResponse(1, USER_ID, new BigDecimal("10.00"), ts)),
+            SuspiciousTransactionFinder.HIGH_VOLUME_VIEW_SQL,
+            List.of(
+                buildResponse(1, USER_ID, new BigDecimal("10.00"), ts),
+                buildResponse(2, USER_ID, new BigDecimal("20000.00"), ts)),
+            SuspiciousTransactionFinder.RAPID_VIEW_SQL,
+            List.of());
+    given(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+        .willAnswer(invocation -> rows.get(statementSql(invocation.getArgument(0))));
+
+    List<TransactionResponse> results = finder.findWithParallelRuleQueries(USER_ID);
+
+    assertThat(results).extracting(TransactionResponse::getId).containsExactly(2L, 1L);
+    assertThat(results.get(1).getSuspiciousReason())
+        .containsExactly("Frequent transaction", "High volume transaction");
+  }
+
+  @Test
+  @DisplayName("Single pass reads lists the evaluator's reasons in rule order, newest first")
+  void singlePassDescribesReasonsInRuleOrder() {
+    finderProperties.setStrategy(FinderProperties.FinderStrategy.SINGLE_PASS);
+    Timestamp ts = Timestamp.valueOf("2025-04-25 10:00:00");
+    doAnswer(
+            invocation -> {
+              SuspiciousRuleEvaluator.ReasonSink sink = invocation.getArgument(1);
+              sink.accept(
+                  buildResponse(1, USER_ID, new BigDecimal("20000.00"), ts),
+                  EnumSet.of(
+                      SuspiciousReason.RAPID_TRANSFER, SuspiciousReason.HIGH_VOLUME_TRANSACTION));
+              sink.accept(
+                  buildResponse(2, USER_ID, new BigDecimal("10.00"), ts),
+                  EnumSet.of(SuspiciousReason.FREQUENT_SMALL_TRANSACTION));
+              return null;
+            })
+        .when(ruleEvaluator)
+        .evaluate(eq(USER_ID), any(SuspiciousRuleEvaluator.ReasonSink.class));
+
+    List<TransactionResponse> results = finder.getAllSuspiciousTransactionForUserId(USER_ID);
+
+    assertThat(results).extracting(TransactionResponse::getId).containsExactly(2L, 1L);
+    assertThat(results.get(1).getSuspiciousReason())
+        .containsExactly("High volume transaction", "Rapid transaction");
+    verify(namedParameterJdbcTemplate, never())
+        .query(any(String.class), any(SqlParameterSource.class), any(RowMapper.class));
+  }
+
+  @Test
+  @DisplayName("A failing rule query fails the parallel read")
+  @SuppressWarnings("unchecked")
+  void parallelRuleQueriesPropagateFailure() {
+    given(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+        .willAnswer(
+            invocation -> {
+              if (SuspiciousTransactionFinder.HIGH_VOLUME_VIEW_SQL.equals(
+                  statementSql(invocation.getArgument(0)))) {
+                throw new QueryTimeoutException("timeout");
+              }
+              return List.of();
+            });
+
+    assertThrows(QueryTimeoutException.class, () -> finder.findWithParallelRuleQueries(USER_ID));
+  }
+
+  // The SQL a statement creator prepares, read through a mocked connection.
+  private static String statementSql(PreparedStatementCreator creator) throws SQLException {
+    Connection con = mock(Connection.class);
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    when(con.prepareStatement(sql.capture())).thenReturn(mock(PreparedStatement.class));
+    creator.createPreparedStatement(con);
+    return sql.getValue();
+  }
 }
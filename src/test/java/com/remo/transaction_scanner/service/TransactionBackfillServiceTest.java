@@ -0,0 +1,249 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remo.transaction_scanner.config.BackfillProperties;
+import com.remo.transaction_scanner.config.SuspiciousCacheProperties;
+import com.remo.transaction_scanner.model.BackfillFormat;
+import com.remo.transaction_scanner.model.BackfillRequest;
+import com.remo.transaction_scanner.model.BackfillResponse;
+import com.remo.transaction_scanner.model.BackfillStatus;
+import com.remo.transaction_scanner.repository.BackfillRepository;
+import com.remo.transaction_scanner.repository.TransactionPartitionRepository;
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBackfillServiceTest {
+
+  @Mock private BackfillRepository backfillRepository;
+
+  @Mock private TransactionPartitionRepository partitionRepository;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @TempDir private Path directory;
+
+  private final BackfillProperties properties = new BackfillProperties();
+
+  private final List<List<String>> copies = new ArrayList<>();
+
+  private TransactionBackfillService service;
+
+  @BeforeEach
+  void setUp() {
+    properties.setDirectory(directory.toString());
+    properties.setChunkSize(2);
+    service =
+        new TransactionBackfillService(
+            backfillRepository,
+            partitionRepository,
+            new SuspiciousTransactionCache(new SuspiciousCacheProperties()),
+            properties,
+            new ObjectMapper(),
+            transactionManager);
+    lenient().when(backfillRepository.saveCheckpoint(any(), anyLong())).thenReturn(true);
+  }
+
+  private void recordCopies() {
+    when(backfillRepository.copyTransactions(any()))
+        .thenAnswer(
+            invocation -> {
+              List<String> rows =
+                  new BufferedReader(invocation.<Reader>getArgument(0)).lines().toList();
+              copies.add(rows);
+              return (long) rows.size();
+            });
+  }
+
+  private static BackfillResponse progress(BackfillFormat format, long linesRead) {
+    return BackfillResponse.builder()
+        .importId("import1")
+        .file("transactions")
+        .format(format)
+        .status(BackfillStatus.RUNNING)
+        .linesRead(linesRead)
+        .build();
+  }
+
+  @Test
+  void run_copiesValidCsvRowsInChunksAndSkipsRejects() throws Exception {
+    recordCopies();
+    Path file =
+        Files.writeString(
+            directory.resolve("transactions"),
+            String.join(
+                "\n",
+                "user_id,amount,transaction_type,timestamp",
+                "user1,10.5,DEPOSIT,2023-01-15 10:00:00",
+                "user2,-3,DEPOSIT,2023-01-15 10:00:00",
+                "\"user,3\",20000,WITHDRAWAL,2023-03-01T08:30:00+02:00",
+                "user4,5,REFUND,2023-01-01T00:00:00",
+                "user5,7,TRANSFER,2023-02-10T12:00:00"));
+
+    BackfillResponse progress = progress(BackfillFormat.CSV, 0);
+    service.run(file, progress);
+
+    assertThat(copies)
+        .containsExactly(
+            List.of(
+                "\"user1\",10.50,DEPOSIT,2023-01-15T10:00",
+                "\"user,3\",20000.00,WITHDRAWAL,2023-03-01T06:30"),
+            List.of("\"user5\",7.00,TRANSFER,2023-02-10T12:00"));
+    assertThat(progress.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+    assertThat(progress.getLinesRead()).isEqualTo(6);
+    assertThat(progress.getRowsImported()).isEqualTo(3);
+    assertThat(progress.getRowsRejected()).isEqualTo(2);
+    verify(partitionRepository)
+        .createPartitions(LocalDate.of(2023, 1, 15), LocalDate.of(2023, 3, 1));
+  }
+
+  @Test
+  void run_resumesAfterTheCheckpointedLine() throws Exception {
+    recordCopies();
+    Path file =
+        Files.writeString(
+            directory.resolve("transactions"),
+            String.join(
+                "\n",
+                "{\"userId\":\"user1\",\"amount\":1,\"transactionType\":\"DEPOSIT\",\"timestamp\":\"2023-01-01T00:00:00\"}",
+                "{\"userId\":\"user2\",\"amount\":2,\"transactionType\":\"DEPOSIT\",\"timestamp\":\"2023-01-01T00:00:00\"}",
+                "{\"userId\":\"user3\",\"amount\":3,\"transactionType\":\"DEPOSIT\",\"timestamp\":\"2023-01-01T00:00:00\"}",
+                "not json"));
+
+    BackfillResponse progress = progress(BackfillFormat.NDJSON, 2);
+    progress.setRowsImported(2);
+    service.run(file, progress);
+
+    assertThat(copies).containsExactly(List.of("\"user3\",3.00,DEPOSIT,2023-01-01T00:00"));
+    assertThat(progress.getLinesRead()).isEqualTo(4);
+    assertThat(progress.getRowsImported()).isEqualTo(3);
+    assertThat(progress.getRowsRejected()).isEqualTo(1);
+  }
+
+  @Test
+  void run_failedCopyLeavesTheLastCheckpointAndMarksFailed() throws Exception {
+    when(backfillRepository.copyTransactions(any()))
+        .thenReturn(2L)
+        .thenThrow(new IllegalStateException("connection lost"));
+    Path file =
+        Files.writeString(
+            directory.resolve("transactions"),
+            String.join(
+                "\n",
+                "user1,1,DEPOSIT,2023-01-01T00:00:00",
+                "user2,2,DEPOSIT,2023-01-01T00:00:00",
+                "user3,3,DEPOSIT,2023-01-01T00:00:00",
+                "user4,4,DEPOSIT,2023-01-01T00:00:00"));
+
+    BackfillResponse progress = progress(BackfillFormat.CSV, 0);
+    service.run(file, progress);
+
+    assertThat(progress.getStatus()).isEqualTo(BackfillStatus.FAILED);
+    assertThat(progress.getMessage()).isEqualTo("connection lost");
+    assertThat(progress.getLinesRead()).isEqualTo(2);
+    assertThat(progress.getRowsImported()).isEqualTo(2);
+  }
+
+  @Test
+  void run_failedCheckpointDoesNotAdvanceTheProgress() throws Exception {
+    recordCopies();
+    when(backfillRepository.saveCheckpoint(any(), anyLong()))
+        .thenReturn(true)
+        .thenThrow(new IllegalStateException("commit failed"))
+        .thenReturn(true);
+    Path file =
+        Files.writeString(
+            directory.resolve("transactions"),
+            String.join(
+                "\n",
+                "user1,1,DEPOSIT,2023-01-01T00:00:00",
+                "user2,2,DEPOSIT,2023-01-01T00:00:00",
+                "user3,3,DEPOSIT,2023-01-01T00:00:00",
+                "user4,4,DEPOSIT,2023-01-01T00:00:00"));
+
+    BackfillResponse progress = progress(BackfillFormat.CSV, 0);
+    service.run(file, progress);
+
+    assertThat(progress.getStatus()).isEqualTo(BackfillStatus.FAILED);
+    assertThat(progress.getMessage()).isEqualTo("commit failed");
+    assertThat(progress.getLinesRead()).isEqualTo(2);
+    assertThat(progress.getRowsImported()).isEqualTo(2);
+  }
+
+  @Test
+  void run_stopsWhenAnotherRunAdvancedTheCheckpoint() throws Exception {
+    recordCopies();
+    when(backfillRepository.saveCheckpoint(any(), anyLong())).thenReturn(true).thenReturn(false);
+    Path file =
+        Files.writeString(
+            directory.resolve("transactions"),
+            String.join(
+                "\n",
+                "user1,1,DEPOSIT,2023-01-01T00:00:00",
+                "user2,2,DEPOSIT,2023-01-01T00:00:00",
+                "user3,3,DEPOSIT,2023-01-01T00:00:00",
+                "user4,4,DEPOSIT,2023-01-01T00:00:00"));
+
+    BackfillResponse progress = progress(BackfillFormat.CSV, 0);
+    service.run(file, progress);
+
+    assertThat(progress.getStatus()).isEqualTo(BackfillStatus.FAILED);
+    assertThat(progress.getMessage()).isEqualTo("Import import1 was advanced by another run");
+    assertThat(progress.getLinesRead()).isEqualTo(2);
+    verify(backfillRepository).saveCheckpoint(progress, 2);
+  }
+
+  @Test
+  void start_rejectsFilesOutsideTheDirectory() {
+    BackfillRequest request =
+        BackfillRequest.builder()
+            .importId("import1")
+            .file("../secrets.csv")
+            .format(BackfillFormat.CSV)
+            .build();
+
+    assertThrows(IllegalArgumentException.class, () -> service.start(request));
+    verify(backfillRepository, never()).saveCheckpoint(any(), anyLong());
+  }
+
+  @Test
+  void start_returnsACompletedImportWithoutRunningItAgain() throws Exception {
+    Files.writeString(directory.resolve("transactions"), "user1,1,DEPOSIT,2023-01-01T00:00:00");
+    BackfillResponse completed = progress(BackfillFormat.CSV, 1);
+    completed.setStatus(BackfillStatus.COMPLETED);
+    when(backfillRepository.findCheckpoint("import1")).thenReturn(Optional.of(completed));
+
+    BackfillResponse response =
+        service.start(
+            BackfillRequest.builder()
+                .importId("import1")
+                .file("transactions")
+                .format(BackfillFormat.CSV)
+                .build());
+
+    assertThat(response.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+    verify(backfillRepository, never()).copyTransactions(any());
+  }
+}
@@ -3,33 +3,88 @@ package com.remo.transaction_scanner.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.remo.transaction_scanner.config.DetectionProperties;
+import com.remo.transaction_scanner.config.FinderProperties;
+import com.remo.transaction_scanner.config.FleetScanProperties;
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.config.SuspiciousCacheProperties;
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.PageCursor;
+import com.remo.transaction_scanner.model.SuspiciousReason;
+import com.remo.transaction_scanner.model.SuspiciousTransactionPage;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
 import com.remo.transaction_scanner.model.TransactionRequest;
 import com.remo.transaction_scanner.model.TransactionResponse;
+import com.remo.transaction_scanner.model.TransactionType;
+import com.remo.transaction_scanner.repository.SuspiciousFlagRepository;
+import com.remo.transaction_scanner.repository.TransactionBatchRepository;
 import com.remo.transaction_scanner.repository.TransactionRepository;
+import com.remo.transaction_scanner.repository.model.SuspiciousFlag;
 import com.remo.transaction_scanner.repository.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.PersistenceException;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.*;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionScannerServiceTest {
 
   @Mock private TransactionRepository transactionRepository;
 
+  @Mock private TransactionBatchRepository transactionBatchRepository;
+
   @Mock private SuspiciousTransactionFinder suspiciousTransactionFinder;
 
+  @Spy
+  private SuspiciousTransactionCache suspiciousTransactionCache =
+      new SuspiciousTransactionCache(new SuspiciousCacheProperties());
+
+  @Mock private SuspiciousActivityDetector suspiciousActivityDetector;
+
+  @Mock private SuspiciousFlagRepository suspiciousFlagRepository;
+
+  @Mock private TransactionRequestValidator transactionRequestValidator;
+
+  @Spy private IngestionProperties ingestionProperties = new IngestionProperties();
+
+  @Spy private DetectionProperties detectionProperties = new DetectionProperties();
+
+  @Spy private FinderProperties finderProperties = new FinderProperties();
+
+  @Spy private FleetScanProperties fleetScanProperties = new FleetScanProperties();
+
+  @Mock private SuspiciousFleetScanner suspiciousFleetScanner;
+
+  @Mock private SuspiciousFeedService suspiciousFeedService;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Spy private TransactionScannerMetrics metrics = new TransactionScannerMetrics(registry);
+
+  @Mock private PlatformTransactionManager transactionManager;
+
   @Mock private Clock clock;
 
   @InjectMocks private TransactionScannerService service;
@@ -43,12 +98,12 @@ class TransactionScannerServiceTest {
   void setUp() {
     request = new TransactionRequest();
     request.setUserId("user1");
-    request.setAmount(new BigDecimal("123.45"));
+    request.setAmount(12_345L);
 
     savedEntity =
         Transaction.builder()
             .userId(request.getUserId())
-            .amount(request.getAmount())
+            .amountCents(request.getAmount())
             .timestamp(Timestamp.from(fixedInstant))
             .build();
     savedEntity.setId(1);
@@ -56,7 +111,7 @@ class TransactionScannerServiceTest {
     expectedResponse =
         TransactionResponse.builder()
             .userId("user1")
-            .amount(new BigDecimal("123.45"))
+            .amountCents(12_345)
             .timestamp(Timestamp.from(fixedInstant))
             .build();
   }
@@ -68,12 +123,94 @@ class TransactionScannerServiceTest {
     when(clock.instant()).thenReturn(fixedInstant);
     when(clock.getZone()).thenReturn(zone);
 
+    when(suspiciousActivityDetector.evaluateAll(List.of(savedEntity))).thenReturn(List.of());
+
     TransactionResponse response = service.saveTransaction(request);
 
     assertThat(response).isNotNull();
     assertThat(response.getUserId()).isEqualTo("user1");
-    assertThat(response.getAmount()).isEqualByComparingTo("123.45");
+    assertThat(response.getAmountCents()).isEqualTo(12_345);
     assertThat(response.getTimestamp()).isEqualTo(Timestamp.from(fixedInstant));
+    assertThat(response.getSuspicious()).isFalse();
+  }
+
+  @Test
+  void saveTransaction_suspicious_returnsReasonsAndPersistsFlags() {
+    when(transactionRepository.save(any(Transaction.class))).thenReturn(savedEntity);
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    List<SuspiciousFlag> flags =
+        List.of(
+            SuspiciousFlag.builder()
+                .transactionId(1)
+                .userId("user1")
+                .timestamp(Timestamp.from(fixedInstant))
+                .reason(SuspiciousReason.RAPID_TRANSFER)
+                .build());
+    when(suspiciousActivityDetector.evaluateAll(List.of(savedEntity))).thenReturn(flags);
+
+    TransactionResponse response = service.saveTransaction(request);
+
+    assertThat(response.getId()).isEqualTo(1L);
+    assertThat(response.getSuspicious()).isTrue();
+    assertThat(response.getSuspiciousReason()).containsExactly("Rapid transaction");
+    verify(suspiciousFlagRepository).saveAll(flags);
+    assertThat(
+            registry
+                .get("transaction_scanner.suspicious.hits")
+                .tag("reason", "RAPID_TRANSFER")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(registry.get("transaction_scanner.transactions.save").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void saveTransaction_suspicious_countsHitsAfterCommit() {
+    when(transactionRepository.save(any(Transaction.class))).thenReturn(savedEntity);
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    when(suspiciousActivityDetector.evaluateAll(List.of(savedEntity)))
+        .thenReturn(
+            List.of(
+                SuspiciousFlag.builder()
+                    .transactionId(1)
+                    .userId("user1")
+                    .timestamp(Timestamp.from(fixedInstant))
+                    .reason(SuspiciousReason.RAPID_TRANSFER)
+                    .build()));
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      service.saveTransaction(request);
+      assertThat(registry.find("transaction_scanner.suspicious.hits").counter()).isNull();
+
+      TransactionSynchronizationUtils.invokeAfterCommit(
+          TransactionSynchronizationManager.getSynchronizations());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertThat(
+            registry
+                .get("transaction_scanner.suspicious.hits")
+                .tag("reason", "RAPID_TRANSFER")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void saveTransaction_detectionDisabled_skipsDetector() {
+    detectionProperties.setEnabled(false);
+    when(transactionRepository.save(any(Transaction.class))).thenReturn(savedEntity);
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+
+    TransactionResponse response = service.saveTransaction(request);
+
+    assertThat(response.getSuspicious()).isNull();
+    verify(suspiciousActivityDetector, never()).evaluateAll(anyList());
   }
 
   @Test
@@ -115,6 +252,90 @@ class TransactionScannerServiceTest {
     assertThat(ex.getMessage()).contains("Unexpected error occurred");
   }
 
+  @Test
+  void saveTransaction_groupCommit_savesThroughBatchInsert() {
+    ingestionProperties.setMode(IngestionProperties.IngestionMode.GROUP_COMMIT);
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    when(transactionBatchRepository.saveAll(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Transaction> transactions = invocation.getArgument(0);
+              transactions.forEach(t -> t.setId(9));
+              return transactions;
+            });
+    when(suspiciousActivityDetector.evaluateAll(anyList())).thenReturn(List.of());
+
+    try {
+      TransactionResponse response = service.saveTransaction(request);
+
+      assertThat(response.getId()).isEqualTo(9L);
+      assertThat(response.getSuspicious()).isFalse();
+      verify(transactionRepository, never()).save(any());
+      assertThat(
+              registry
+                  .get("transaction_scanner.transactions.group_commit.size")
+                  .summary()
+                  .count())
+          .isEqualTo(1);
+    } finally {
+      service.stopGroupCommit();
+    }
+  }
+
+  @Test
+  void saveTransactions_savesValidItemsAndRejectsInvalidOnes() {
+    TransactionRequest valid =
+        TransactionRequest.builder()
+            .userId("user1")
+            .amount(1_000L)
+            .transactionType(TransactionType.DEPOSIT)
+            .build();
+    TransactionRequest invalid = TransactionRequest.builder().userId("user1").build();
+
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    when(transactionRequestValidator.validate(valid)).thenReturn(Collections.emptyMap());
+    when(transactionRequestValidator.validate(invalid))
+        .thenReturn(Map.of("amount", "Amount must not be null"));
+    when(transactionBatchRepository.saveAll(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Transaction> transactions = invocation.getArgument(0);
+              transactions.forEach(t -> t.setId(7));
+              return transactions;
+            });
+    when(suspiciousActivityDetector.evaluateAll(anyList())).thenReturn(List.of());
+
+    TransactionBatchResponse response = service.saveTransactions(List.of(invalid, valid));
+
+    assertThat(response.getAccepted()).isEqualTo(1);
+    assertThat(response.getRejected()).isEqualTo(1);
+    assertThat(response.getResults().get(0).getStatus()).isEqualTo(BatchItemStatus.REJECTED);
+    assertThat(response.getResults().get(0).getErrors()).containsKey("amount");
+    assertThat(response.getResults().get(1).getStatus()).isEqualTo(BatchItemStatus.ACCEPTED);
+    assertThat(response.getResults().get(1).getTransaction().getId()).isEqualTo(7L);
+    assertThat(response.getResults().get(1).getTransaction().getTimestamp())
+        .isEqualTo(Timestamp.from(fixedInstant));
+    assertThat(
+            registry
+                .get("transaction_scanner.requests.rejected")
+                .tag("cause", "validation")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void saveTransactions_oversizedBatch_throwsIllegalArgument() {
+    ingestionProperties.setMaxBatchSize(1);
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.saveTransactions(List.of(request, request)));
+    verify(transactionBatchRepository, never()).saveAll(anyList());
+  }
+
   @Test
   void getSuspiciousTransactions_delegatesToFinder() {
     List<TransactionResponse> list = Arrays.asList(expectedResponse);
@@ -126,4 +347,123 @@ class TransactionScannerServiceTest {
     assertThat(result).hasSize(1);
     assertThat(result).containsExactly(expectedResponse);
   }
+
+  @Test
+  void getSuspiciousTransactions_cachedUntilUserWrites() {
+    when(suspiciousTransactionFinder.getAllSuspiciousTransactionForUserId("user1"))
+        .thenReturn(List.of(expectedResponse));
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    when(transactionRepository.save(any(Transaction.class))).thenReturn(savedEntity);
+    when(suspiciousActivityDetector.evaluateAll(List.of(savedEntity))).thenReturn(List.of());
+
+    service.getSuspiciousTransactions("user1");
+    service.getSuspiciousTransactions("user1");
+    verify(suspiciousTransactionFinder, times(1)).getAllSuspiciousTransactionForUserId("user1");
+
+    service.saveTransaction(request);
+    service.getSuspiciousTransactions("user1");
+    verify(suspiciousTransactionFinder, times(2)).getAllSuspiciousTransactionForUserId("user1");
+  }
+
+  @Test
+  void getSuspiciousTransactions_timeRange_delegatesToFinder() {
+    List<TransactionResponse> list = Arrays.asList(expectedResponse);
+    when(suspiciousTransactionFinder.findInTimeRange(
+            "user1",
+            Timestamp.valueOf("2025-04-25 10:00:00"),
+            Timestamp.valueOf("9999-12-31 00:00:00")))
+        .thenReturn(list);
+
+    List<TransactionResponse> result =
+        service.getSuspiciousTransactions("user1", LocalDateTime.of(2025, 4, 25, 10, 0), null);
+
+    assertThat(result).containsExactly(expectedResponse);
+  }
+
+  @Test
+  void getSuspiciousTransactions_emptyTimeRange_throwsIllegalArgument() {
+    LocalDateTime at = LocalDateTime.of(2025, 4, 25, 10, 0);
+
+    assertThrows(
+        IllegalArgumentException.class, () -> service.getSuspiciousTransactions("user1", at, at));
+  }
+
+  @Test
+  void fleetScanRange_defaultsToTheLast24Hours() {
+    when(clock.instant()).thenReturn(fixedInstant);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+
+    SuspiciousFleetScanner.Range range = service.fleetScanRange(null, null);
+
+    assertThat(range.from()).isEqualTo(Timestamp.valueOf("2025-04-24 10:15:30"));
+    assertThat(range.to()).isEqualTo(Timestamp.valueOf("2025-04-25 10:15:30"));
+  }
+
+  @Test
+  void fleetScanRange_rejectsRangesLongerThanTheMax() {
+    LocalDateTime to = LocalDateTime.of(2025, 4, 25, 10, 0);
+
+    assertThrows(
+        IllegalArgumentException.class, () -> service.fleetScanRange(to.minusDays(8), to));
+  }
+
+  @Test
+  void getSuspiciousTransactions_servesFromFlagsWhenEnabled() {
+    detectionProperties.setServeReadsFromFlags(true);
+    List<TransactionResponse> list = Arrays.asList(expectedResponse);
+    when(suspiciousFlagRepository.findSuspiciousTransactionsByUserId("user1")).thenReturn(list);
+
+    List<TransactionResponse> result = service.getSuspiciousTransactions("user1");
+
+    assertThat(result).containsExactly(expectedResponse);
+    verify(suspiciousTransactionFinder, never()).getAllSuspiciousTransactionForUserId(any());
+  }
+
+  @Test
+  void getSuspiciousTransactionPage_returnsCursorWhenMoreRowsExist() {
+    TransactionResponse newest = TransactionResponse.builder().id(3).userId("user1").build();
+    TransactionResponse older =
+        TransactionResponse.builder()
+            .id(2)
+            .userId("user1")
+            .timestamp(Timestamp.from(fixedInstant))
+            .build();
+    TransactionResponse oldest = TransactionResponse.builder().id(1).userId("user1").build();
+    when(suspiciousTransactionFinder.findPage("user1", PageCursor.FIRST, 3))
+        .thenReturn(List.of(newest, older, oldest));
+
+    SuspiciousTransactionPage page = service.getSuspiciousTransactionPage("user1", null, 2);
+
+    assertThat(page.getTransactions()).containsExactly(newest, older);
+    PageCursor next = PageCursor.decode(page.getNextCursor());
+    assertThat(next.getId()).isEqualTo(2);
+    assertThat(next.getTimestamp()).isEqualTo(older.getTimestamp().toLocalDateTime());
+  }
+
+  @Test
+  void getSuspiciousTransactionPage_lastPageHasNoCursor() {
+    PageCursor cursor = new PageCursor(LocalDateTime.of(2025, 4, 25, 10, 0), 7);
+    when(suspiciousTransactionFinder.findPage(eq("user1"), eq(cursor), eq(51)))
+        .thenReturn(List.of(expectedResponse));
+
+    SuspiciousTransactionPage page =
+        service.getSuspiciousTransactionPage("user1", cursor.encode(), null);
+
+    assertThat(page.getTransactions()).containsExactly(expectedResponse);
+    assertThat(page.getNextCursor()).isNull();
+  }
+
+  @Test
+  void getSuspiciousTransactionPage_invalidLimitOrCursor_throwsIllegalArgument() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.getSuspiciousTransactionPage("user1", null, 0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.getSuspiciousTransactionPage("user1", null, 501));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> service.getSuspiciousTransactionPage("user1", "not-a-cursor", 10));
+  }
 }
@@ -0,0 +1,156 @@
+package com.remo.transaction_scanner.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remo.transaction_scanner.config.IngestionProperties;
+import com.remo.transaction_scanner.model.BatchItemStatus;
+import com.remo.transaction_scanner.model.StreamEventType;
+import com.remo.transaction_scanner.model.TransactionBatchItemResult;
+import com.remo.transaction_scanner.model.TransactionBatchResponse;
+import com.remo.transaction_scanner.model.TransactionRequest;
+import com.remo.transaction_scanner.model.TransactionStreamEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionStreamIngestionServiceTest {
+
+  private static final String VALID_LINE =
+      "{\"userId\":\"user1\",\"amount\":10.00,\"transactionType\":\"DEPOSIT\"}";
+
+  @Mock private TransactionScannerService transactionScannerService;
+
+  private final IngestionProperties ingestionProperties = new IngestionProperties();
+
+  private TransactionStreamIngestionService service;
+
+  private final List<TransactionStreamEvent> events = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    ingestionProperties.setStreamChunkSize(2);
+    service =
+        new TransactionStreamIngestionService(
+            transactionScannerService,
+            new ObjectMapper(),
+            ingestionProperties,
+            new TransactionScannerMetrics(new SimpleMeterRegistry()));
+  }
+
+  private static TransactionBatchResponse acceptAll(List<TransactionRequest> chunk) {
+    return TransactionBatchResponse.builder()
+        .accepted(chunk.size())
+        .rejected(0)
+        .results(
+            IntStream.range(0, chunk.size())
+                .mapToObj(
+                    i ->
+                        TransactionBatchItemResult.builder()
+                            .index(i)
+                            .status(BatchItemStatus.ACCEPTED)
+                            .build())
+                .toList())
+        .build();
+  }
+
+  @Test
+  void ingest_flushesInChunksAndReportsSummary() throws Exception {
+    when(transactionScannerService.saveTransactions(anyList()))
+        .thenAnswer(invocation -> acceptAll(invocation.getArgument(0)));
+
+    String body = String.join("\n", VALID_LINE, VALID_LINE, "", VALID_LINE, "not json");
+
+    TransactionStreamEvent summary =
+        service.ingest(new BufferedReader(new StringReader(body)), events::add);
+
+    verify(transactionScannerService, times(2)).saveTransactions(anyList());
+    assertThat(summary.getEvent()).isEqualTo(StreamEventType.SUMMARY);
+    assertThat(summary.getAccepted()).isEqualTo(3L);
+    assertThat(summary.getRejected()).isEqualTo(1L);
+    assertThat(events)
+        .extracting(TransactionStreamEvent::getEvent)
+        .containsExactly(
+            StreamEventType.PROGRESS, StreamEventType.REJECTED, StreamEventType.SUMMARY);
+    assertThat(events.get(1).getLine()).isEqualTo(5L);
+  }
+
+  @Test
+  void ingest_reportsValidationFailuresWithTheirLineNumber() throws Exception {
+    when(transactionScannerService.saveTransactions(anyList()))
+        .thenReturn(
+            TransactionBatchResponse.builder()
+                .accepted(1)
+                .rejected(1)
+                .results(
+                    List.of(
+                        TransactionBatchItemResult.builder()
+                            .index(0)
+                            .status(BatchItemStatus.ACCEPTED)
+                            .build(),
+                        TransactionBatchItemResult.builder()
+                            .index(1)
+                            .status(BatchItemStatus.REJECTED)
+                            .errors(Map.of("amount", "Amount must be positive"))
+                            .build()))
+                .build());
+
+    String body = String.join("\n", VALID_LINE, "{\"userId\":\"user1\",\"amount\":-1}");
+
+    TransactionStreamEvent summary =
+        service.ingest(new BufferedReader(new StringReader(body)), events::add);
+
+    assertThat(summary.getAccepted()).isEqualTo(1L);
+    assertThat(summary.getRejected()).isEqualTo(1L);
+    assertThat(events.get(0).getEvent()).isEqualTo(StreamEventType.REJECTED);
+    assertThat(events.get(0).getLine()).isEqualTo(2L);
+    assertThat(events.get(0).getErrors()).containsKey("amount");
+  }
+
+  @Test
+  void ingest_rejectsLinesOverTheMaximumLengthAndCarriesOn() throws Exception {
+    ingestionProperties.setStreamMaxLineLength(VALID_LINE.length());
+    when(transactionScannerService.saveTransactions(anyList()))
+        .thenAnswer(invocation -> acceptAll(invocation.getArgument(0)));
+
+    String body = String.join("\r\n", VALID_LINE, "x".repeat(100_000), VALID_LINE);
+
+    TransactionStreamEvent summary =
+        service.ingest(new BufferedReader(new StringReader(body)), events::add);
+
+    assertThat(summary.getAccepted()).isEqualTo(2L);
+    assertThat(summary.getRejected()).isEqualTo(1L);
+    assertThat(events.get(0).getEvent()).isEqualTo(StreamEventType.REJECTED);
+    assertThat(events.get(0).getLine()).isEqualTo(2L);
+    assertThat(events.get(0).getErrors()).containsEntry("transaction", "Line too long");
+  }
+
+  @Test
+  void ingest_stopsWithErrorEventWhenFlushFails() throws Exception {
+    when(transactionScannerService.saveTransactions(anyList()))
+        .thenThrow(new RuntimeException("Error saving transactions: db down"));
+
+    String body = String.join("\n", VALID_LINE, VALID_LINE, VALID_LINE);
+
+    TransactionStreamEvent result =
+        service.ingest(new BufferedReader(new StringReader(body)), events::add);
+
+    assertThat(result.getEvent()).isEqualTo(StreamEventType.ERROR);
+    assertThat(result.getAccepted()).isEqualTo(0L);
+    verify(transactionScannerService, times(1)).saveTransactions(anyList());
+  }
+}